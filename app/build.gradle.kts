@@ -16,10 +16,32 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+        // JournalBudgetTest runs against the same emulators; it is skipped when this is empty
+        testInstrumentationRunnerArguments["firebaseEmulatorHost"] = "${project.findProperty("firebaseEmulatorHost") ?: ""}"
+        // On CI, or with -PrequireFirebaseEmulator, a missing host fails JournalBudgetTest instead
+        testInstrumentationRunnerArguments["requireFirebaseEmulator"] =
+            "${System.getenv("CI") != null || project.hasProperty("requireFirebaseEmulator")}"
+
+        // Point debug builds at the local Firebase emulators: ./gradlew -PfirebaseEmulatorHost=10.0.2.2 ...
+        buildConfigField("String", "FIREBASE_EMULATOR_HOST", "\"${project.findProperty("firebaseEmulatorHost") ?: ""}\"")
+
+        // Main-thread blocks at least this long are reported as stalls: ./gradlew -PstallThresholdMs=300 ...
+        buildConfigField("long", "STALL_THRESHOLD_MS", "${project.findProperty("stallThresholdMs") ?: 700}L")
+
+        // Whole months older than this are compacted into archives: ./gradlew -ParchiveAfterMonths=12 ...
+        buildConfigField("int", "ARCHIVE_AFTER_MONTHS", "${project.findProperty("archiveAfterMonths") ?: 24}")
+
+        // Where journals are stored, firestore or sqlite (on the device only): ./gradlew -PjournalBackend=sqlite ...
+        buildConfigField("String", "JOURNAL_BACKEND", "\"${project.findProperty("journalBackend") ?: "firestore"}\"")
+    }
+
+    buildFeatures {
+        buildConfig = true
     }
 
     buildTypes {
         release {
+            buildConfigField("String", "FIREBASE_EMULATOR_HOST", "\"\"")
             isMinifyEnabled = false
             proguardFiles(
                 getDefaultProguardFile("proguard-android-optimize.txt"),
@@ -27,6 +49,10 @@ android {
             )
         }
     }
+    testOptions {
+        // android.util.Log and friends become no-ops, so the data layer runs in plain JVM tests
+        unitTests.isReturnDefaultValues = true
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_1_8
         targetCompatibility = JavaVersion.VERSION_1_8
@@ -37,6 +63,13 @@ dependencies {
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation("com.google.code.gson:gson:2.9.0")
+    implementation("androidx.recyclerview:recyclerview:1.3.2")
+    implementation("androidx.fragment:fragment:1.6.2")
+    implementation("androidx.lifecycle:lifecycle-viewmodel:2.7.0")
+    implementation("androidx.lifecycle:lifecycle-livedata:2.7.0")
+    implementation("androidx.asynclayoutinflater:asynclayoutinflater:1.0.0")
+    implementation("androidx.work:work-runtime:2.9.0")
+    implementation("androidx.metrics:metrics-performance:1.0.0-beta01")
 
     // Firebase BoM and services
     implementation(platform("com.google.firebase:firebase-bom:33.13.0"))
@@ -58,6 +91,9 @@ dependencies {
 
     // Tests
     testImplementation(libs.junit)
+    // Runs SQLiteJournalRepository on the JVM, against a real SQLite
+    testImplementation("org.robolectric:robolectric:4.11.1")
+    testImplementation("androidx.test:core:1.5.0")
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
@@ -0,0 +1,46 @@
+package com.example.mindnote;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Fails connectedCheck when a screen's data path goes over its read, write,
+ * round-trip or byte budget in JournalBudgetCheck. Needs the Firestore
+ * emulator; the host comes from the firebaseEmulatorHost instrumentation
+ * argument, which -PfirebaseEmulatorHost sets. Without it the test is skipped
+ * with a warning, or fails where requireFirebaseEmulator is set, as on CI.
+ */
+@RunWith(AndroidJUnit4.class)
+public class JournalBudgetTest {
+
+    private static final String TAG = "JournalBudgetTest";
+    private static final String NO_HOST = "No firebaseEmulatorHost argument, so no budget was checked;"
+            + " run scripts/budgetcheck.sh or pass -PfirebaseEmulatorHost";
+
+    @Test
+    public void dataPathsStayWithinBudget() throws Exception {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        String host = arguments.getString("firebaseEmulatorHost", "");
+        if (host.isEmpty()) {
+            if (Boolean.parseBoolean(arguments.getString("requireFirebaseEmulator", "false"))) fail(NO_HOST);
+            Log.w(TAG, NO_HOST);
+        }
+        assumeFalse(NO_HOST, host.isEmpty());
+
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        JournalBudgetCheck check = new JournalBudgetCheck(context, host, MindNoteApp.FIRESTORE_EMULATOR_PORT);
+        String report = check.run();
+        assertEquals(report, 0, check.failures());
+    }
+}
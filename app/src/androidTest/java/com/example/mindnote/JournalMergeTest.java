@@ -0,0 +1,241 @@
+package com.example.mindnote;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeFalse;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Source;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Two clients, each with its own FirebaseApp and Firestore instance, edit
+ * the same entries in the emulator with interleaved and concurrent updates.
+ * Each test checks that the stored entry is the field-wise merge the HLC
+ * stamps call for, whatever order the writes commit in. Needs the Firestore
+ * emulator; the host comes from the firebaseEmulatorHost instrumentation
+ * argument, which -PfirebaseEmulatorHost sets. Skipped without it.
+ */
+@RunWith(AndroidJUnit4.class)
+public class JournalMergeTest {
+
+    private static final String[] APPS = {"merge-a", "merge-b"};
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private FirebaseFirestore dbA;
+    private FirestoreJournalRepository a;
+    private FirestoreJournalRepository b;
+    private final String uid = "merge-test-" + System.currentTimeMillis();
+
+    @Before
+    public void setUp() {
+        String host = InstrumentationRegistry.getArguments().getString("firebaseEmulatorHost", "");
+        assumeFalse("No firebaseEmulatorHost argument", host.isEmpty());
+
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dbA = emulatorClient(context, APPS[0], host);
+        a = new FirestoreJournalRepository(dbA, uid);
+        b = new FirestoreJournalRepository(emulatorClient(context, APPS[1], host), uid);
+    }
+
+    private static FirebaseFirestore emulatorClient(Context context, String appName, String host) {
+        FirebaseApp app;
+        try {
+            app = FirebaseApp.getInstance(appName);
+        } catch (IllegalStateException e) {
+            app = FirebaseApp.initializeApp(context, FirebaseApp.getInstance().getOptions(), appName);
+            FirebaseFirestore.getInstance(app).useEmulator(host, MindNoteApp.FIRESTORE_EMULATOR_PORT);
+        }
+        return FirebaseFirestore.getInstance(app);
+    }
+
+    @Test
+    public void disjointFieldsBothSurvive() throws Exception {
+        JournalEntry seed = seed(0, "a", "b");
+        JournalEntry editA = copy(seed);
+        editA.setTitle("Title from A");
+        JournalEntry editB = copy(seed);
+        editB.setMood(2);
+
+        String clockA = HybridLogicalClock.get().now();
+        String clockB = HybridLogicalClock.get().now();
+        concurrently(() -> update(a, seed, editA, clockA), () -> update(b, seed, editB, clockB));
+
+        DocumentSnapshot doc = stored(seed.getId());
+        assertEquals("Title from A", doc.getString("title"));
+        assertEquals(Long.valueOf(2), doc.getLong("mood"));
+    }
+
+    @Test
+    public void laterStampWinsWhenCommittedFirst() throws Exception {
+        JournalEntry seed = seed(1);
+        JournalEntry editA = copy(seed);
+        editA.setTitle("Earlier edit from A");
+        JournalEntry editB = copy(seed);
+        editB.setTitle("Later edit from B");
+
+        // A edits first but reaches the server last
+        String clockA = HybridLogicalClock.get().now();
+        String clockB = HybridLogicalClock.get().now();
+        update(b, seed, editB, clockB);
+        update(a, seed, editA, clockA);
+
+        assertEquals("Later edit from B", stored(seed.getId()).getString("title"));
+        assertEquals("A sees the merged entry", "Later edit from B", editA.getTitle());
+    }
+
+    @Test
+    public void concurrentSameFieldEditsKeepTheLaterStamp() throws Exception {
+        JournalEntry seed = seed(1);
+        for (int round = 0; round < 5; round++) {
+            JournalEntry editA = copy(seed);
+            editA.setNote("Note from A, round " + round);
+            JournalEntry editB = copy(seed);
+            editB.setNote("Note from B, round " + round);
+
+            // Alternate which client holds the later stamp
+            String first = HybridLogicalClock.get().now();
+            String second = HybridLogicalClock.get().now();
+            String clockA = round % 2 == 0 ? first : second;
+            String clockB = round % 2 == 0 ? second : first;
+            concurrently(() -> update(a, seed, editA, clockA), () -> update(b, seed, editB, clockB));
+
+            String expected = round % 2 == 0 ? editB.getNote() : editA.getNote();
+            assertEquals("round " + round, expected, stored(seed.getId()).getString("note"));
+            seed.setNote(expected);
+        }
+    }
+
+    @Test
+    public void tagAddsAndRemovesMerge() throws Exception {
+        JournalEntry seed = seed(0, "a", "b");
+        JournalEntry editA = copy(seed);
+        editA.setTags(new ArrayList<>(Arrays.asList("b", "c")));
+        JournalEntry editB = copy(seed);
+        editB.setTags(new ArrayList<>(Arrays.asList("a", "d")));
+
+        String clockA = HybridLogicalClock.get().now();
+        String clockB = HybridLogicalClock.get().now();
+        concurrently(() -> update(a, seed, editA, clockA), () -> update(b, seed, editB, clockB));
+
+        assertEquals(new HashSet<>(Arrays.asList("c", "d")), tagsOf(stored(seed.getId())));
+    }
+
+    @Test
+    public void tagReAddedAfterRemoveStays() throws Exception {
+        JournalEntry seed = seed(0, "x");
+        JournalEntry removeOnA = copy(seed);
+        removeOnA.setTags(new ArrayList<>());
+
+        JournalEntry withoutX = copy(seed);
+        withoutX.setTags(new ArrayList<>());
+        JournalEntry addOnB = copy(withoutX);
+        addOnB.setTags(new ArrayList<>(Arrays.asList("x")));
+
+        // B's add is stamped later but lands first; A's older remove must not undo it
+        String clockA = HybridLogicalClock.get().now();
+        String clockB = HybridLogicalClock.get().now();
+        update(b, withoutX, addOnB, clockB);
+        update(a, seed, removeOnA, clockA);
+
+        assertEquals(new HashSet<>(Arrays.asList("x")), tagsOf(stored(seed.getId())));
+    }
+
+    private JournalEntry seed(int mood, String... tags) throws Exception {
+        JournalEntry entry = new JournalEntry(new Date(), "Seed note", mood);
+        entry.setTitle("Seed");
+        entry.setTags(new ArrayList<>(Arrays.asList(tags)));
+        await(done -> a.addEntry(entry, () -> done.accept(null), done::accept));
+        return entry;
+    }
+
+    private static void update(FirestoreJournalRepository repository, JournalEntry original, JournalEntry updated,
+                               String clock) throws Exception {
+        await(done -> repository.updateEntry(original, updated, clock, () -> done.accept(null), done::accept));
+    }
+
+    private DocumentSnapshot stored(String entryId) throws Exception {
+        return Tasks.await(dbA.collection("users").document(uid).collection("entries").document(entryId)
+                .get(Source.SERVER), TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static HashSet<String> tagsOf(DocumentSnapshot doc) {
+        HashSet<String> tags = new HashSet<>();
+        Object raw = doc.get("tags");
+        if (raw instanceof List) {
+            for (Object tag : (List<?>) raw) {
+                tags.add(String.valueOf(tag));
+            }
+        }
+        return tags;
+    }
+
+    private static JournalEntry copy(JournalEntry entry) {
+        JournalEntry copy = new JournalEntry(entry.getDate(), entry.getNote(), entry.getMood());
+        copy.setId(entry.getId());
+        copy.setTitle(entry.getTitle());
+        copy.setTags(new ArrayList<>(entry.getTags()));
+        copy.setImagePath(entry.getImagePath());
+        copy.setImageVersion(entry.getImageVersion());
+        return copy;
+    }
+
+    interface Step {
+        void run() throws Exception;
+    }
+
+    // Starts both steps together so their transactions contend
+    private static void concurrently(Step first, Step second) throws Exception {
+        AtomicReference<Exception> error = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(2);
+        for (Step step : new Step[]{first, second}) {
+            new Thread(() -> {
+                try {
+                    step.run();
+                } catch (Exception e) {
+                    error.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }, "merge-test-client").start();
+        }
+        if (!done.await(TIMEOUT_SECONDS * 2, TimeUnit.SECONDS)) throw new IllegalStateException("Timed out");
+        if (error.get() != null) throw error.get();
+    }
+
+    interface Call {
+        // done takes null on success or the failure
+        void start(Consumer<Exception> done);
+    }
+
+    private static void await(Call call) throws Exception {
+        AtomicReference<Exception> error = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        call.start(e -> {
+            error.set(e);
+            latch.countDown();
+        });
+        if (!latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) throw new IllegalStateException("Timed out");
+        if (error.get() != null) throw error.get();
+    }
+}
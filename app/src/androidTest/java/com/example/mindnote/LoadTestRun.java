@@ -0,0 +1,69 @@
+package com.example.mindnote;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.SystemClock;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the non-exported LoadTestActivity from inside the app's process and
+ * waits for its report, so the debug build exposes nothing to other apps.
+ * Skipped unless the mode argument is given; scripts/loadtest.sh runs it:
+ *
+ * adb shell am instrument -w -e class com.example.mindnote.LoadTestRun -e mode loadtest -e users 10 \
+ *     com.example.mindnote.test/androidx.test.runner.AndroidJUnitRunner
+ *
+ * mode is loadtest, budget or heap; the other arguments become the activity's extras.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LoadTestRun {
+
+    private static final String[] INT_EXTRAS = {"users", "years", "tags", "ops", "imagePercent"};
+    private static final String[] BOOLEAN_EXTRAS = {"reseed"};
+
+    @Test
+    public void runsUntilTheReportIsWritten() {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        String mode = arguments.getString("mode", "");
+        assumeTrue("No mode argument; LoadTestRun only runs from scripts/loadtest.sh", !mode.isEmpty());
+
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        Context context = instrumentation.getTargetContext();
+        File report = LoadTestActivity.reportFile(context, mode);
+        report.delete();
+
+        Intent intent = new Intent(context, LoadTestActivity.class)
+                .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK)
+                .putExtra("heap", "heap".equals(mode))
+                .putExtra("budget", "budget".equals(mode));
+        for (String key : INT_EXTRAS) {
+            if (arguments.containsKey(key)) intent.putExtra(key, Integer.parseInt(arguments.getString(key)));
+        }
+        for (String key : BOOLEAN_EXTRAS) {
+            if (arguments.containsKey(key)) intent.putExtra(key, Boolean.parseBoolean(arguments.getString(key)));
+        }
+        if (arguments.containsKey("seed")) intent.putExtra("seed", Long.parseLong(arguments.getString("seed")));
+        instrumentation.startActivitySync(intent);
+
+        // The instrumentation ending would take the app's process, and the run, with it
+        long timeoutSeconds = Long.parseLong(arguments.getString("timeoutSeconds", "1800"));
+        long deadline = SystemClock.uptimeMillis() + TimeUnit.SECONDS.toMillis(timeoutSeconds);
+        while (!report.exists() && SystemClock.uptimeMillis() < deadline) {
+            SystemClock.sleep(1000);
+        }
+        assertTrue(mode + " run did not finish within " + timeoutSeconds + " s", report.exists());
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.mindnote;
+
+import static androidx.test.espresso.Espresso.onView;
+import static androidx.test.espresso.action.ViewActions.click;
+import static androidx.test.espresso.matcher.ViewMatchers.withId;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Activity;
+
+import androidx.fragment.app.FragmentManager;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.runner.lifecycle.ActivityLifecycleMonitorRegistry;
+import androidx.test.runner.lifecycle.Stage;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Cycles the bottom navigation and checks that switching tabs only shows and
+ * hides the four tab fragments: no new activities, no back stack, no heap
+ * that keeps growing with the number of switches.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TabSwitchTest {
+
+    private static final int TAPS = 1000;
+    private static final int[] TABS = {
+            R.id.navigation_home, R.id.navigation_notes, R.id.navigation_calendar, R.id.navigation_profile
+    };
+    // Slack for caches and views the first switches have not filled yet
+    private static final long HEAP_GROWTH_LIMIT_BYTES = 8L * 1024 * 1024;
+
+    @Test
+    public void switchingTabsKeepsOneActivityAndFourFragments() {
+        try (ActivityScenario<MainActivity> scenario = ActivityScenario.launch(MainActivity.class)) {
+            AtomicReference<MainActivity> launched = new AtomicReference<>();
+            scenario.onActivity(launched::set);
+
+            // One round adds every tab; the heap measured after it is the baseline
+            for (int tab : TABS) {
+                onView(withId(tab)).perform(click());
+            }
+            long baseline = usedHeapAfterGc();
+
+            for (int i = 0; i < TAPS; i++) {
+                onView(withId(TABS[i % TABS.length])).perform(click());
+            }
+
+            scenario.onActivity(activity -> {
+                assertSame("Tab switches must not recreate the host", launched.get(), activity);
+                FragmentManager fm = activity.getSupportFragmentManager();
+                assertEquals(TABS.length, fm.getFragments().size());
+                assertEquals(0, fm.getBackStackEntryCount());
+            });
+            assertEquals(1, activitiesOf(MainActivity.class));
+
+            long grown = usedHeapAfterGc() - baseline;
+            assertTrue("Heap grew by " + grown + " bytes over " + TAPS + " tab switches",
+                    grown < HEAP_GROWTH_LIMIT_BYTES);
+        }
+    }
+
+    // Live instances of the class in any stage short of destroyed
+    private static int activitiesOf(Class<? extends Activity> type) {
+        List<Activity> found = new ArrayList<>();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            for (Stage stage : Stage.values()) {
+                if (stage == Stage.DESTROYED) continue;
+                Collection<Activity> activities =
+                        ActivityLifecycleMonitorRegistry.getInstance().getActivitiesInStage(stage);
+                for (Activity activity : activities) {
+                    if (type.isInstance(activity)) found.add(activity);
+                }
+            }
+        });
+        return found.size();
+    }
+
+    private static long usedHeapAfterGc() {
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            System.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,344 @@
+package com.example.mindnote;
+
+import android.content.Context;
+import android.net.TrafficStats;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Read, write, round-trip and byte budgets for the data paths behind each
+ * screen, run against a journal seeded in the emulator. Seeding and measuring
+ * go through two FirebaseApps of their own, so the measured client starts with
+ * a cold cache for the journal. Reads, writes and round trips are what FirestoreMeter
+ * counted on the server's answers and the commits; answers from the local cache cost
+ * nothing. Bytes are the app's network traffic while the scenario runs. A scenario
+ * over any budget fails the check.
+ *
+ * JournalBudgetTest runs it under connectedCheck; LoadTestRun runs it by hand:
+ * adb shell am instrument -w -e class com.example.mindnote.LoadTestRun -e mode budget \
+ *     com.example.mindnote.test/androidx.test.runner.AndroidJUnitRunner
+ *
+ * run() blocks, so call it off the main thread.
+ */
+class JournalBudgetCheck {
+
+    private static final String TAG = "JournalBudgetCheck";
+    private static final String SEED_APP = "budget-seed";
+    private static final String MEASURE_APP = "budget-measure";
+    private static final long TIMEOUT_SECONDS = 60;
+    // A scenario ends once nothing has reported for this long, so trailing answers and writes count
+    private static final long SETTLE_MS = 1000;
+
+    private static final int ENTRIES = 120;
+    private static final int TAGGED = 10;
+    private static final int RECENT = 3;
+    private static final int LONG_NOTE_CHARS = 40_000;
+    private static final String TAG_TO_REMOVE = "budget-removed";
+    private static final String[] WORDS = ("today felt long quiet bright heavy walked talked wrote coffee rain "
+            + "morning evening family work friend tired grateful anxious calm focus sleep run read music").split(" ");
+
+    static class Budget {
+        final int reads;
+        final int writes;
+        final int roundTrips;
+        final int kilobytes;
+
+        Budget(int reads, int writes, int roundTrips, int kilobytes) {
+            this.reads = reads;
+            this.writes = writes;
+            this.roundTrips = roundTrips;
+            this.kilobytes = kilobytes;
+        }
+    }
+
+    private static class Usage {
+        int reads;
+        int writes;
+        int roundTrips;
+        boolean failed;
+    }
+
+    private final FirebaseFirestore db;
+    private final FirebaseFirestore seedDb;
+    private final String uid = "budget-check-" + System.currentTimeMillis();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Probe probe = new Probe();
+    private final StringBuilder report = new StringBuilder();
+    private int failures;
+
+    JournalBudgetCheck(Context context, String emulatorHost, int firestorePort) {
+        db = emulatorClient(context, MEASURE_APP, emulatorHost, firestorePort);
+        seedDb = emulatorClient(context, SEED_APP, emulatorHost, firestorePort);
+    }
+
+    // Independent of BuildConfig, so an instrumentation argument can pick the host
+    private static FirebaseFirestore emulatorClient(Context context, String appName, String host, int port) {
+        FirebaseApp app;
+        try {
+            app = FirebaseApp.getInstance(appName);
+        } catch (IllegalStateException e) {
+            app = FirebaseApp.initializeApp(context, FirebaseApp.getInstance().getOptions(), appName);
+            FirebaseFirestore.getInstance(app).useEmulator(host, port);
+        }
+        return FirebaseFirestore.getInstance(app);
+    }
+
+    int failures() {
+        return failures;
+    }
+
+    String run() throws Exception {
+        String longEntryId = seed();
+        JournalDataManager manager = JournalDataManager.withRepository(
+                new MeteredJournalRepository(new FirestoreJournalRepository(db, uid, new FirestoreMeter(probe)), probe),
+                uid);
+
+        // HomeFragment: the recent entries and the stats document, nothing that grows with the journal
+        measure("coldStart", new Budget(RECENT + 1, 0, 2, 32), () -> {
+            manager.loadRecentEntries(RECENT, result -> { });
+            manager.loadStats(stats -> { });
+        }, "loadRecentSummaries", "loadStats");
+
+        // NotesFragment: one read per entry, plus the archive index
+        measure("openNotes", new Budget(ENTRIES + 1, 0, 2, ENTRIES * 2),
+                () -> manager.loadEntrySummaries(result -> { }), "loadSummaries", "loadArchiveIndex");
+
+        // JournalActivity: the entry, then the first page of its note
+        measure("openEntry", new Budget(2, 0, 2, 48),
+                () -> manager.fetchEntryById(longEntryId, entry -> manager.loadNoteChunks(longEntryId, 0, 1,
+                        chunks -> { })), "loadNoteChunks");
+
+        JournalEntry entry = new JournalEntry(new Date(), note(0), 1);
+        entry.setTitle("Budget check");
+        entry.setTags(new ArrayList<>(Collections.singletonList("budget-new")));
+        // The entry, its day index and the stats in one batch, the streak transaction, and the merged tag list
+        measure("save", new Budget(2, 5, 5, 16), () -> {
+            manager.saveEntry(entry);
+            manager.saveTagsToFirestore(new HashSet<>(entry.getTags()));
+        }, "addEntry", "saveTags");
+
+        String editedId = seededId(TAGGED);
+        JournalEntry original = onMain(done -> manager.fetchEntryById(editedId, done));
+        if (original == null) throw new IllegalStateException("Seeded entry " + editedId + " not found");
+        JournalEntry updated = copy(original);
+        updated.setNote(original.getNote() + " Edited.");
+        updated.setMood((original.getMood() + 1) % 3);
+        // The transaction reads the stored entry, then writes it with the stats and day index
+        measure("edit", new Budget(1, 3, 2, 16),
+                () -> manager.updateEntry(original, updated, success -> { }), "updateEntry");
+
+        // The summary is cached from the notes list, so nothing is read first
+        measure("delete", new Budget(0, 3, 1, 8),
+                () -> manager.deleteEntry(seededId(TAGGED + 1), success -> { }), "deleteEntry");
+
+        // Only the entries carrying the tag, then the query for archives listing it, which finds none
+        measure("removeTag", new Budget(TAGGED + 1, TAGGED, 3, TAGGED * 2 + 8),
+                () -> manager.deleteTagFromAllEntries(TAG_TO_REMOVE), "removeTagFromEntries");
+
+        report.append(failures == 0 ? "All budgets met" : failures + " scenario(s) over budget");
+        Log.i(TAG, report.toString());
+        return report.toString();
+    }
+
+    private static String seededId(int index) {
+        return String.format(Locale.US, "budget-%03d", index);
+    }
+
+    // ENTRIES - 1 short daily entries, the first TAGGED carrying TAG_TO_REMOVE, and one chunked entry of today
+    private String seed() throws Exception {
+        DocumentReference userRef = seedDb.collection("users").document(uid);
+        long now = System.currentTimeMillis();
+        int[] moods = new int[3];
+
+        WriteBatch batch = seedDb.batch();
+        for (int i = 0; i < ENTRIES - 1; i++) {
+            String note = note(i);
+            int mood = i % 3;
+            moods[mood]++;
+
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("title", "Day " + (ENTRIES - i));
+            entry.put("note", note);
+            entry.put("preview", JournalEntrySummary.makePreview(note));
+            entry.put("mood", mood);
+            entry.put("tags", i < TAGGED ? Arrays.asList(TAG_TO_REMOVE, "budget-kept") : Collections.emptyList());
+            entry.put("imagePath", null);
+            entry.put("thumbnail", null);
+            entry.put("imageVersion", 0);
+            entry.put("date", new Timestamp(new Date(now - (i + 1) * 86_400_000L)));
+            batch.set(userRef.collection("entries").document(seededId(i)), entry);
+        }
+
+        Map<String, Object> tagsDoc = new HashMap<>();
+        tagsDoc.put("tags", Arrays.asList(TAG_TO_REMOVE, "budget-kept"));
+        batch.set(userRef.collection("meta").document("tags"), tagsDoc);
+
+        Map<String, Object> moodCounts = new HashMap<>();
+        for (int mood = 0; mood < moods.length; mood++) {
+            moodCounts.put(String.valueOf(mood), moods[mood]);
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("entryCount", ENTRIES - 1);
+        stats.put("moodCounts", moodCounts);
+        stats.put(JournalStats.COUNTS_SEEDED, true);
+        batch.set(userRef.collection("meta").document("stats"), stats);
+        Tasks.await(batch.commit(), TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        StringBuilder longNote = new StringBuilder();
+        while (longNote.length() < LONG_NOTE_CHARS) {
+            longNote.append(note(longNote.length())).append("\n\n");
+        }
+        JournalEntry entry = new JournalEntry(new Date(now), longNote.toString(), 2);
+        entry.setTitle("Long entry");
+        entry.setTags(new ArrayList<>());
+        FirestoreJournalRepository seeder = new FirestoreJournalRepository(seedDb, uid);
+        AtomicReference<Exception> error = new AtomicReference<>();
+        CountDownLatch added = new CountDownLatch(1);
+        seeder.addEntry(entry, added::countDown, e -> {
+            error.set(e);
+            added.countDown();
+        });
+        if (!added.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) throw new IllegalStateException("Seeding timed out");
+        if (error.get() != null) throw error.get();
+        // Lets the seeded entry's stats transaction land before any traffic is measured
+        Thread.sleep(SETTLE_MS);
+        return entry.getId();
+    }
+
+    private static String note(int seed) {
+        StringBuilder note = new StringBuilder("Entry " + seed + ".");
+        for (int i = 0; i < 60; i++) {
+            note.append(' ').append(WORDS[(seed + i * 7) % WORDS.length]);
+        }
+        return note.toString();
+    }
+
+    private void measure(String name, Budget budget, Runnable action, String... finalCalls) throws Exception {
+        CountDownLatch done = probe.start(finalCalls);
+        long bytesBefore = trafficBytes();
+        mainHandler.post(action);
+        if (!done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) throw new IllegalStateException(name + " timed out");
+
+        long quietMs;
+        while ((quietMs = probe.quietMillis()) < SETTLE_MS) {
+            Thread.sleep(SETTLE_MS - quietMs);
+        }
+        long bytesAfter = trafficBytes();
+        long bytes = bytesBefore >= 0 && bytesAfter >= 0 ? bytesAfter - bytesBefore : -1;
+        check(name, budget, probe.usage(), bytes);
+    }
+
+    // -1 where the device does not account traffic per app
+    private static long trafficBytes() {
+        int appUid = Process.myUid();
+        long received = TrafficStats.getUidRxBytes(appUid);
+        long sent = TrafficStats.getUidTxBytes(appUid);
+        return received == TrafficStats.UNSUPPORTED || sent == TrafficStats.UNSUPPORTED ? -1 : received + sent;
+    }
+
+    private void check(String name, Budget budget, Usage usage, long bytes) {
+        List<String> over = new ArrayList<>();
+        if (usage.failed) over.add("a call failed");
+        if (usage.reads > budget.reads) over.add("reads");
+        if (usage.writes > budget.writes) over.add("writes");
+        if (usage.roundTrips > budget.roundTrips) over.add("round trips");
+        if (bytes > budget.kilobytes * 1024L) over.add("bytes");
+
+        boolean passed = over.isEmpty();
+        if (!passed) failures++;
+        String traffic = bytes >= 0 ? String.format(Locale.US, "%.1f", bytes / 1024.0) : "n/a";
+        report.append(String.format(Locale.US, "%s %s: reads %d/%d, writes %d/%d, round trips %d/%d, %s/%d KB%s%n",
+                passed ? "PASS" : "FAIL", name, usage.reads, budget.reads, usage.writes, budget.writes,
+                usage.roundTrips, budget.roundTrips, traffic, budget.kilobytes,
+                passed ? "" : " (over: " + String.join(", ", over) + ")"));
+    }
+
+    /**
+     * Sums the round trips the meter reports while a scenario runs. Its latch
+     * opens once each of the scenario's final calls has answered at least once.
+     */
+    private static class Probe implements MeteredJournalRepository.Listener, FirestoreMeter.Listener {
+        private final Set<String> awaiting = new HashSet<>();
+        private CountDownLatch latch = new CountDownLatch(0);
+        private Usage usage = new Usage();
+        private long lastReportNanos;
+
+        synchronized CountDownLatch start(String... finalCalls) {
+            awaiting.clear();
+            awaiting.addAll(Arrays.asList(finalCalls));
+            latch = new CountDownLatch(1);
+            usage = new Usage();
+            lastReportNanos = System.nanoTime();
+            return latch;
+        }
+
+        synchronized long quietMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastReportNanos);
+        }
+
+        synchronized Usage usage() {
+            return usage;
+        }
+
+        @Override
+        public synchronized void onRoundTrip(int documentsRead, int documentsWritten) {
+            usage.reads += documentsRead;
+            usage.writes += documentsWritten;
+            usage.roundTrips++;
+            lastReportNanos = System.nanoTime();
+        }
+
+        @Override
+        public synchronized void onOperation(String operation, long elapsedNanos, boolean success) {
+            if (!success) usage.failed = true;
+            lastReportNanos = System.nanoTime();
+            if (awaiting.remove(operation) && awaiting.isEmpty()) latch.countDown();
+        }
+    }
+
+    // Runs call on the main thread, as the screens do, and waits for what it hands back
+    private <T> T onMain(Consumer<Consumer<T>> call) throws InterruptedException {
+        AtomicReference<T> result = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        mainHandler.post(() -> call.accept(value -> {
+            result.set(value);
+            latch.countDown();
+        }));
+        if (!latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) throw new IllegalStateException("Timed out");
+        return result.get();
+    }
+
+    private static JournalEntry copy(JournalEntry entry) {
+        JournalEntry copy = new JournalEntry(entry.getDate(), entry.getNote(), entry.getMood());
+        copy.setId(entry.getId());
+        copy.setTitle(entry.getTitle());
+        copy.setTags(entry.getTags() != null ? new ArrayList<>(entry.getTags()) : new ArrayList<>());
+        copy.setImagePath(entry.getImagePath());
+        copy.setImageVersion(entry.getImageVersion());
+        return copy;
+    }
+}
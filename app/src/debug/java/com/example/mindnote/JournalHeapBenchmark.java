@@ -0,0 +1,103 @@
+package com.example.mindnote;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Compares the retained heap of a loaded journal held as a List of
+ * JournalEntry, as the data manager used to, with the same journal in a
+ * JournalEntryTable. Entries are shaped like JournalLoadTest's seed data,
+ * with every tag string a separate copy, as after deserialization.
+ *
+ * adb shell am instrument -w -e class com.example.mindnote.LoadTestRun -e mode heap \
+ *     com.example.mindnote.test/androidx.test.runner.AndroidJUnitRunner
+ */
+class JournalHeapBenchmark {
+
+    private static final String[] WORDS = ("today felt long quiet bright heavy walked talked wrote coffee rain "
+            + "morning evening family work friend tired grateful anxious calm focus sleep run read music").split(" ");
+    private static final int TAGS = 200;
+
+    static String run(int... sizes) {
+        StringBuilder report = new StringBuilder();
+        for (int size : sizes) {
+            long listBytes = retained(() -> generate(size, new Random(42)));
+            long tableBytes = retained(() -> JournalEntryTable.fromEntries(generate(size, new Random(42))));
+            long listNoNotesBytes = retained(() -> withoutNotes(generate(size, new Random(42))));
+            report.append(String.format(Locale.US,
+                    "%d entries: list %.1f MB, table %.1f MB (list without notes %.1f MB)%n",
+                    size, mb(listBytes), mb(tableBytes), mb(listNoNotesBytes)));
+        }
+        return report.toString();
+    }
+
+    // Holds the allocation across the measuring GC, so it cannot be collected early
+    private static Object sink;
+
+    interface Allocation {
+        Object allocate();
+    }
+
+    // Heap still in use once the allocated object is the only new thing alive
+    private static long retained(Allocation allocation) {
+        long before = usedAfterGc();
+        sink = allocation.allocate();
+        long after = usedAfterGc();
+        sink = null;
+        return after - before;
+    }
+
+    private static long usedAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            System.runFinalization();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static List<JournalEntry> withoutNotes(List<JournalEntry> entries) {
+        for (JournalEntry entry : entries) {
+            entry.setNote(null);
+        }
+        return entries;
+    }
+
+    private static List<JournalEntry> generate(int size, Random random) {
+        List<JournalEntry> entries = new ArrayList<>(size);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < size; i++) {
+            JournalEntry entry = new JournalEntry(new Date(now - i * 86_400_000L), note(random), random.nextInt(3));
+            entry.setId(String.format(Locale.US, "seed-%06d", i));
+            entry.setTitle("Day " + (size - i));
+            int tags = random.nextInt(4);
+            for (int t = 0; t < tags; t++) {
+                entry.addTag(new String(String.format(Locale.US, "tag-%03d", random.nextInt(TAGS))));
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    private static String note(Random random) {
+        int words = 40 + random.nextInt(400);
+        StringBuilder note = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) note.append(' ');
+            note.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return note.toString();
+    }
+
+    private static double mb(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+}
@@ -0,0 +1,328 @@
+package com.example.mindnote;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seeds the Firestore emulator with synthetic heavy journals and drives
+ * JournalDataManager's load, save, delete, tag-merge and tag-delete paths for
+ * many users at once. Every manager call is made on the main thread, as in
+ * the app; each virtual user waits for its call to finish before the next.
+ *
+ * run() blocks, so call it off the main thread.
+ */
+class JournalLoadTest {
+
+    private static final String TAG = "JournalLoadTest";
+    private static final long OP_TIMEOUT_SECONDS = 60;
+    private static final int MAX_BATCH_WRITES = 500;
+
+    static final String OP_LOAD = "load";
+    static final String OP_SAVE = "save";
+    static final String OP_DELETE = "delete";
+    static final String OP_TAG_MERGE = "tagMerge";
+    static final String OP_DELETE_TAG = "deleteTag";
+
+    private static final String[] WORDS = ("today felt long quiet bright heavy walked talked wrote coffee rain "
+            + "morning evening family work friend tired grateful anxious calm focus sleep run read music").split(" ");
+    private static final String[] DEMO_IMAGES = {
+            JournalDataManager.DEMO_IMAGE_FAMILY,
+            JournalDataManager.DEMO_IMAGE_MEDITATION,
+            JournalDataManager.DEMO_IMAGE_LIGHTBULB
+    };
+
+    static class Config {
+        int users = 5;
+        int years = 2;
+        int tags = 200;
+        int imagePercent = 30;
+        int opsPerUser = 100;
+        long seed = 42;
+        boolean reseed = true;
+    }
+
+    private final FirebaseFirestore db;
+    private final Config config;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, OpStats> stats = new HashMap<>();
+
+    private static class OpStats {
+        final List<Long> latenciesNanos = new ArrayList<>();
+        long documentsRead;
+        int errors;
+    }
+
+    JournalLoadTest(FirebaseFirestore db, Config config) {
+        this.db = db;
+        this.config = config;
+    }
+
+    private static String uidFor(int user) {
+        return String.format(Locale.US, "loadtest-%03d", user);
+    }
+
+    private static String tagName(int tag) {
+        return String.format(Locale.US, "tag-%03d", tag);
+    }
+
+    JSONObject run() throws Exception {
+        if (config.reseed) {
+            long seedStart = System.nanoTime();
+            for (int user = 0; user < config.users; user++) {
+                seedUser(uidFor(user), new Random(config.seed + user));
+            }
+            Log.i(TAG, "Seeded " + config.users + " users in " + millis(System.nanoTime() - seedStart) + " ms");
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(config.users);
+        List<Future<?>> running = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int user = 0; user < config.users; user++) {
+            int index = user;
+            running.add(pool.submit(() -> {
+                runUser(uidFor(index), new Random(config.seed * 31 + index));
+                return null;
+            }));
+        }
+        for (Future<?> future : running) {
+            future.get();
+        }
+        long wallNanos = System.nanoTime() - start;
+        pool.shutdown();
+
+        return report(wallNanos);
+    }
+
+    private void seedUser(String uid, Random random) throws Exception {
+        DocumentReference userRef = db.collection("users").document(uid);
+        int days = config.years * 365;
+        long now = System.currentTimeMillis();
+
+        List<Task<Void>> commits = new ArrayList<>();
+        WriteBatch batch = db.batch();
+        int ops = 0;
+        for (int day = 0; day < days; day++) {
+            Date date = new Date(now - day * 86_400_000L - random.nextInt(12 * 3_600_000));
+            String note = randomNote(random);
+            String image = random.nextInt(100) < config.imagePercent
+                    ? DEMO_IMAGES[random.nextInt(DEMO_IMAGES.length)] : null;
+
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("title", "Day " + (days - day));
+            entry.put("note", note);
+            entry.put("preview", JournalEntrySummary.makePreview(note));
+            entry.put("mood", random.nextInt(3));
+            entry.put("tags", randomTags(random, 3));
+            entry.put("imagePath", image);
+            entry.put("thumbnail", image);
+            entry.put("imageVersion", image != null ? date.getTime() : 0);
+            entry.put("date", new Timestamp(date));
+            batch.set(userRef.collection("entries").document(String.format(Locale.US, "seed-%05d", day)), entry);
+
+            if (++ops == MAX_BATCH_WRITES) {
+                commits.add(batch.commit());
+                batch = db.batch();
+                ops = 0;
+            }
+        }
+
+        List<String> allTags = new ArrayList<>();
+        for (int tag = 0; tag < config.tags; tag++) {
+            allTags.add(tagName(tag));
+        }
+        Map<String, Object> tagsDoc = new HashMap<>();
+        tagsDoc.put("tags", allTags);
+        batch.set(userRef.collection("meta").document("tags"), tagsDoc);
+        // Stats and day indexes are rebuilt by the first full load
+        batch.delete(userRef.collection("meta").document("stats"));
+        commits.add(batch.commit());
+
+        Tasks.await(Tasks.whenAll(commits), 5, TimeUnit.MINUTES);
+    }
+
+    private String randomNote(Random random) {
+        int words = 40 + random.nextInt(400);
+        StringBuilder note = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) note.append(i % 60 == 0 ? "\n\n" : " ");
+            note.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return note.toString();
+    }
+
+    private List<String> randomTags(Random random, int max) {
+        Set<String> tags = new HashSet<>();
+        int count = random.nextInt(max + 1);
+        while (tags.size() < count) {
+            tags.add(tagName(random.nextInt(config.tags)));
+        }
+        return new ArrayList<>(tags);
+    }
+
+    // One virtual user: a full load first, then a weighted mix of operations
+    private void runUser(String uid, Random random) throws InterruptedException {
+        UserProbe probe = new UserProbe();
+        JournalRepository repository = new MeteredJournalRepository(
+                new FirestoreJournalRepository(db, uid, new FirestoreMeter(probe)), probe);
+        JournalDataManager manager = JournalDataManager.withRepository(repository, uid);
+
+        probe.perform(OP_LOAD, "loadEntries", () -> manager.loadEntriesFromFirestore(result -> { }));
+        for (int i = 0; i < config.opsPerUser; i++) {
+            int roll = random.nextInt(100);
+            if (roll < 20) {
+                probe.perform(OP_LOAD, "loadEntries", () -> manager.loadEntriesFromFirestore(result -> { }));
+            } else if (roll < 55) {
+                JournalEntry entry = new JournalEntry(new Date(), randomNote(random), random.nextInt(3));
+                entry.setTitle("Load test " + i);
+                entry.setTags(randomTags(random, 3));
+                probe.perform(OP_SAVE, "addEntry", () -> manager.saveEntry(entry));
+            } else if (roll < 70) {
+                List<JournalEntry> cached = manager.getAllEntriesCached();
+                if (cached.isEmpty()) continue;
+                String entryId = cached.get(random.nextInt(cached.size())).getId();
+                probe.perform(OP_DELETE, "deleteEntry", () -> manager.deleteEntry(entryId, success -> { }));
+            } else if (roll < 90) {
+                // A tag the user has never had, so the merge always writes
+                Set<String> tags = new HashSet<>(Arrays.asList(tagName(random.nextInt(config.tags)), uid + "-new-" + i));
+                probe.perform(OP_TAG_MERGE, "saveTags", () -> manager.saveTagsToFirestore(tags));
+            } else {
+                String tag = tagName(random.nextInt(config.tags));
+                probe.perform(OP_DELETE_TAG, "removeTagFromEntries", () -> manager.deleteTagFromAllEntries(tag));
+            }
+        }
+    }
+
+    /**
+     * Tracks one user's in-flight operation. The documents the meter counts
+     * while it runs are summed into its read count; it completes when the
+     * repository call that finishes that path reports back.
+     */
+    private class UserProbe implements MeteredJournalRepository.Listener, FirestoreMeter.Listener {
+        private String awaiting;
+        private CountDownLatch latch;
+        private boolean failed;
+        private int reads;
+
+        void perform(String op, String finalCall, Runnable call) throws InterruptedException {
+            CountDownLatch done = new CountDownLatch(1);
+            synchronized (this) {
+                awaiting = finalCall;
+                latch = done;
+                failed = false;
+                reads = 0;
+            }
+
+            long start = System.nanoTime();
+            mainHandler.post(call);
+            boolean completed = done.await(OP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            long elapsed = System.nanoTime() - start;
+
+            synchronized (this) {
+                record(op, elapsed, reads, completed && !failed);
+                awaiting = null;
+            }
+        }
+
+        @Override
+        public synchronized void onRoundTrip(int documentsRead, int documentsWritten) {
+            reads += documentsRead;
+        }
+
+        @Override
+        public synchronized void onOperation(String operation, long elapsedNanos, boolean success) {
+            if (operation.equals(awaiting)) {
+                failed = !success;
+                latch.countDown();
+            }
+        }
+    }
+
+    private void record(String op, long elapsedNanos, int reads, boolean success) {
+        synchronized (stats) {
+            OpStats opStats = stats.get(op);
+            if (opStats == null) {
+                opStats = new OpStats();
+                stats.put(op, opStats);
+            }
+            opStats.latenciesNanos.add(elapsedNanos);
+            opStats.documentsRead += reads;
+            if (!success) opStats.errors++;
+        }
+    }
+
+    private JSONObject report(long wallNanos) throws JSONException {
+        JSONObject report = new JSONObject();
+        report.put("users", config.users);
+        report.put("years", config.years);
+        report.put("tags", config.tags);
+        report.put("opsPerUser", config.opsPerUser);
+        report.put("wallMs", millis(wallNanos));
+
+        JSONObject ops = new JSONObject();
+        int totalOps = 0;
+        long totalReads = 0;
+        synchronized (stats) {
+            for (Map.Entry<String, OpStats> e : stats.entrySet()) {
+                List<Long> sorted = new ArrayList<>(e.getValue().latenciesNanos);
+                Collections.sort(sorted);
+                int count = sorted.size();
+
+                JSONObject op = new JSONObject();
+                op.put("count", count);
+                op.put("errors", e.getValue().errors);
+                op.put("p50Ms", millis(percentile(sorted, 50)));
+                op.put("p90Ms", millis(percentile(sorted, 90)));
+                op.put("p99Ms", millis(percentile(sorted, 99)));
+                op.put("maxMs", millis(sorted.get(count - 1)));
+                op.put("documentsRead", e.getValue().documentsRead);
+                op.put("readsPerOp", e.getValue().documentsRead / (double) count);
+                ops.put(e.getKey(), op);
+
+                totalOps += count;
+                totalReads += e.getValue().documentsRead;
+            }
+        }
+        report.put("operations", ops);
+        report.put("totalOps", totalOps);
+        report.put("opsPerSecond", totalOps / (wallNanos / 1e9));
+        report.put("documentsRead", totalReads);
+        return report;
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+}
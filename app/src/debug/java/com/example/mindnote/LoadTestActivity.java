@@ -0,0 +1,135 @@
+package com.example.mindnote;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.util.Log;
+import android.widget.TextView;
+
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Entry point for scripts/loadtest.sh. Runs JournalLoadTest with the intent
+ * extras and writes the report to files/loadtest/report.json. Not exported:
+ * LoadTestRun starts it from the instrumentation, inside the app's process.
+ *
+ * With the heap extra it runs JournalHeapBenchmark instead, which needs no emulator,
+ * and writes files/heap/report.txt. With the budget extra it runs JournalBudgetCheck
+ * against the emulator and writes files/budget/report.txt; JournalBudgetTest runs the
+ * same check in CI.
+ */
+public class LoadTestActivity extends Activity {
+
+    private static final String TAG = "JournalLoadTest";
+
+    // Where the run for mode (loadtest, budget or heap) leaves its report
+    static File reportFile(Context context, String mode) {
+        return new File(context.getFilesDir(), mode + ("loadtest".equals(mode) ? "/report.json" : "/report.txt"));
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        TextView status = new TextView(this);
+        setContentView(status);
+
+        if (getIntent().getBooleanExtra("heap", false)) {
+            File report = prepare(reportFile(this, "heap"));
+            status.setText("Measuring heap…");
+            new Thread(() -> {
+                String result = JournalHeapBenchmark.run(10_000, 100_000);
+                writeReport(report, result);
+                Log.i(TAG, result);
+                runOnUiThread(() -> status.setText(result));
+            }, "journal-heap-benchmark").start();
+            return;
+        }
+
+        // Seeding writes thousands of documents; never let it reach a real project
+        boolean budget = getIntent().getBooleanExtra("budget", false);
+        if (BuildConfig.FIREBASE_EMULATOR_HOST.isEmpty()) {
+            String error = "Load test needs a build with -PfirebaseEmulatorHost";
+            status.setText(error);
+            Log.e(TAG, "Refusing to run without the Firestore emulator");
+            writeReport(prepare(reportFile(this, budget ? "budget" : "loadtest")),
+                    budget ? "FAIL " + error : "{\"error\": " + JSONObject.quote(error) + "}");
+            return;
+        }
+
+        if (budget) {
+            File report = prepare(reportFile(this, "budget"));
+            status.setText("Checking read and write budgets…");
+            new Thread(() -> {
+                String result;
+                try {
+                    result = new JournalBudgetCheck(this, BuildConfig.FIREBASE_EMULATOR_HOST,
+                            MindNoteApp.FIRESTORE_EMULATOR_PORT).run();
+                } catch (Exception e) {
+                    Log.e(TAG, "Budget check failed", e);
+                    result = "FAIL budget check: " + e;
+                }
+                writeReport(report, result);
+                String shown = result;
+                runOnUiThread(() -> status.setText(shown));
+            }, "journal-budget-check").start();
+            return;
+        }
+
+        JournalLoadTest.Config config = readConfig(getIntent());
+        File report = prepare(reportFile(this, "loadtest"));
+        status.setText("Running " + config.users + " users…");
+
+        new Thread(() -> {
+            String result;
+            try {
+                JSONObject json = new JournalLoadTest(FirebaseFirestore.getInstance(), config).run();
+                result = json.toString(2);
+            } catch (Exception e) {
+                Log.e(TAG, "Load test failed", e);
+                result = "{\"error\": " + JSONObject.quote(String.valueOf(e)) + "}";
+            }
+
+            writeReport(report, result);
+
+            Log.i(TAG, result);
+            String shown = result;
+            runOnUiThread(() -> status.setText(shown));
+        }, "journal-load-test").start();
+    }
+
+    private static File prepare(File report) {
+        report.getParentFile().mkdirs();
+        report.delete();
+        return report;
+    }
+
+    // Written via a temp file so the script never reads a partial report
+    private static void writeReport(File report, String text) {
+        File tmp = new File(report.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to write report", e);
+        }
+        tmp.renameTo(report);
+    }
+
+    private static JournalLoadTest.Config readConfig(Intent intent) {
+        JournalLoadTest.Config config = new JournalLoadTest.Config();
+        config.users = intent.getIntExtra("users", config.users);
+        config.years = intent.getIntExtra("years", config.years);
+        config.tags = intent.getIntExtra("tags", config.tags);
+        config.imagePercent = intent.getIntExtra("imagePercent", config.imagePercent);
+        config.opsPerUser = intent.getIntExtra("ops", config.opsPerUser);
+        config.seed = intent.getLongExtra("seed", config.seed);
+        config.reseed = intent.getBooleanExtra("reseed", config.reseed);
+        return config;
+    }
+}
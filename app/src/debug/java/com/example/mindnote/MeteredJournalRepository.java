@@ -0,0 +1,198 @@
+package com.example.mindnote;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Wraps another JournalRepository and reports when each call answers, with its
+ * latency including the caller's callback. Calls that answer from the local
+ * cache before the server report once per answer. What a call read and wrote
+ * comes from the FirestoreMeter given to the repository it wraps.
+ */
+public class MeteredJournalRepository implements JournalRepository {
+
+    public interface Listener {
+        void onOperation(String operation, long elapsedNanos, boolean success);
+    }
+
+    private final JournalRepository delegate;
+    private final Listener listener;
+
+    public MeteredJournalRepository(JournalRepository delegate, Listener listener) {
+        this.delegate = delegate;
+        this.listener = listener;
+    }
+
+    private <T> Consumer<T> success(String operation, long start, Consumer<T> next) {
+        return result -> {
+            next.accept(result);
+            listener.onOperation(operation, System.nanoTime() - start, true);
+        };
+    }
+
+    private Runnable done(String operation, long start, Runnable next) {
+        return () -> {
+            next.run();
+            listener.onOperation(operation, System.nanoTime() - start, true);
+        };
+    }
+
+    private Consumer<Exception> failure(String operation, long start, Consumer<Exception> next) {
+        return e -> {
+            next.accept(e);
+            listener.onOperation(operation, System.nanoTime() - start, false);
+        };
+    }
+
+    @Override
+    public void loadEntries(Consumer<List<JournalEntry>> onSuccess, Consumer<Exception> onFailure) {
+        long start = System.nanoTime();
+        delegate.loadEntries(success("loadEntries", start, onSuccess), failure("loadEntries", start, onFailure));
+    }
+
+    @Override
+    public void loadSummaries(Consumer<List<JournalEntrySummary>> onSuccess, Consumer<Exception> onFailure) {
+        long start = System.nanoTime();
+        delegate.loadSummaries(success("loadSummaries", start, onSuccess),
+                failure("loadSummaries", start, onFailure));
+    }
+
+    @Override
+    public void loadRecentSummaries(int limit, Consumer<List<JournalEntrySummary>> onSuccess,
+                                    Consumer<Exception> onFailure) {
+        long start = System.nanoTime();
+        delegate.loadRecentSummaries(limit, success("loadRecentSummaries", start, onSuccess),
+                failure("loadRecentSummaries", start, onFailure));
+    }
+
+    @Override
+    public void queryEntries(JournalQuery query, JournalPage after,
+                             Consumer<JournalPage> onSuccess, Consumer<Exception> onFailure) {
+        long start = System.nanoTime();
+        delegate.queryEntries(query, after, success("queryEntries", start, onSuccess),
+                failure("queryEntries", start, onFailure));
+    }
+
+    @Override
+    public void fetchEntry(String entryId, Consumer<JournalEntry> onSuccess, Consumer<Exception> onFailure) {
+        long start = System.nanoTime();
+        delegate.fetchEntry(entryId, success("fetchEntry", start, onSuccess),
+                failure("fetchEntry", start, onFailure));
+    }
+
+    @Override
+    public void loadNoteChunks(String entryId, int from, int count,
+                               Consumer<List<String>> onSuccess, Consumer<Exception> onFailure) {
+        long start = System.nanoTime();
+        delegate.loadNoteChunks(entryId, from, count, success("loadNoteChunks", start, onSuccess),
+                failure("loadNoteChunks", start, onFailure));
+    }
+
+    @Override
+    public void addEntry(JournalEntry entry, Runnable onSuccess, Consumer<Exception> onFailure) {
+        long start = System.nanoTime();
+        delegate.addEntry(entry, done("addEntry", start, onSuccess), failure("addEntry", start, onFailure));
+    }
+
+    @Override
+    public void updateEntry(JournalEntry original, JournalEntry updated, Runnable onSuccess,
+                            Consumer<Exception> onFailure) {
+        long start = System.nanoTime();
+        delegate.updateEntry(original, updated, done("updateEntry", start, onSuccess),
+                failure("updateEntry", start, onFailure));
+    }
+
+    @Override
+    public void deleteEntry(String entryId, JournalEntrySummary known, Runnable onSuccess,
+                            Consumer<Exception> onFailure) {
+        long start = System.nanoTime();
+        delegate.deleteEntry(entryId, known, done("deleteEntry", start, onSuccess),
+                failure("deleteEntry", start, onFailure));
+    }
+
+    @Override
+    public void deleteEntries(List<JournalEntrySummary> entries, Consumer<List<String>> onChunkCommitted,
+                              Runnable onSuccess, Consumer<Exception> onFailure) {
+        long start = System.nanoTime();
+        delegate.deleteEntries(entries, onChunkCommitted, done("deleteEntries", start, onSuccess),
+                failure("deleteEntries", start, onFailure));
+    }
+
+    @Override
+    public void updateEntryTags(List<String> entryIds, String tag, boolean add,
+                                Consumer<List<String>> onChunkCommitted, Runnable onSuccess,
+                                Consumer<Exception> onFailure) {
+        long start = System.nanoTime();
+        delegate.updateEntryTags(entryIds, tag, add, onChunkCommitted,
+                done("updateEntryTags", start, onSuccess),
+                failure("updateEntryTags", start, onFailure));
+    }
+
+    @Override
+    public void loadTags(Consumer<List<String>> onSuccess, Consumer<Exception> onFailure) {
+        long start = System.nanoTime();
+        delegate.loadTags(success("loadTags", start, onSuccess), failure("loadTags", start, onFailure));
+    }
+
+    @Override
+    public void saveTags(List<String> tags, Runnable onSuccess, Consumer<Exception> onFailure) {
+        long start = System.nanoTime();
+        delegate.saveTags(tags, done("saveTags", start, onSuccess), failure("saveTags", start, onFailure));
+    }
+
+    @Override
+    public void removeTagFromEntries(String tag, Consumer<Integer> onSuccess, Consumer<Exception> onFailure) {
+        long start = System.nanoTime();
+        delegate.removeTagFromEntries(tag, success("removeTagFromEntries", start, onSuccess),
+                failure("removeTagFromEntries", start, onFailure));
+    }
+
+    @Override
+    public void loadStats(Consumer<JournalStats> onSuccess, Consumer<Exception> onFailure) {
+        long start = System.nanoTime();
+        delegate.loadStats(success("loadStats", start, onSuccess), failure("loadStats", start, onFailure));
+    }
+
+    @Override
+    public void saveStats(JournalStats stats, Runnable onSuccess, Consumer<Exception> onFailure) {
+        long start = System.nanoTime();
+        delegate.saveStats(stats, done("saveStats", start, onSuccess), failure("saveStats", start, onFailure));
+    }
+
+    @Override
+    public void loadMonthIndex(String monthKey, Consumer<JournalMonthIndex> onSuccess, Consumer<Exception> onFailure) {
+        long start = System.nanoTime();
+        delegate.loadMonthIndex(monthKey, success("loadMonthIndex", start, onSuccess),
+                failure("loadMonthIndex", start, onFailure));
+    }
+
+    @Override
+    public void saveMonthIndexes(Collection<JournalMonthIndex> indexes, Runnable onSuccess,
+                                 Consumer<Exception> onFailure) {
+        long start = System.nanoTime();
+        delegate.saveMonthIndexes(indexes, done("saveMonthIndexes", start, onSuccess),
+                failure("saveMonthIndexes", start, onFailure));
+    }
+
+    @Override
+    public void loadArchiveIndex(Consumer<JournalArchiveIndex> onSuccess, Consumer<Exception> onFailure) {
+        long start = System.nanoTime();
+        delegate.loadArchiveIndex(success("loadArchiveIndex", start, onSuccess),
+                failure("loadArchiveIndex", start, onFailure));
+    }
+
+    @Override
+    public void loadArchive(String monthKey, Consumer<List<JournalEntry>> onSuccess, Consumer<Exception> onFailure) {
+        long start = System.nanoTime();
+        delegate.loadArchive(monthKey, success("loadArchive", start, onSuccess),
+                failure("loadArchive", start, onFailure));
+    }
+
+    @Override
+    public void restoreArchived(List<JournalEntrySummary> entries, Runnable onSuccess, Consumer<Exception> onFailure) {
+        long start = System.nanoTime();
+        delegate.restoreArchived(entries, done("restoreArchived", start, onSuccess),
+                failure("restoreArchived", start, onFailure));
+    }
+}
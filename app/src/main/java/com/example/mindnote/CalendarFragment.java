@@ -0,0 +1,53 @@
+package com.example.mindnote;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.view.View;
+import android.widget.CalendarView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+
+import java.util.Calendar;
+import java.util.List;
+
+public class CalendarFragment extends Fragment {
+
+    private JournalDataManager dataManager;
+
+    public CalendarFragment() {
+        super(R.layout.fragment_calendar);
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        CalendarView calendarView = view.findViewById(R.id.calendarView);
+        dataManager = new ViewModelProvider(requireActivity()).get(JournalViewModel.class).getDataManager();
+
+        // Warm the visible month so the first tap doesn't wait on the network
+        Calendar today = Calendar.getInstance();
+        dataManager.loadMonthIndex(today.get(Calendar.YEAR), today.get(Calendar.MONTH), index -> { });
+
+        calendarView.setOnDateChangeListener((v, year, month, dayOfMonth) -> {
+            JankMetrics.setState(calendarView, "loading", "loadingDay");
+            dataManager.loadMonthIndex(year, month, index -> {
+                JankMetrics.clearState(calendarView, "loading");
+                if (!isAdded()) return;
+                List<String> entryIds = index.getEntryIds(dayOfMonth);
+                if (!entryIds.isEmpty()) {
+                    Intent intent = new Intent(requireContext(), JournalActivity.class);
+                    intent.putExtra("entryId", entryIds.get(0));
+                    // Lets an entry from an archived month be found without loading every archive
+                    Calendar day = Calendar.getInstance();
+                    day.set(year, month, dayOfMonth);
+                    intent.putExtra("entryDate", day.getTimeInMillis());
+                    startActivity(intent);
+                }
+            });
+        });
+    }
+}
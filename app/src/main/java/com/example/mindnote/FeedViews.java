@@ -0,0 +1,97 @@
+package com.example.mindnote;
+
+import android.content.Context;
+import android.os.Looper;
+import android.util.SparseArray;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.asynclayoutinflater.view.AsyncLayoutInflater;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayDeque;
+
+/**
+ * View recycling shared by the home feed and the notes list. Item views are
+ * inflated against a themed application context, never an Activity, so they
+ * can outlive the screen that created them and be reused on the next visit.
+ */
+public final class FeedViews {
+
+    private static final int PREWARM_RECENT = 3;
+    private static final int PREWARM_NOTES = 6;
+    private static final int MAX_POOLED_PER_TYPE = 10;
+
+    private static Context themedContext;
+    private static RecyclerView.RecycledViewPool pool;
+    private static final SparseArray<ArrayDeque<View>> prewarmed = new SparseArray<>();
+
+    private FeedViews() {}
+
+    public static Context themedContext(Context context) {
+        if (themedContext == null) {
+            themedContext = new ContextThemeWrapper(context.getApplicationContext(), R.style.Theme_MindNote);
+        }
+        return themedContext;
+    }
+
+    public static RecyclerView.RecycledViewPool sharedPool() {
+        if (pool == null) {
+            pool = new RecyclerView.RecycledViewPool();
+            pool.setMaxRecycledViews(R.layout.item_recent_entry, MAX_POOLED_PER_TYPE);
+            pool.setMaxRecycledViews(R.layout.item_note, MAX_POOLED_PER_TYPE);
+        }
+        return pool;
+    }
+
+    // Set the adapter first: attaching an adapter to a RecyclerView that already uses the
+    // shared pool makes RecyclerView clear the pool when no other adapter is attached.
+    public static void attach(RecyclerView recyclerView, RecyclerView.Adapter<?> adapter) {
+        recyclerView.setLayoutManager(new LinearLayoutManager(recyclerView.getContext()));
+        recyclerView.setAdapter(adapter);
+        recyclerView.setRecycledViewPool(sharedPool());
+    }
+
+    // Call from onDestroy so the screen's holders go back to the pool for the next visit
+    public static void release(RecyclerView recyclerView) {
+        recyclerView.setLayoutManager(null);
+    }
+
+    public static View inflate(ViewGroup parent, int layoutRes) {
+        ArrayDeque<View> stash = prewarmed.get(layoutRes);
+        if (stash != null && !stash.isEmpty()) {
+            return stash.poll();
+        }
+        return LayoutInflater.from(themedContext(parent.getContext())).inflate(layoutRes, parent, false);
+    }
+
+    // Inflates the first screenful of cards off the main thread once the app is idle
+    public static void prewarm(Context context) {
+        Looper.myQueue().addIdleHandler(() -> {
+            Context themed = themedContext(context);
+            RecyclerView parent = new RecyclerView(themed);
+            parent.setLayoutManager(new LinearLayoutManager(themed));
+
+            AsyncLayoutInflater inflater = new AsyncLayoutInflater(themed);
+            AsyncLayoutInflater.OnInflateFinishedListener stashView = (view, resid, p) -> {
+                ArrayDeque<View> stash = prewarmed.get(resid);
+                if (stash == null) {
+                    stash = new ArrayDeque<>();
+                    prewarmed.put(resid, stash);
+                }
+                stash.add(view);
+            };
+
+            for (int i = 0; i < PREWARM_RECENT; i++) {
+                inflater.inflate(R.layout.item_recent_entry, parent, stashView);
+            }
+            for (int i = 0; i < PREWARM_NOTES; i++) {
+                inflater.inflate(R.layout.item_note, parent, stashView);
+            }
+            return false;
+        });
+    }
+}
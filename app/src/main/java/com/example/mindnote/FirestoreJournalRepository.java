@@ -0,0 +1,1082 @@
+package com.example.mindnote;
+
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.AggregateQuerySnapshot;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Journal storage under users/{uid}. Alongside the entries it maintains
+ * meta/stats and the days/{yyyy-MM} index in the same batches as the entry
+ * writes, so screens can read counters instead of scanning the journal.
+ */
+public class FirestoreJournalRepository implements JournalRepository {
+
+    private static final String TAG = "FirestoreJournalRepo";
+    private static final int MOOD_COUNT = 3;
+    private static final int MAX_BATCH_WRITES = 500;
+    // Entries read to seed the streak when the stats are rebuilt; JournalBackfill corrects longer streaks
+    private static final int STREAK_SEED_LIMIT = 100;
+    private static final int MAX_SEED_ATTEMPTS = 3;
+
+    // Per-field HLC timestamps of the last write, under clocks in each entry document
+    private static final String CLOCKS_FIELD = "clocks";
+    private static final String CLOCK_TITLE = "title";
+    private static final String CLOCK_NOTE = "note";
+    private static final String CLOCK_MOOD = "mood";
+    private static final String CLOCK_IMAGE = "image";
+
+    private final FirebaseFirestore db;
+    private final String uid;
+    private final JournalArchiver archiver;
+    private final FirestoreMeter meter;
+
+    public FirestoreJournalRepository(FirebaseFirestore db, String uid) {
+        this(db, uid, FirestoreMeter.NONE);
+    }
+
+    public FirestoreJournalRepository(FirebaseFirestore db, String uid, FirestoreMeter meter) {
+        this.db = db;
+        this.uid = uid;
+        this.meter = meter;
+        this.archiver = new JournalArchiver(db, uid, meter);
+    }
+
+    private CollectionReference getUserEntriesRef() {
+        return db.collection("users").document(uid).collection("entries");
+    }
+
+    private CollectionReference getMetaRef() {
+        return db.collection("users").document(uid).collection("meta");
+    }
+
+    private DocumentReference getStatsRef() {
+        return getMetaRef().document("stats");
+    }
+
+    private DocumentReference getDayIndexRef(String monthKey) {
+        return db.collection("users").document(uid).collection("days").document(monthKey);
+    }
+
+    private boolean signedIn(Consumer<Exception> onFailure) {
+        if (uid != null) return true;
+        onFailure.accept(new IllegalStateException("Not signed in"));
+        return false;
+    }
+
+    @Override
+    public void loadEntries(Consumer<List<JournalEntry>> onSuccess, Consumer<Exception> onFailure) {
+        if (!signedIn(onFailure)) return;
+
+        meter.query(getUserEntriesRef().orderBy("date", Query.Direction.DESCENDING).get())
+                .addOnSuccessListener(snapshot -> {
+                    List<JournalEntry> result = new ArrayList<>();
+                    for (QueryDocumentSnapshot doc : snapshot) {
+                        JournalEntry entry = doc.toObject(JournalEntry.class);
+                        entry.setId(doc.getId());
+                        result.add(entry);
+                    }
+                    onSuccess.accept(result);
+                })
+                .addOnFailureListener(onFailure::accept);
+    }
+
+    // Answers from the local cache first, then again from the server once it responds
+    @Override
+    public void loadSummaries(Consumer<List<JournalEntrySummary>> onSuccess, Consumer<Exception> onFailure) {
+        if (!signedIn(onFailure)) return;
+
+        Query query = getUserEntriesRef().orderBy("date", Query.Direction.DESCENDING);
+
+        query.get(Source.CACHE)
+                .addOnSuccessListener(snapshot -> {
+                    if (!snapshot.isEmpty()) {
+                        onSuccess.accept(toSummaries(snapshot));
+                    }
+                })
+                .addOnCompleteListener(cacheTask -> meter.query(query.get(Source.SERVER))
+                        .addOnSuccessListener(snapshot -> onSuccess.accept(toSummaries(snapshot)))
+                        .addOnFailureListener(onFailure::accept));
+    }
+
+    // Answers from the local cache first, then again from the server once it responds
+    @Override
+    public void loadRecentSummaries(int limit, Consumer<List<JournalEntrySummary>> onSuccess,
+                                    Consumer<Exception> onFailure) {
+        if (!signedIn(onFailure)) return;
+
+        Query query = getUserEntriesRef().orderBy("date", Query.Direction.DESCENDING).limit(limit);
+
+        query.get(Source.CACHE)
+                .addOnSuccessListener(snapshot -> {
+                    if (!snapshot.isEmpty()) {
+                        onSuccess.accept(toSummaries(snapshot));
+                    }
+                })
+                .addOnCompleteListener(cacheTask -> meter.query(query.get(Source.SERVER))
+                        .addOnSuccessListener(snapshot -> onSuccess.accept(toSummaries(snapshot)))
+                        .addOnFailureListener(onFailure::accept));
+    }
+
+    // Each filter combination is backed by a composite index in firestore.indexes.json
+    @Override
+    public void queryEntries(JournalQuery filter, JournalPage after,
+                             Consumer<JournalPage> onSuccess, Consumer<Exception> onFailure) {
+        if (!signedIn(onFailure)) return;
+
+        Query query = getUserEntriesRef();
+        if (filter.getTag() != null) {
+            query = query.whereArrayContains("tags", filter.getTag());
+        }
+        if (filter.getMood() != null) {
+            query = query.whereEqualTo("mood", filter.getMood());
+        }
+        if (filter.getFrom() != null) {
+            query = query.whereGreaterThanOrEqualTo("date", filter.getFrom());
+        }
+        if (filter.getTo() != null) {
+            query = query.whereLessThan("date", filter.getTo());
+        }
+        query = query.orderBy("date", Query.Direction.DESCENDING);
+        if (after != null && after.getCursor() instanceof DocumentSnapshot) {
+            query = query.startAfter((DocumentSnapshot) after.getCursor());
+        }
+        Query page = query.limit(filter.getPageSize());
+
+        // Offline or failing server: serve whatever the local cache holds for the same query
+        meter.query(page.get(Source.SERVER))
+                .addOnSuccessListener(snapshot -> onSuccess.accept(toPage(snapshot, filter)))
+                .addOnFailureListener(e -> page.get(Source.CACHE)
+                        .addOnSuccessListener(snapshot -> onSuccess.accept(toPage(snapshot, filter)))
+                        .addOnFailureListener(cacheError -> onFailure.accept(e)));
+    }
+
+    private JournalPage toPage(QuerySnapshot snapshot, JournalQuery filter) {
+        List<DocumentSnapshot> docs = snapshot.getDocuments();
+        DocumentSnapshot last = docs.isEmpty() ? null : docs.get(docs.size() - 1);
+        return new JournalPage(toSummaries(snapshot), last, docs.size() == filter.getPageSize(),
+                snapshot.getMetadata().isFromCache());
+    }
+
+    private List<JournalEntrySummary> toSummaries(QuerySnapshot snapshot) {
+        List<JournalEntrySummary> result = new ArrayList<>();
+        for (QueryDocumentSnapshot doc : snapshot) {
+            result.add(JournalEntrySummary.fromSnapshot(doc));
+        }
+        return result;
+    }
+
+    @Override
+    public void fetchEntry(String entryId, Consumer<JournalEntry> onSuccess, Consumer<Exception> onFailure) {
+        if (!signedIn(onFailure)) return;
+
+        meter.document(getUserEntriesRef().document(entryId).get())
+                .addOnSuccessListener(doc -> {
+                    JournalEntry entry = doc.exists() ? doc.toObject(JournalEntry.class) : null;
+                    if (entry != null) {
+                        entry.setId(doc.getId());
+                    }
+                    onSuccess.accept(entry);
+                })
+                .addOnFailureListener(onFailure::accept);
+    }
+
+    @Override
+    public void loadNoteChunks(String entryId, int from, int count,
+                               Consumer<List<String>> onSuccess, Consumer<Exception> onFailure) {
+        if (!signedIn(onFailure)) return;
+
+        meter.query(getUserEntriesRef().document(entryId).collection("chunks")
+                .whereGreaterThanOrEqualTo("index", from)
+                .orderBy("index")
+                .limit(count)
+                .get())
+                .addOnSuccessListener(snapshot -> {
+                    List<String> chunks = new ArrayList<>();
+                    for (QueryDocumentSnapshot doc : snapshot) {
+                        String text = doc.getString("text");
+                        chunks.add(text != null ? text : "");
+                    }
+                    onSuccess.accept(chunks);
+                })
+                .addOnFailureListener(onFailure::accept);
+    }
+
+    @Override
+    public void addEntry(JournalEntry entry, Runnable onSuccess, Consumer<Exception> onFailure) {
+        if (!signedIn(onFailure)) return;
+
+        Map<String, Object> entryMap = new HashMap<>();
+        entryMap.put("title", entry.getTitle());
+        entryMap.put("note", entry.getNote());
+        entryMap.put("mood", entry.getMood());
+        entryMap.put("tags", entry.getTags());
+        entryMap.put("imagePath", entry.getImagePath());
+        entryMap.put("preview", JournalEntrySummary.makePreview(entry.getNote()));
+        entryMap.put("thumbnail", entry.getImagePath());
+        entryMap.put("date", FieldValue.serverTimestamp());
+        entryMap.put("updatedAt", FieldValue.serverTimestamp());
+
+        String clock = HybridLogicalClock.get().now();
+        Map<String, Object> clocks = new HashMap<>();
+        for (String field : new String[]{CLOCK_TITLE, CLOCK_NOTE, CLOCK_MOOD, CLOCK_IMAGE}) {
+            clocks.put(field, clock);
+        }
+        entryMap.put(CLOCKS_FIELD, clocks);
+        JournalTagSet tagSet = JournalTagSet.fromStored(null, null);
+        tagSet.apply(entry.getTags() != null ? entry.getTags() : new ArrayList<>(), new ArrayList<>(), clock);
+        entryMap.put(JournalTagSet.FIELD, tagSet.toData());
+
+        DocumentReference docRef = getUserEntriesRef().document();
+        Date entryDate = entry.getDate() != null ? entry.getDate() : new Date();
+
+        // Bumped whenever the image is written so cached decodes of the old one are not reused
+        entry.setImageVersion(entry.getImagePath() != null ? entryDate.getTime() : 0);
+        entryMap.put("imageVersion", entry.getImageVersion());
+
+        // The entry, its calendar day index and the counters land atomically, offline too
+        FirestoreMeter.MeteredBatch batch = meter.batch(db);
+        if (JournalNoteChunks.needsChunking(entry.getNote())) {
+            List<String> chunks = JournalNoteChunks.split(entry.getNote());
+            putChunkFields(entryMap, entry, chunks);
+            for (int i = 0; i < chunks.size(); i++) {
+                batch.set(chunkRef(docRef, i), chunkData(chunks.get(i), i));
+            }
+        }
+        batch.set(docRef, entryMap);
+        imageRefDelta(batch, entry.getImagePath(), 1);
+        batch.set(getDayIndexRef(JournalMonthIndex.monthKey(entryDate)),
+                dayIndexDelta(entryDate, docRef.getId(), entry.getMood()), SetOptions.merge());
+        batch.set(getStatsRef(), statsDelta(1, entry.getMood()), SetOptions.merge());
+
+        batch.commit()
+                .addOnSuccessListener(aVoid -> {
+                    entry.setId(docRef.getId());
+                    entry.setDate(entryDate);
+                    // Answers once the streak has moved too, so stats read after the save include it
+                    advanceStreak(entryDate).addOnCompleteListener(streak -> onSuccess.run());
+                })
+                .addOnFailureListener(onFailure::accept);
+    }
+
+    // The streak depends on the stored last entry day, so it advances in a transaction
+    private Task<Object> advanceStreak(Date entryDate) {
+        DocumentReference statsRef = getStatsRef();
+        long today = JournalStats.dayKey(entryDate);
+        long yesterday = JournalStats.previousDayKey(entryDate);
+
+        return meter.runTransaction(db, transaction -> {
+            DocumentSnapshot doc = transaction.get(statsRef);
+            long newStreak = JournalStats.advanceStreak(doc.getLong("lastEntryDay"), doc.getLong("streak"),
+                    today, yesterday);
+
+            Map<String, Object> data = new HashMap<>();
+            data.put("streak", newStreak);
+            data.put("lastEntryDay", today);
+            data.put("lastEntryDate", entryDate);
+            transaction.set(statsRef, data, SetOptions.merge());
+            return null;
+        }).addOnFailureListener(e -> Log.e(TAG, "Failed to advance streak after save", e));
+    }
+
+    /**
+     * Sends only the fields that differ from original, each stamped with the
+     * same HybridLogicalClock timestamp. Run as a transaction against the
+     * stored entry, a field is written only if no other device wrote it with
+     * a later stamp, tags merge as a JournalTagSet, and updated ends up as the
+     * merged entry. Transactions need the server, so offline the same fields
+     * are merge-written blind and the last to arrive wins per field.
+     */
+    @Override
+    public void updateEntry(JournalEntry original, JournalEntry updated, Runnable onSuccess,
+                            Consumer<Exception> onFailure) {
+        if (!signedIn(onFailure)) return;
+        updateEntry(original, updated, HybridLogicalClock.get().now(), onSuccess, onFailure);
+    }
+
+    // Takes the clock so the merge check can replay edits stamped in a different order than they commit
+    void updateEntry(JournalEntry original, JournalEntry updated, String clock, Runnable onSuccess,
+                     Consumer<Exception> onFailure) {
+        String entryId = original.getId();
+        DocumentReference docRef = getUserEntriesRef().document(entryId);
+        EntryEdit edit = new EntryEdit(original, updated, clock);
+
+        meter.runTransaction(db, transaction -> {
+            DocumentSnapshot doc = transaction.get(docRef);
+            if (!doc.exists()) {
+                throw new FirebaseFirestoreException("Entry " + entryId + " was deleted",
+                        FirebaseFirestoreException.Code.NOT_FOUND);
+            }
+            return writeEdit(docRef, edit, doc, transactionWrites(transaction));
+        }).addOnSuccessListener(merged -> {
+            copyInto(merged, updated);
+            onSuccess.run();
+        }).addOnFailureListener(e -> {
+            if (!isOffline(e)) {
+                onFailure.accept(e);
+                return;
+            }
+            FirestoreMeter.MeteredBatch batch = meter.batch(db);
+            JournalEntry merged = writeEdit(docRef, edit, null, batchWrites(batch));
+            copyInto(merged, updated);
+            batch.commit()
+                    .addOnSuccessListener(aVoid -> onSuccess.run())
+                    .addOnFailureListener(onFailure::accept);
+        });
+    }
+
+    private static boolean isOffline(Exception e) {
+        return e instanceof FirebaseFirestoreException
+                && ((FirebaseFirestoreException) e).getCode() == FirebaseFirestoreException.Code.UNAVAILABLE;
+    }
+
+    // What one save changed, fixed before the first transaction attempt so retries replay the same edit
+    private static class EntryEdit {
+        final JournalEntry original;
+        final JournalEntry local;
+        final String clock;
+        final List<String> changed = new ArrayList<>();
+        final List<String> addedTags = new ArrayList<>();
+        final List<String> removedTags = new ArrayList<>();
+
+        EntryEdit(JournalEntry original, JournalEntry updated, String clock) {
+            this.original = original;
+            this.clock = clock;
+            local = new JournalEntry(original.getDate(), updated.getNote(), updated.getMood());
+            local.setTitle(updated.getTitle());
+            local.setImagePath(updated.getImagePath());
+            local.setTags(updated.getTags() != null ? new ArrayList<>(updated.getTags()) : new ArrayList<>());
+
+            if (!Objects.equals(original.getTitle(), local.getTitle())) changed.add(CLOCK_TITLE);
+            if (!Objects.equals(original.getNote(), local.getNote()) || original.getChunkCount() > 0) {
+                changed.add(CLOCK_NOTE);
+            }
+            if (original.getMood() != local.getMood()) changed.add(CLOCK_MOOD);
+            if (!Objects.equals(original.getImagePath(), local.getImagePath())) changed.add(CLOCK_IMAGE);
+
+            List<String> before = original.getTags() != null ? original.getTags() : new ArrayList<>();
+            for (String tag : local.getTags()) {
+                if (!before.contains(tag)) addedTags.add(tag);
+            }
+            for (String tag : before) {
+                if (!local.getTags().contains(tag)) removedTags.add(tag);
+            }
+        }
+
+        // The local value goes in unless another device stamped the field later
+        boolean wins(String field, Map<String, String> storedClocks) {
+            return changed.contains(field) && HybridLogicalClock.isAfter(clock, storedClocks.get(field));
+        }
+    }
+
+    /**
+     * Writes the fields of edit that win against doc, the stored entry, and
+     * returns the entry they leave behind. Without doc the edit is compared to
+     * what was loaded and every changed field is written.
+     */
+    private JournalEntry writeEdit(DocumentReference docRef, EntryEdit edit, DocumentSnapshot doc, Writes writes) {
+        boolean blind = doc == null;
+        JournalEntry stored = blind ? edit.original : doc.toObject(JournalEntry.class);
+        Map<String, String> storedClocks = blind ? new HashMap<>() : clocksOf(doc);
+        for (String storedClock : storedClocks.values()) {
+            HybridLogicalClock.get().observe(storedClock);
+        }
+
+        String entryId = docRef.getId();
+        Date entryDate = edit.original.getDate();
+        JournalEntry merged = new JournalEntry();
+        copyInto(stored, merged);
+        merged.setId(entryId);
+        merged.setDate(entryDate);
+
+        Map<String, Object> changes = new HashMap<>();
+        Map<String, Object> clocks = new HashMap<>();
+        JournalEntry local = edit.local;
+
+        if (edit.wins(CLOCK_TITLE, storedClocks)) {
+            changes.put("title", local.getTitle());
+            clocks.put(CLOCK_TITLE, edit.clock);
+            merged.setTitle(local.getTitle());
+        }
+
+        if (edit.wins(CLOCK_IMAGE, storedClocks)) {
+            long imageVersion = local.getImagePath() != null ? System.currentTimeMillis() : 0;
+            changes.put("imagePath", local.getImagePath());
+            changes.put("thumbnail", local.getImagePath());
+            changes.put("imageVersion", imageVersion);
+            clocks.put(CLOCK_IMAGE, edit.clock);
+            imageRefDelta(writes, stored.getImagePath(), -1);
+            imageRefDelta(writes, local.getImagePath(), 1);
+            merged.setImagePath(local.getImagePath());
+            merged.setImageVersion(imageVersion);
+        }
+
+        if (edit.wins(CLOCK_NOTE, storedClocks)
+                && writeNote(docRef, stored, local.getNote(), changes, merged, writes)) {
+            clocks.put(CLOCK_NOTE, edit.clock);
+        }
+
+        if (edit.wins(CLOCK_MOOD, storedClocks) && stored.getMood() != local.getMood()) {
+            changes.put("mood", local.getMood());
+            clocks.put(CLOCK_MOOD, edit.clock);
+            Map<String, Object> moodDelta = new HashMap<>();
+            moodDelta.put(String.valueOf(stored.getMood()), FieldValue.increment(-1));
+            moodDelta.put(String.valueOf(local.getMood()), FieldValue.increment(1));
+            Map<String, Object> statsData = new HashMap<>();
+            statsData.put("moodCounts", moodDelta);
+            writes.set(getStatsRef(), statsData);
+            if (entryDate != null) {
+                writes.set(getDayIndexRef(JournalMonthIndex.monthKey(entryDate)),
+                        dayIndexDelta(entryDate, entryId, local.getMood()));
+            }
+            merged.setMood(local.getMood());
+        }
+
+        if (!edit.addedTags.isEmpty() || !edit.removedTags.isEmpty()) {
+            if (blind) {
+                writeTagsBlind(docRef, edit, writes);
+                merged.setTags(local.getTags());
+            } else {
+                JournalTagSet tagSet = JournalTagSet.fromStored(stored.getTags(), doc.get(JournalTagSet.FIELD));
+                for (String tagClock : tagSet.allClocks()) {
+                    HybridLogicalClock.get().observe(tagClock);
+                }
+                tagSet.apply(edit.addedTags, edit.removedTags, edit.clock);
+                List<String> tags = tagSet.members(local.getTags());
+                changes.put("tags", tags);
+                changes.put(JournalTagSet.FIELD, tagSet.toData());
+                merged.setTags(tags);
+            }
+        }
+
+        if (!changes.isEmpty()) {
+            changes.put(CLOCKS_FIELD, clocks);
+            // Lets the warm-up job fetch only what changed since its last run
+            changes.put("updatedAt", FieldValue.serverTimestamp());
+            writes.set(docRef, changes);
+        }
+        return merged;
+    }
+
+    // Writes the note, chunked if long, against the stored chunks; false when nothing differs
+    private boolean writeNote(DocumentReference docRef, JournalEntry stored, String note,
+                              Map<String, Object> changes, JournalEntry merged, Writes writes) {
+        List<String> oldHashes = stored.getChunkCount() > 0 && stored.getChunkHashes() != null
+                ? stored.getChunkHashes() : new ArrayList<>();
+        merged.setNote(note);
+
+        if (JournalNoteChunks.needsChunking(note)) {
+            List<String> chunks = JournalNoteChunks.split(note);
+            List<String> newHashes = JournalNoteChunks.hashes(chunks);
+            merged.setChunkCount(chunks.size());
+            merged.setChunkHashes(newHashes);
+            if (newHashes.equals(oldHashes)) return false;
+
+            for (int i = 0; i < chunks.size(); i++) {
+                if (i >= oldHashes.size() || !oldHashes.get(i).equals(newHashes.get(i))) {
+                    writes.set(chunkRef(docRef, i), chunkData(chunks.get(i), i));
+                }
+            }
+            for (int i = chunks.size(); i < oldHashes.size(); i++) {
+                writes.delete(chunkRef(docRef, i));
+            }
+            putChunkFields(changes, merged, chunks);
+            changes.put("preview", JournalEntrySummary.makePreview(note));
+            return true;
+        }
+
+        merged.setChunkCount(0);
+        merged.setChunkHashes(null);
+        if (oldHashes.isEmpty() && Objects.equals(stored.getNote(), note)) return false;
+
+        for (int i = 0; i < oldHashes.size(); i++) {
+            writes.delete(chunkRef(docRef, i));
+        }
+        changes.put("note", note);
+        changes.put("preview", JournalEntrySummary.makePreview(note));
+        if (!oldHashes.isEmpty()) {
+            changes.put("chunkCount", FieldValue.delete());
+            changes.put("chunkHashes", FieldValue.delete());
+        }
+        return true;
+    }
+
+    // Array operations, so tags other devices added or removed meanwhile are kept
+    private void writeTagsBlind(DocumentReference docRef, EntryEdit edit, Writes writes) {
+        Map<String, Object> tagClocks = new HashMap<>();
+        for (String tag : edit.addedTags) {
+            tagClocks.put(tag, Collections.singletonMap(JournalTagSet.ADDED, edit.clock));
+        }
+        for (String tag : edit.removedTags) {
+            tagClocks.put(tag, Collections.singletonMap(JournalTagSet.REMOVED, edit.clock));
+        }
+        Map<String, Object> clockData = new HashMap<>();
+        clockData.put(JournalTagSet.FIELD, tagClocks);
+        writes.set(docRef, clockData);
+
+        if (!edit.removedTags.isEmpty()) {
+            writes.set(docRef, Collections.<String, Object>singletonMap("tags",
+                    FieldValue.arrayRemove(edit.removedTags.toArray())));
+        }
+        if (!edit.addedTags.isEmpty()) {
+            writes.set(docRef, Collections.<String, Object>singletonMap("tags",
+                    FieldValue.arrayUnion(edit.addedTags.toArray())));
+        }
+    }
+
+    private static Map<String, String> clocksOf(DocumentSnapshot doc) {
+        Map<String, String> clocks = new HashMap<>();
+        Object raw = doc.get(CLOCKS_FIELD);
+        if (raw instanceof Map) {
+            for (Map.Entry<?, ?> field : ((Map<?, ?>) raw).entrySet()) {
+                if (field.getValue() instanceof String) {
+                    clocks.put(String.valueOf(field.getKey()), (String) field.getValue());
+                }
+            }
+        }
+        return clocks;
+    }
+
+    private static void copyInto(JournalEntry from, JournalEntry to) {
+        to.setId(from.getId());
+        to.setDate(from.getDate());
+        to.setTitle(from.getTitle());
+        to.setNote(from.getNote());
+        to.setMood(from.getMood());
+        to.setTags(from.getTags() != null ? new ArrayList<>(from.getTags()) : new ArrayList<>());
+        to.setImagePath(from.getImagePath());
+        to.setImageVersion(from.getImageVersion());
+        to.setChunkCount(from.getChunkCount());
+        to.setChunkHashes(from.getChunkHashes());
+    }
+
+    // An update's writes, which go into a transaction or, offline, a batch; every set merges
+    private interface Writes {
+        void set(DocumentReference ref, Map<String, Object> data);
+
+        void delete(DocumentReference ref);
+    }
+
+    private static Writes batchWrites(FirestoreMeter.MeteredBatch batch) {
+        return new Writes() {
+            @Override
+            public void set(DocumentReference ref, Map<String, Object> data) {
+                batch.set(ref, data, SetOptions.merge());
+            }
+
+            @Override
+            public void delete(DocumentReference ref) {
+                batch.delete(ref);
+            }
+        };
+    }
+
+    private static Writes transactionWrites(FirestoreMeter.MeteredTransaction transaction) {
+        return new Writes() {
+            @Override
+            public void set(DocumentReference ref, Map<String, Object> data) {
+                transaction.set(ref, data, SetOptions.merge());
+            }
+
+            @Override
+            public void delete(DocumentReference ref) {
+                transaction.delete(ref);
+            }
+        };
+    }
+
+    private DocumentReference chunkRef(DocumentReference entryRef, int index) {
+        return entryRef.collection("chunks").document(JournalNoteChunks.chunkId(index));
+    }
+
+    private Map<String, Object> chunkData(String text, int index) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("index", index);
+        data.put("text", text);
+        return data;
+    }
+
+    private void putChunkFields(Map<String, Object> entryMap, JournalEntry entry, List<String> chunks) {
+        List<String> hashes = JournalNoteChunks.hashes(chunks);
+        entry.setChunkCount(chunks.size());
+        entry.setChunkHashes(hashes);
+        entryMap.put("note", JournalEntrySummary.makePreview(entry.getNote()));
+        entryMap.put("chunkCount", chunks.size());
+        entryMap.put("chunkHashes", hashes);
+    }
+
+    @Override
+    public void deleteEntry(String entryId, JournalEntrySummary known, Runnable onSuccess,
+                            Consumer<Exception> onFailure) {
+        if (!signedIn(onFailure)) return;
+
+        if (known != null) {
+            commitDelete(entryId, known, onSuccess, onFailure);
+            return;
+        }
+
+        // Not known; read the mood and date first so the counters and day index stay exact
+        meter.document(getUserEntriesRef().document(entryId).get())
+                .addOnSuccessListener(doc -> commitDelete(entryId,
+                        doc.exists() ? JournalEntrySummary.fromSnapshot(doc) : null, onSuccess, onFailure))
+                .addOnFailureListener(e -> commitDelete(entryId, null, onSuccess, onFailure));
+    }
+
+    private void commitDelete(String entryId, JournalEntrySummary known, Runnable onSuccess,
+                              Consumer<Exception> onFailure) {
+        DocumentReference docRef = getUserEntriesRef().document(entryId);
+        FirestoreMeter.MeteredBatch batch = meter.batch(db);
+        batch.delete(docRef);
+        if (known != null) {
+            for (int i = 0; i < known.getChunkCount(); i++) {
+                batch.delete(chunkRef(docRef, i));
+            }
+            batch.set(getStatsRef(), statsDelta(-1, known.getMood()), SetOptions.merge());
+            imageRefDelta(batch, known.getThumbnail(), -1);
+            if (known.getDate() != null) {
+                batch.set(getDayIndexRef(JournalMonthIndex.monthKey(known.getDate())),
+                        dayIndexDelta(known.getDate(), entryId, FieldValue.delete()), SetOptions.merge());
+            }
+        }
+
+        batch.commit()
+                .addOnSuccessListener(aVoid -> onSuccess.run())
+                .addOnFailureListener(onFailure::accept);
+    }
+
+    // Each batch carries the counter, day index and image deltas of its own entries, so it stands alone
+    @Override
+    public void deleteEntries(List<JournalEntrySummary> entries, Consumer<List<String>> onChunkCommitted,
+                              Runnable onSuccess, Consumer<Exception> onFailure) {
+        if (!signedIn(onFailure)) return;
+
+        List<Task<Void>> commits = new ArrayList<>();
+        DeleteBatch batch = new DeleteBatch();
+        for (JournalEntrySummary entry : entries) {
+            if (!batch.fits(entry)) {
+                commits.add(batch.commit(onChunkCommitted));
+                batch = new DeleteBatch();
+            }
+            batch.add(entry);
+        }
+        if (!batch.isEmpty()) {
+            commits.add(batch.commit(onChunkCommitted));
+        }
+        Tasks.whenAll(commits)
+                .addOnSuccessListener(aVoid -> onSuccess.run())
+                .addOnFailureListener(onFailure::accept);
+    }
+
+    private class DeleteBatch {
+        private final FirestoreMeter.MeteredBatch batch = meter.batch(db);
+        private final Map<Integer, Integer> moodDeltas = new HashMap<>();
+        private final Map<String, Map<String, Object>> daysByMonth = new HashMap<>();
+        private final Map<String, Integer> imageDeltas = new HashMap<>();
+        private final List<String> ids = new ArrayList<>();
+        private int writes;
+
+        boolean isEmpty() {
+            return ids.isEmpty();
+        }
+
+        // Room for the entry, its chunks, and a possible new month and image delta, besides the stats write
+        boolean fits(JournalEntrySummary entry) {
+            int pending = writes + 1 + daysByMonth.size() + imageDeltas.size();
+            return isEmpty() || pending + 1 + entry.getChunkCount() + 2 <= MAX_BATCH_WRITES;
+        }
+
+        void add(JournalEntrySummary entry) {
+            DocumentReference docRef = getUserEntriesRef().document(entry.getId());
+            batch.delete(docRef);
+            for (int i = 0; i < entry.getChunkCount(); i++) {
+                batch.delete(chunkRef(docRef, i));
+            }
+            writes += 1 + entry.getChunkCount();
+            ids.add(entry.getId());
+
+            moodDeltas.merge(entry.getMood(), 1, Integer::sum);
+            if (entry.getDate() != null) {
+                Map<String, Object> days = daysByMonth.get(JournalMonthIndex.monthKey(entry.getDate()));
+                if (days == null) {
+                    days = new HashMap<>();
+                    daysByMonth.put(JournalMonthIndex.monthKey(entry.getDate()), days);
+                }
+                String day = String.valueOf(JournalMonthIndex.dayOfMonth(entry.getDate()));
+                @SuppressWarnings("unchecked")
+                Map<String, Object> dayMap = (Map<String, Object>) days.get(day);
+                if (dayMap == null) {
+                    dayMap = new HashMap<>();
+                    days.put(day, dayMap);
+                }
+                dayMap.put(entry.getId(), FieldValue.delete());
+            }
+            if (JournalImageStore.isRef(entry.getThumbnail())) {
+                imageDeltas.merge(entry.getThumbnail(), 1, Integer::sum);
+            }
+        }
+
+        Task<Void> commit(Consumer<List<String>> onCommitted) {
+            Map<String, Object> moods = new HashMap<>();
+            for (Map.Entry<Integer, Integer> e : moodDeltas.entrySet()) {
+                moods.put(String.valueOf(e.getKey()), FieldValue.increment(-e.getValue()));
+            }
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("entryCount", FieldValue.increment(-ids.size()));
+            stats.put("moodCounts", moods);
+            batch.set(getStatsRef(), stats, SetOptions.merge());
+
+            for (Map.Entry<String, Map<String, Object>> month : daysByMonth.entrySet()) {
+                Map<String, Object> data = new HashMap<>();
+                data.put("days", month.getValue());
+                batch.set(getDayIndexRef(month.getKey()), data, SetOptions.merge());
+            }
+            for (Map.Entry<String, Integer> image : imageDeltas.entrySet()) {
+                imageRefDelta(batch, image.getKey(), -image.getValue());
+            }
+            return batch.commit().addOnSuccessListener(aVoid -> onCommitted.accept(ids));
+        }
+    }
+
+    // Batches are committed in parallel, so 1000 entries take two round trips
+    @Override
+    public void updateEntryTags(List<String> entryIds, String tag, boolean add,
+                                Consumer<List<String>> onChunkCommitted, Runnable onSuccess,
+                                Consumer<Exception> onFailure) {
+        if (!signedIn(onFailure)) return;
+
+        FieldValue change = add ? FieldValue.arrayUnion(tag) : FieldValue.arrayRemove(tag);
+        FieldPath tagClock = FieldPath.of(JournalTagSet.FIELD, tag, add ? JournalTagSet.ADDED : JournalTagSet.REMOVED);
+        String clock = HybridLogicalClock.get().now();
+        List<Task<Void>> commits = new ArrayList<>();
+        for (int from = 0; from < entryIds.size(); from += MAX_BATCH_WRITES) {
+            List<String> chunk = new ArrayList<>(entryIds.subList(from, Math.min(entryIds.size(), from + MAX_BATCH_WRITES)));
+            FirestoreMeter.MeteredBatch batch = meter.batch(db);
+            for (String entryId : chunk) {
+                batch.update(getUserEntriesRef().document(entryId), FieldPath.of("tags"), change,
+                        FieldPath.of("updatedAt"), FieldValue.serverTimestamp(), tagClock, clock);
+            }
+            commits.add(batch.commit().addOnSuccessListener(aVoid -> onChunkCommitted.accept(chunk)));
+        }
+        Tasks.whenAll(commits)
+                .addOnSuccessListener(aVoid -> onSuccess.run())
+                .addOnFailureListener(onFailure::accept);
+    }
+
+    // Counts entries per stored image so JournalImageStore can collect blobs nothing points at
+    private void imageRefDelta(FirestoreMeter.MeteredBatch batch, String imagePath, int delta) {
+        imageRefDelta(batchWrites(batch), imagePath, delta);
+    }
+
+    private void imageRefDelta(Writes writes, String imagePath, int delta) {
+        if (!JournalImageStore.isRef(imagePath)) return;
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("refs", FieldValue.increment(delta));
+        if (delta < 0) {
+            data.put("releasedAt", FieldValue.serverTimestamp());
+        }
+        writes.set(JournalImageStore.refCountsRef(db, uid).document(JournalImageStore.hashOf(imagePath)), data);
+    }
+
+    private Map<String, Object> dayIndexDelta(Date date, String entryId, Object value) {
+        Map<String, Object> entryMap = new HashMap<>();
+        entryMap.put(entryId, value);
+
+        Map<String, Object> dayMap = new HashMap<>();
+        dayMap.put(String.valueOf(JournalMonthIndex.dayOfMonth(date)), entryMap);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("days", dayMap);
+        return data;
+    }
+
+    private Map<String, Object> statsDelta(int delta, int mood) {
+        Map<String, Object> moodDelta = new HashMap<>();
+        moodDelta.put(String.valueOf(mood), FieldValue.increment(delta));
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("entryCount", FieldValue.increment(delta));
+        data.put("moodCounts", moodDelta);
+        return data;
+    }
+
+    @Override
+    public void loadTags(Consumer<List<String>> onSuccess, Consumer<Exception> onFailure) {
+        if (!signedIn(onFailure)) return;
+
+        meter.document(getMetaRef().document("tags").get())
+                .addOnSuccessListener(doc -> {
+                    List<String> tags = new ArrayList<>();
+                    if (doc.exists() && doc.get("tags") instanceof List) {
+                        for (Object tag : (List<?>) doc.get("tags")) {
+                            tags.add(String.valueOf(tag));
+                        }
+                    }
+                    onSuccess.accept(tags);
+                })
+                .addOnFailureListener(onFailure::accept);
+    }
+
+    @Override
+    public void saveTags(List<String> tags, Runnable onSuccess, Consumer<Exception> onFailure) {
+        if (!signedIn(onFailure)) return;
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("tags", tags);
+        meter.write(getMetaRef().document("tags").set(data))
+                .addOnSuccessListener(aVoid -> onSuccess.run())
+                .addOnFailureListener(onFailure::accept);
+    }
+
+    // Only entries carrying the tag are read, and the removal is batched
+    @Override
+    public void removeTagFromEntries(String tag, Consumer<Integer> onSuccess, Consumer<Exception> onFailure) {
+        if (!signedIn(onFailure)) return;
+
+        meter.query(getUserEntriesRef().whereArrayContains("tags", tag).get())
+                .addOnSuccessListener(snapshot -> {
+                    FieldPath tagClock = FieldPath.of(JournalTagSet.FIELD, tag, JournalTagSet.REMOVED);
+                    String clock = HybridLogicalClock.get().now();
+                    List<Task<Void>> commits = new ArrayList<>();
+                    FirestoreMeter.MeteredBatch batch = meter.batch(db);
+                    for (QueryDocumentSnapshot doc : snapshot) {
+                        batch.update(doc.getReference(), FieldPath.of("tags"), FieldValue.arrayRemove(tag),
+                                FieldPath.of("updatedAt"), FieldValue.serverTimestamp(), tagClock, clock);
+                        if (batch.size() == MAX_BATCH_WRITES) {
+                            commits.add(batch.commit());
+                            batch = meter.batch(db);
+                        }
+                    }
+                    if (batch.size() > 0) {
+                        commits.add(batch.commit());
+                    }
+                    // Archived entries carry tags too; each archive listing the tag is rewritten once
+                    Tasks.whenAll(commits)
+                            .onSuccessTask(aVoid -> archiver.removeTag(tag))
+                            .addOnSuccessListener(archived -> onSuccess.accept(snapshot.size() + archived))
+                            .addOnFailureListener(onFailure::accept);
+                })
+                .addOnFailureListener(onFailure::accept);
+    }
+
+    @Override
+    public void loadStats(Consumer<JournalStats> onSuccess, Consumer<Exception> onFailure) {
+        if (!signedIn(onFailure)) return;
+
+        // A cached copy, when there is one, shows immediately; the server answer follows
+        getStatsRef().get(Source.CACHE)
+                .addOnSuccessListener(doc -> {
+                    if (JournalStats.isInitialized(doc)) {
+                        onSuccess.accept(JournalStats.fromSnapshot(doc));
+                    }
+                })
+                .addOnCompleteListener(cacheTask -> meter.document(getStatsRef().get(Source.SERVER))
+                        .addOnSuccessListener(doc -> {
+                            if (!JournalStats.isInitialized(doc)) {
+                                rebuildStatsFromAggregates(onSuccess, onFailure);
+                                return;
+                            }
+                            onSuccess.accept(JournalStats.fromSnapshot(doc));
+                        })
+                        .addOnFailureListener(onFailure::accept));
+    }
+
+    private void rebuildStatsFromAggregates(Consumer<JournalStats> onSuccess, Consumer<Exception> onFailure) {
+        seedStats(MAX_SEED_ATTEMPTS)
+                .addOnSuccessListener(onSuccess::accept)
+                .addOnFailureListener(onFailure::accept);
+    }
+
+    /**
+     * Seeds the counters for journals written before the stats document existed, and the streak
+     * from the newest entries. Aggregate queries are billed per 1000 index entries, not per document.
+     * The counts run between two reads of the counters and the archive index; if a save, delete or
+     * compaction moved either meanwhile, the counts may miss it and the seed starts over. The write
+     * is a transaction on the second read, so nothing lands between it and the commit either.
+     */
+    private Task<JournalStats> seedStats(int attempts) {
+        DocumentReference statsRef = getStatsRef();
+        DocumentReference archivesRef = getMetaRef().document("archives");
+        Task<DocumentSnapshot> statsBefore = meter.document(statsRef.get(Source.SERVER));
+        Task<DocumentSnapshot> archivesBefore = meter.document(archivesRef.get(Source.SERVER));
+
+        return Tasks.whenAllSuccess(statsBefore, archivesBefore).onSuccessTask(before -> {
+            if (JournalStats.isInitialized(statsBefore.getResult())) {
+                return Tasks.forResult(JournalStats.fromSnapshot(statsBefore.getResult()));
+            }
+
+            CollectionReference ref = getUserEntriesRef();
+            List<Task<?>> tasks = new ArrayList<>();
+            tasks.add(meter.count(ref.count().get(AggregateSource.SERVER)));
+            for (int mood = 0; mood < MOOD_COUNT; mood++) {
+                tasks.add(meter.count(ref.whereEqualTo("mood", mood).count().get(AggregateSource.SERVER)));
+            }
+            tasks.add(meter.query(ref.orderBy("date", Query.Direction.DESCENDING).limit(STREAK_SEED_LIMIT)
+                    .get(Source.SERVER)));
+
+            return Tasks.whenAllSuccess(tasks).onSuccessTask(results -> meter.runTransaction(db, transaction -> {
+                DocumentSnapshot stats = transaction.get(statsRef);
+                DocumentSnapshot archives = transaction.get(archivesRef);
+                if (JournalStats.isInitialized(stats)) return JournalStats.fromSnapshot(stats);
+                if (!sameCounters(statsBefore.getResult(), stats)
+                        || !sameCounters(archivesBefore.getResult(), archives)) {
+                    return null;
+                }
+
+                // Archived entries left the live collection but still count
+                JournalArchiveIndex archived = JournalArchiveIndex.fromSnapshot(archives);
+                long total = ((AggregateQuerySnapshot) results.get(0)).getCount() + archived.getEntryCount();
+                Map<Integer, Integer> moods = new HashMap<>(archived.getMoodCounts());
+                for (int mood = 0; mood < MOOD_COUNT; mood++) {
+                    int live = (int) ((AggregateQuerySnapshot) results.get(mood + 1)).getCount();
+                    moods.merge(mood, live, Integer::sum);
+                }
+
+                QuerySnapshot recent = (QuerySnapshot) results.get(MOOD_COUNT + 1);
+                long[] millis = new long[recent.size()];
+                int dated = 0;
+                for (QueryDocumentSnapshot doc : recent) {
+                    Date date = doc.getDate("date");
+                    if (date != null) millis[dated++] = date.getTime();
+                }
+                // The query is newest first
+                Date last = dated > 0 ? new Date(millis[0]) : null;
+                int streak = JournalStats.streakOf(Arrays.copyOf(millis, dated));
+
+                Map<String, Object> data = new HashMap<>();
+                data.put("entryCount", total);
+                data.put("moodCounts", moodCountsData(moods));
+                data.put("streak", streak);
+                data.put("lastEntryDate", last);
+                data.put("lastEntryDay", last != null ? JournalStats.dayKey(last) : null);
+                data.put(JournalStats.COUNTS_SEEDED, true);
+                transaction.set(statsRef, data, SetOptions.merge());
+                return new JournalStats((int) total, streak, last, moods);
+            })).onSuccessTask(stats -> {
+                if (stats != null) return Tasks.forResult(stats);
+                if (attempts > 1) return seedStats(attempts - 1);
+                return Tasks.forException(new IllegalStateException("Stats kept changing while being counted"));
+            });
+        });
+    }
+
+    // Compares the counters of the stats document, or the totals of the archive index
+    private static boolean sameCounters(DocumentSnapshot before, DocumentSnapshot after) {
+        if (before.exists() != after.exists()) return false;
+        if (!before.exists()) return true;
+        return Objects.equals(before.get("entryCount"), after.get("entryCount"))
+                && Objects.equals(before.get("moodCounts"), after.get("moodCounts"))
+                && Objects.equals(before.get(JournalArchiveIndex.MONTHS), after.get(JournalArchiveIndex.MONTHS));
+    }
+
+    @Override
+    public void saveStats(JournalStats stats, Runnable onSuccess, Consumer<Exception> onFailure) {
+        if (!signedIn(onFailure)) return;
+
+        Date last = stats.getLastEntryDate();
+        Map<String, Object> data = new HashMap<>();
+        data.put("entryCount", stats.getEntryCount());
+        data.put("moodCounts", moodCountsData(stats.getMoodCountsByValue()));
+        data.put("streak", stats.getStreak());
+        data.put("lastEntryDate", last);
+        data.put("lastEntryDay", last != null ? JournalStats.dayKey(last) : null);
+        meter.write(getStatsRef().set(data, SetOptions.merge()))
+                .addOnSuccessListener(aVoid -> onSuccess.run())
+                .addOnFailureListener(onFailure::accept);
+    }
+
+    private Map<String, Object> moodCountsData(Map<Integer, Integer> moods) {
+        Map<String, Object> moodCounts = new HashMap<>();
+        for (Map.Entry<Integer, Integer> e : moods.entrySet()) {
+            moodCounts.put(String.valueOf(e.getKey()), e.getValue());
+        }
+        return moodCounts;
+    }
+
+    // One small document per month instead of scanning the whole journal
+    @Override
+    public void loadMonthIndex(String monthKey, Consumer<JournalMonthIndex> onSuccess, Consumer<Exception> onFailure) {
+        if (!signedIn(onFailure)) return;
+
+        meter.document(getDayIndexRef(monthKey).get())
+                .addOnSuccessListener(doc -> onSuccess.accept(JournalMonthIndex.fromSnapshot(monthKey, doc)))
+                .addOnFailureListener(onFailure::accept);
+    }
+
+    @Override
+    public void saveMonthIndexes(Collection<JournalMonthIndex> indexes, Runnable onSuccess,
+                                 Consumer<Exception> onFailure) {
+        if (!signedIn(onFailure)) return;
+
+        List<Task<Void>> commits = new ArrayList<>();
+        FirestoreMeter.MeteredBatch batch = meter.batch(db);
+        for (JournalMonthIndex index : indexes) {
+            Map<String, Object> data = new HashMap<>();
+            data.put("days", index.toDays());
+            batch.set(getDayIndexRef(index.getMonthKey()), data);
+
+            if (batch.size() == MAX_BATCH_WRITES) {
+                commits.add(batch.commit());
+                batch = meter.batch(db);
+            }
+        }
+        if (batch.size() > 0) {
+            commits.add(batch.commit());
+        }
+        Tasks.whenAll(commits)
+                .addOnSuccessListener(aVoid -> onSuccess.run())
+                .addOnFailureListener(onFailure::accept);
+    }
+
+    @Override
+    public void loadArchiveIndex(Consumer<JournalArchiveIndex> onSuccess, Consumer<Exception> onFailure) {
+        if (!signedIn(onFailure)) return;
+
+        archiver.loadIndex()
+                .addOnSuccessListener(onSuccess::accept)
+                .addOnFailureListener(onFailure::accept);
+    }
+
+    @Override
+    public void loadArchive(String monthKey, Consumer<List<JournalEntry>> onSuccess, Consumer<Exception> onFailure) {
+        if (!signedIn(onFailure)) return;
+
+        archiver.load(monthKey)
+                .addOnSuccessListener(onSuccess::accept)
+                .addOnFailureListener(onFailure::accept);
+    }
+
+    @Override
+    public void restoreArchived(List<JournalEntrySummary> entries, Runnable onSuccess, Consumer<Exception> onFailure) {
+        if (!signedIn(onFailure)) return;
+
+        archiver.restore(entries)
+                .addOnSuccessListener(aVoid -> onSuccess.run())
+                .addOnFailureListener(onFailure::accept);
+    }
+}
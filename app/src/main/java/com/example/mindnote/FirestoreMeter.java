@@ -0,0 +1,163 @@
+package com.example.mindnote;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.AggregateQuerySnapshot;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the Firestore round trips FirestoreJournalRepository and JournalArchiver
+ * make, with the documents each one read and wrote, taken from the snapshots the
+ * server returned and the writes each commit carried. Reads follow billing: a
+ * query pays for every document it returned and at least one, a count query one
+ * per 1000 index entries, and answers from the local cache nothing. The app
+ * runs with NONE; the debug budget check and load test pass a listener.
+ */
+public class FirestoreMeter {
+
+    public interface Listener {
+        // Called on the thread the answer arrived on, the main thread except inside transactions
+        void onRoundTrip(int documentsRead, int documentsWritten);
+    }
+
+    public static final FirestoreMeter NONE = new FirestoreMeter((documentsRead, documentsWritten) -> { });
+
+    private static final int INDEX_ENTRIES_PER_READ = 1000;
+
+    private final Listener listener;
+
+    public FirestoreMeter(Listener listener) {
+        this.listener = listener;
+    }
+
+    Task<QuerySnapshot> query(Task<QuerySnapshot> task) {
+        return task.addOnSuccessListener(snapshot -> {
+            if (!snapshot.getMetadata().isFromCache()) {
+                listener.onRoundTrip(Math.max(1, snapshot.size()), 0);
+            }
+        });
+    }
+
+    // A missing document is billed like one that exists
+    Task<DocumentSnapshot> document(Task<DocumentSnapshot> task) {
+        return task.addOnSuccessListener(doc -> {
+            if (!doc.getMetadata().isFromCache()) listener.onRoundTrip(1, 0);
+        });
+    }
+
+    Task<AggregateQuerySnapshot> count(Task<AggregateQuerySnapshot> task) {
+        return task.addOnSuccessListener(snapshot -> listener.onRoundTrip(
+                (int) Math.max(1, (snapshot.getCount() + INDEX_ENTRIES_PER_READ - 1) / INDEX_ENTRIES_PER_READ), 0));
+    }
+
+    // A single document set outside a batch
+    Task<Void> write(Task<Void> task) {
+        return task.addOnSuccessListener(aVoid -> listener.onRoundTrip(0, 1));
+    }
+
+    MeteredBatch batch(FirebaseFirestore db) {
+        return new MeteredBatch(db.batch());
+    }
+
+    // Every attempt's reads count, as the server bills them; only the attempt that commits writes
+    <T> Task<T> runTransaction(FirebaseFirestore db, TransactionBody<T> body) {
+        AtomicInteger committed = new AtomicInteger();
+        return db.runTransaction(transaction -> {
+            MeteredTransaction metered = new MeteredTransaction(transaction);
+            T result = body.apply(metered);
+            committed.set(metered.writes);
+            return result;
+        }).addOnSuccessListener(result -> listener.onRoundTrip(0, committed.get()));
+    }
+
+    interface TransactionBody<T> {
+        T apply(MeteredTransaction transaction) throws FirebaseFirestoreException;
+    }
+
+    // A WriteBatch that knows how many writes its commit carries
+    class MeteredBatch {
+        private final WriteBatch batch;
+        private int writes;
+
+        private MeteredBatch(WriteBatch batch) {
+            this.batch = batch;
+        }
+
+        int size() {
+            return writes;
+        }
+
+        MeteredBatch set(DocumentReference ref, Map<String, Object> data) {
+            batch.set(ref, data);
+            writes++;
+            return this;
+        }
+
+        MeteredBatch set(DocumentReference ref, Map<String, Object> data, SetOptions options) {
+            batch.set(ref, data, options);
+            writes++;
+            return this;
+        }
+
+        MeteredBatch update(DocumentReference ref, FieldPath field, Object value, Object... moreFieldsAndValues) {
+            batch.update(ref, field, value, moreFieldsAndValues);
+            writes++;
+            return this;
+        }
+
+        MeteredBatch delete(DocumentReference ref) {
+            batch.delete(ref);
+            writes++;
+            return this;
+        }
+
+        Task<Void> commit() {
+            int committed = writes;
+            return batch.commit().addOnSuccessListener(aVoid -> listener.onRoundTrip(0, committed));
+        }
+    }
+
+    // Each get inside a transaction is a round trip of its own
+    class MeteredTransaction {
+        private final Transaction transaction;
+        private int writes;
+
+        private MeteredTransaction(Transaction transaction) {
+            this.transaction = transaction;
+        }
+
+        DocumentSnapshot get(DocumentReference ref) throws FirebaseFirestoreException {
+            DocumentSnapshot doc = transaction.get(ref);
+            listener.onRoundTrip(1, 0);
+            return doc;
+        }
+
+        MeteredTransaction set(DocumentReference ref, Map<String, Object> data) {
+            transaction.set(ref, data);
+            writes++;
+            return this;
+        }
+
+        MeteredTransaction set(DocumentReference ref, Map<String, Object> data, SetOptions options) {
+            transaction.set(ref, data, options);
+            writes++;
+            return this;
+        }
+
+        MeteredTransaction delete(DocumentReference ref) {
+            transaction.delete(ref);
+            writes++;
+            return this;
+        }
+    }
+}
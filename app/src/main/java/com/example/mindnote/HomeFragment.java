@@ -0,0 +1,89 @@
+package com.example.mindnote;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.android.material.button.MaterialButton;
+
+public class HomeFragment extends Fragment {
+
+    private static final int RECENT_ENTRY_COUNT = 3;
+
+    private TextView entriesCountText, streakCountText;
+    private RecyclerView recentEntriesRecyclerView;
+    private RecentEntriesAdapter recentEntriesAdapter;
+    private JournalViewModel viewModel;
+
+    public HomeFragment() {
+        super(R.layout.fragment_home);
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        viewModel = new ViewModelProvider(requireActivity()).get(JournalViewModel.class);
+
+        MaterialButton addEntryButton = view.findViewById(R.id.addEntryButton);
+        TextView viewAllButton = view.findViewById(R.id.viewAllButton);
+        entriesCountText = view.findViewById(R.id.entriesCountText);
+        streakCountText = view.findViewById(R.id.streakCountText);
+        recentEntriesRecyclerView = view.findViewById(R.id.recentEntriesRecyclerView);
+
+        recentEntriesAdapter = new RecentEntriesAdapter(requireContext());
+        FeedViews.attach(recentEntriesRecyclerView, recentEntriesAdapter);
+
+        addEntryButton.setOnClickListener(v ->
+                startActivity(new Intent(requireContext(), JournalActivity.class)));
+
+        viewAllButton.setOnClickListener(v ->
+                ((MainActivity) requireActivity()).selectTab(R.id.navigation_notes));
+
+        viewModel.getRecentEntries().observe(getViewLifecycleOwner(), recentEntriesAdapter::setEntries);
+        viewModel.getStats().observe(getViewLifecycleOwner(), this::showStats);
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        if (!isHidden()) refresh();
+    }
+
+    @Override
+    public void onHiddenChanged(boolean hidden) {
+        super.onHiddenChanged(hidden);
+        if (!hidden) refresh();
+    }
+
+    @Override
+    public void onDestroyView() {
+        FeedViews.release(recentEntriesRecyclerView);
+        super.onDestroyView();
+    }
+
+    private void refresh() {
+        viewModel.refreshRecentEntries(RECENT_ENTRY_COUNT);
+        viewModel.refreshStats();
+    }
+
+    private void showStats(JournalStats stats) {
+        int entryCount = stats.getEntryCount();
+        int streak = stats.getStreak();
+
+        entriesCountText.setText(entryCount + " entries");
+
+        if (streak >= 3){
+            streakCountText.setText("🔥 " + streak + " day streak");
+        } else {
+            streakCountText.setText(streak + " day streak");
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.mindnote;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+ * Hybrid logical clock for ordering edits made on different devices. A
+ * timestamp is a string of 13 digits of wall-clock millis, 5 of counter and
+ * a random node id, so plain string order is the clock order and two devices
+ * never produce equal timestamps. observe() moves the clock past timestamps
+ * read from the server, so a device with a slow wall clock still orders its
+ * next edit after everything it has seen.
+ */
+public final class HybridLogicalClock {
+
+    private static final int MAX_COUNTER = 99_999;
+    private static final HybridLogicalClock instance = new HybridLogicalClock(
+            String.format(Locale.US, "%08x", new Random().nextInt()), System::currentTimeMillis);
+
+    private final String node;
+    private final LongSupplier wallClock;
+    private long millis;
+    private int counter;
+
+    // Tests pass their own node id and wall clock; the app uses get()
+    HybridLogicalClock(String node, LongSupplier wallClock) {
+        this.node = node;
+        this.wallClock = wallClock;
+    }
+
+    public static HybridLogicalClock get() {
+        return instance;
+    }
+
+    public synchronized String now() {
+        long wall = wallClock.getAsLong();
+        if (wall > millis) {
+            millis = wall;
+            counter = 0;
+        } else if (++counter > MAX_COUNTER) {
+            millis++;
+            counter = 0;
+        }
+        return format(millis, counter);
+    }
+
+    public synchronized void observe(String timestamp) {
+        if (timestamp == null || timestamp.length() < 18) return;
+        long remoteMillis;
+        int remoteCounter;
+        try {
+            remoteMillis = Long.parseLong(timestamp.substring(0, 13));
+            remoteCounter = Integer.parseInt(timestamp.substring(13, 18));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        if (remoteMillis > millis || (remoteMillis == millis && remoteCounter > counter)) {
+            millis = remoteMillis;
+            counter = remoteCounter;
+        }
+    }
+
+    private String format(long millis, int counter) {
+        return String.format(Locale.US, "%013d%05d%s", millis, counter, node);
+    }
+
+    // True when a is later than b; a missing timestamp is older than any other
+    public static boolean isAfter(String a, String b) {
+        if (a == null) return false;
+        if (b == null) return true;
+        return a.compareTo(b) > 0;
+    }
+}
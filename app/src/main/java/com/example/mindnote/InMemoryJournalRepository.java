@@ -0,0 +1,219 @@
+package com.example.mindnote;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Plain-Java journal storage with no Android or Firebase dependencies, for
+ * JVM tests and benchmarks of JournalDataManager. Callbacks run synchronously
+ * on the calling thread. Stats and month indexes are derived on read.
+ */
+public class InMemoryJournalRepository implements JournalRepository {
+
+    private static final int MOOD_COUNT = 3;
+
+    private final Map<String, JournalEntry> entries = new LinkedHashMap<>();
+    private final List<String> tags = new ArrayList<>();
+    private long nextId = 1;
+
+    @Override
+    public synchronized void loadEntries(Consumer<List<JournalEntry>> onSuccess, Consumer<Exception> onFailure) {
+        List<JournalEntry> result = new ArrayList<>();
+        for (JournalEntry entry : newestFirst()) {
+            result.add(copy(entry));
+        }
+        onSuccess.accept(result);
+    }
+
+    @Override
+    public synchronized void loadSummaries(Consumer<List<JournalEntrySummary>> onSuccess,
+                                           Consumer<Exception> onFailure) {
+        List<JournalEntrySummary> result = new ArrayList<>();
+        for (JournalEntry entry : newestFirst()) {
+            result.add(JournalEntrySummary.fromEntry(entry));
+        }
+        onSuccess.accept(result);
+    }
+
+    @Override
+    public synchronized void loadRecentSummaries(int limit, Consumer<List<JournalEntrySummary>> onSuccess,
+                                                 Consumer<Exception> onFailure) {
+        List<JournalEntrySummary> result = new ArrayList<>();
+        for (JournalEntry entry : newestFirst()) {
+            if (result.size() == limit) break;
+            result.add(JournalEntrySummary.fromEntry(entry));
+        }
+        onSuccess.accept(result);
+    }
+
+    // The cursor is the offset of the next match
+    @Override
+    public synchronized void queryEntries(JournalQuery query, JournalPage after,
+                                          Consumer<JournalPage> onSuccess, Consumer<Exception> onFailure) {
+        int skip = after != null && after.getCursor() instanceof Integer ? (Integer) after.getCursor() : 0;
+        List<JournalEntrySummary> items = new ArrayList<>();
+        int matched = 0;
+        boolean hasMore = false;
+        for (JournalEntry entry : newestFirst()) {
+            if (!query.matches(entry)) continue;
+            if (matched++ < skip) continue;
+            if (items.size() == query.getPageSize()) {
+                hasMore = true;
+                break;
+            }
+            items.add(JournalEntrySummary.fromEntry(entry));
+        }
+        onSuccess.accept(new JournalPage(items, skip + items.size(), hasMore, false));
+    }
+
+    @Override
+    public synchronized void fetchEntry(String entryId, Consumer<JournalEntry> onSuccess,
+                                        Consumer<Exception> onFailure) {
+        JournalEntry entry = entries.get(entryId);
+        onSuccess.accept(entry != null ? copy(entry) : null);
+    }
+
+    @Override
+    public void loadNoteChunks(String entryId, int from, int count,
+                               Consumer<List<String>> onSuccess, Consumer<Exception> onFailure) {
+        onSuccess.accept(new ArrayList<>());
+    }
+
+    @Override
+    public synchronized void addEntry(JournalEntry entry, Runnable onSuccess, Consumer<Exception> onFailure) {
+        if (entry.getDate() == null) entry.setDate(new Date());
+        entry.setId("mem-" + nextId++);
+        entry.setImageVersion(entry.getImagePath() != null ? entry.getDate().getTime() : 0);
+        entries.put(entry.getId(), copy(entry));
+        onSuccess.run();
+    }
+
+    @Override
+    public synchronized void updateEntry(JournalEntry original, JournalEntry updated, Runnable onSuccess,
+                                         Consumer<Exception> onFailure) {
+        if (!entries.containsKey(original.getId())) {
+            onFailure.accept(new IllegalArgumentException("No entry " + original.getId()));
+            return;
+        }
+        updated.setId(original.getId());
+        updated.setDate(original.getDate());
+        entries.put(updated.getId(), copy(updated));
+        onSuccess.run();
+    }
+
+    @Override
+    public synchronized void deleteEntry(String entryId, JournalEntrySummary known, Runnable onSuccess,
+                                         Consumer<Exception> onFailure) {
+        entries.remove(entryId);
+        onSuccess.run();
+    }
+
+    @Override
+    public synchronized void deleteEntries(List<JournalEntrySummary> toDelete, Consumer<List<String>> onChunkCommitted,
+                                           Runnable onSuccess, Consumer<Exception> onFailure) {
+        List<String> ids = new ArrayList<>();
+        for (JournalEntrySummary entry : toDelete) {
+            entries.remove(entry.getId());
+            ids.add(entry.getId());
+        }
+        onChunkCommitted.accept(ids);
+        onSuccess.run();
+    }
+
+    @Override
+    public synchronized void updateEntryTags(List<String> entryIds, String tag, boolean add,
+                                             Consumer<List<String>> onChunkCommitted, Runnable onSuccess,
+                                             Consumer<Exception> onFailure) {
+        for (String entryId : entryIds) {
+            JournalEntry entry = entries.get(entryId);
+            if (entry == null) continue;
+            entry.getTags().remove(tag);
+            if (add) entry.getTags().add(tag);
+        }
+        onChunkCommitted.accept(new ArrayList<>(entryIds));
+        onSuccess.run();
+    }
+
+    @Override
+    public synchronized void loadTags(Consumer<List<String>> onSuccess, Consumer<Exception> onFailure) {
+        onSuccess.accept(new ArrayList<>(tags));
+    }
+
+    @Override
+    public synchronized void saveTags(List<String> newTags, Runnable onSuccess, Consumer<Exception> onFailure) {
+        tags.clear();
+        tags.addAll(newTags);
+        onSuccess.run();
+    }
+
+    @Override
+    public synchronized void removeTagFromEntries(String tag, Consumer<Integer> onSuccess,
+                                                  Consumer<Exception> onFailure) {
+        int removed = 0;
+        for (JournalEntry entry : entries.values()) {
+            if (entry.getTags() != null && entry.getTags().remove(tag)) removed++;
+        }
+        onSuccess.accept(removed);
+    }
+
+    @Override
+    public synchronized void loadStats(Consumer<JournalStats> onSuccess, Consumer<Exception> onFailure) {
+        onSuccess.accept(JournalStats.fromEntries(new ArrayList<>(entries.values()), MOOD_COUNT));
+    }
+
+    @Override
+    public void saveStats(JournalStats stats, Runnable onSuccess, Consumer<Exception> onFailure) {
+        onSuccess.run();
+    }
+
+    @Override
+    public synchronized void loadMonthIndex(String monthKey, Consumer<JournalMonthIndex> onSuccess,
+                                            Consumer<Exception> onFailure) {
+        JournalMonthIndex index = JournalMonthIndex.fromEntries(new ArrayList<>(entries.values())).get(monthKey);
+        onSuccess.accept(index != null ? index : new JournalMonthIndex(monthKey));
+    }
+
+    @Override
+    public void saveMonthIndexes(Collection<JournalMonthIndex> indexes, Runnable onSuccess,
+                                 Consumer<Exception> onFailure) {
+        onSuccess.run();
+    }
+
+    // Nothing to save on reads here, so nothing is ever archived
+    @Override
+    public void loadArchiveIndex(Consumer<JournalArchiveIndex> onSuccess, Consumer<Exception> onFailure) {
+        onSuccess.accept(JournalArchiveIndex.empty());
+    }
+
+    @Override
+    public void loadArchive(String monthKey, Consumer<List<JournalEntry>> onSuccess, Consumer<Exception> onFailure) {
+        onSuccess.accept(new ArrayList<>());
+    }
+
+    @Override
+    public void restoreArchived(List<JournalEntrySummary> entries, Runnable onSuccess, Consumer<Exception> onFailure) {
+        onSuccess.run();
+    }
+
+    private List<JournalEntry> newestFirst() {
+        List<JournalEntry> sorted = new ArrayList<>(entries.values());
+        sorted.sort((e1, e2) -> e2.getDate().compareTo(e1.getDate()));
+        return sorted;
+    }
+
+    // Callers never share instances with the store, as with a real backend
+    private static JournalEntry copy(JournalEntry entry) {
+        JournalEntry copy = new JournalEntry(entry.getDate(), entry.getNote(), entry.getMood());
+        copy.setId(entry.getId());
+        copy.setTitle(entry.getTitle());
+        copy.setTags(entry.getTags() != null ? new ArrayList<>(entry.getTags()) : new ArrayList<>());
+        copy.setImagePath(entry.getImagePath());
+        copy.setImageVersion(entry.getImageVersion());
+        return copy;
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.mindnote;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+import android.view.View;
+
+import androidx.metrics.performance.FrameData;
+import androidx.metrics.performance.JankStats;
+import androidx.metrics.performance.PerformanceMetricsState;
+import androidx.metrics.performance.StateInfo;
+
+import com.google.firebase.analytics.FirebaseAnalytics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Frame timing for every resumed activity, through JankStats. Frames are
+ * tagged with the screen set by setScreen plus any state set with setState,
+ * e.g. "notes:scrolling" or "journal:loadingTags", and counted per tag.
+ * reportMetrics flushes the counts since the last report as one analytics
+ * event per tag.
+ */
+public final class JankMetrics {
+
+    static final String KEY_SCREEN = "screen";
+
+    // Frame durations are bucketed per millisecond up to this, anything slower shares the last bucket
+    private static final int MAX_BUCKET_MS = 700;
+    // Keeps each flush to a handful of events; tags with the most janky frames go first
+    private static final int MAX_REPORTED_TAGS = 10;
+
+    private static final Map<String, TagStats> stats = new HashMap<>();
+
+    private static final class TagStats {
+        final int[] durations = new int[MAX_BUCKET_MS + 1];
+        long frames;
+        long janky;
+
+        void add(long durationNanos, boolean jank) {
+            frames++;
+            if (jank) janky++;
+            durations[(int) Math.min(durationNanos / 1_000_000, MAX_BUCKET_MS)]++;
+        }
+
+        int percentileMs(double percentile) {
+            long target = (long) Math.ceil(frames * percentile);
+            long seen = 0;
+            for (int ms = 0; ms < durations.length; ms++) {
+                seen += durations[ms];
+                if (seen >= target) return ms;
+            }
+            return MAX_BUCKET_MS;
+        }
+    }
+
+    private JankMetrics() {}
+
+    // Starts JankStats for each activity while it is resumed
+    public static void install(Application app) {
+        app.registerActivityLifecycleCallbacks(new Application.ActivityLifecycleCallbacks() {
+            private final Map<Activity, JankStats> tracked = new WeakHashMap<>();
+
+            @Override
+            public void onActivityResumed(Activity activity) {
+                JankStats jankStats = tracked.get(activity);
+                if (jankStats == null) {
+                    jankStats = JankStats.createAndTrack(activity.getWindow(), JankMetrics::onFrame);
+                    tracked.put(activity, jankStats);
+                }
+                jankStats.setTrackingEnabled(true);
+            }
+
+            @Override
+            public void onActivityPaused(Activity activity) {
+                JankStats jankStats = tracked.get(activity);
+                if (jankStats != null) jankStats.setTrackingEnabled(false);
+            }
+
+            @Override
+            public void onActivityDestroyed(Activity activity) {
+                tracked.remove(activity);
+            }
+
+            @Override public void onActivityCreated(Activity activity, Bundle savedInstanceState) {}
+            @Override public void onActivityStarted(Activity activity) {}
+            @Override public void onActivityStopped(Activity activity) {}
+            @Override public void onActivitySaveInstanceState(Activity activity, Bundle outState) {}
+        });
+    }
+
+    public static void setScreen(View view, String screen) {
+        setState(view, KEY_SCREEN, screen);
+    }
+
+    // Tags frames until cleared; the key keeps states from different sources apart
+    public static void setState(View view, String key, String value) {
+        PerformanceMetricsState state = PerformanceMetricsState.getHolderForHierarchy(view).getState();
+        if (state != null) state.putState(key, value);
+    }
+
+    public static void clearState(View view, String key) {
+        PerformanceMetricsState state = PerformanceMetricsState.getHolderForHierarchy(view).getState();
+        if (state != null) state.removeState(key);
+    }
+
+    // Tags only the next frame, for work whose cost lands in the layout after it, like inflating views
+    public static void markNextFrame(View view, String key, String value) {
+        PerformanceMetricsState state = PerformanceMetricsState.getHolderForHierarchy(view).getState();
+        if (state != null) state.putSingleFrameState(key, value);
+    }
+
+    private static void onFrame(FrameData frame) {
+        String tag = tagOf(frame.getStates());
+        synchronized (stats) {
+            TagStats tagStats = stats.get(tag);
+            if (tagStats == null) {
+                tagStats = new TagStats();
+                stats.put(tag, tagStats);
+            }
+            tagStats.add(frame.getFrameDurationUiNanos(), frame.isJank());
+        }
+    }
+
+    // "screen:state1:state2", states in key order so the same combination always gives the same tag
+    private static String tagOf(List<StateInfo> states) {
+        String screen = "unknown";
+        List<StateInfo> others = new ArrayList<>();
+        for (StateInfo state : states) {
+            if (KEY_SCREEN.equals(state.getKey())) {
+                screen = state.getValue();
+            } else {
+                others.add(state);
+            }
+        }
+        if (others.isEmpty()) return screen;
+
+        others.sort((a, b) -> a.getKey().compareTo(b.getKey()));
+        StringBuilder tag = new StringBuilder(screen);
+        for (StateInfo state : others) {
+            tag.append(':').append(state.getValue());
+        }
+        return tag.toString();
+    }
+
+    // Flushes the frames since the last report, one "frame_stats" event per tag
+    public static void reportMetrics(FirebaseAnalytics analytics) {
+        if (analytics == null) return;
+
+        List<Map.Entry<String, TagStats>> flushed;
+        synchronized (stats) {
+            if (stats.isEmpty()) return;
+            flushed = new ArrayList<>(stats.entrySet());
+            stats.clear();
+        }
+        flushed.sort((a, b) -> Long.compare(b.getValue().janky, a.getValue().janky));
+
+        for (int i = 0; i < Math.min(MAX_REPORTED_TAGS, flushed.size()); i++) {
+            String tag = flushed.get(i).getKey();
+            TagStats tagStats = flushed.get(i).getValue();
+            Bundle bundle = new Bundle();
+            bundle.putString("screen_state", tag);
+            bundle.putLong("frames", tagStats.frames);
+            bundle.putLong("janky_frames", tagStats.janky);
+            bundle.putDouble("janky_ratio", (double) tagStats.janky / tagStats.frames);
+            bundle.putLong("p50_ms", tagStats.percentileMs(0.50));
+            bundle.putLong("p90_ms", tagStats.percentileMs(0.90));
+            bundle.putLong("p99_ms", tagStats.percentileMs(0.99));
+            analytics.logEvent("frame_stats", bundle);
+        }
+    }
+}
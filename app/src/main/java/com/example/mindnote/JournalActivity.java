@@ -5,6 +5,10 @@ import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Bundle;
 import android.provider.MediaStore;
+import android.text.Editable;
+import android.text.TextUtils;
+import android.text.TextWatcher;
+import android.util.Log;
 import android.view.KeyEvent;
 import android.widget.Button;
 import android.widget.EditText;
@@ -27,9 +31,15 @@ import com.google.firebase.auth.FirebaseUser;
 
 import java.io.ByteArrayOutputStream;
 import java.util.*;
+import java.util.function.Consumer;
 
 public class JournalActivity extends AppCompatActivity {
 
+    private static final String TAG = "JournalActivity";
+
+    // Chunks fetched per scroll step when reading a long note
+    private static final int CHUNKS_PER_PAGE = 1;
+
     private EditText titleInput, contentInput, tagInput;
     private ImageView previewImage;
     private TextView moodHappy, moodNeutral, moodSad;
@@ -43,6 +53,15 @@ public class JournalActivity extends AppCompatActivity {
     private final Set<String> tags = new HashSet<>();
 
     private String editingEntryId = null;
+    private JournalEntry originalEntry;
+    private int loadedChunks;
+    private int totalChunks;
+    private int chunkGeneration;
+    private boolean loadingChunks;
+    private final List<Runnable> fullNoteWaiters = new ArrayList<>();
+    private JournalDraftStore draftStore;
+    private boolean restoringDraft;
+    private boolean draftPendingFullNote;
 
     private final ActivityResultLauncher<PickVisualMediaRequest> galleryLauncher =
             registerForActivityResult(new ActivityResultContracts.PickVisualMedia(), uri -> {
@@ -50,6 +69,7 @@ public class JournalActivity extends AppCompatActivity {
                     imageUri = uri;
                     Glide.with(this).load(uri).into(previewImage);
                     pickImageButton.setText("Remove Image");
+                    draftStore.markDirty(JournalDraftStore.FIELD_IMAGE);
                 } else {
                     Toast.makeText(this, "No image selected", Toast.LENGTH_SHORT).show();
                 }
@@ -63,6 +83,7 @@ public class JournalActivity extends AppCompatActivity {
                         previewImage.setImageBitmap(photo);
                         imageUri = getImageUri(photo);
                         pickImageButton.setText("Remove Image");
+                        draftStore.markDirty(JournalDraftStore.FIELD_IMAGE);
                     } else {
                         Toast.makeText(this, "Failed to capture photo", Toast.LENGTH_SHORT).show();
                     }
@@ -91,11 +112,17 @@ public class JournalActivity extends AppCompatActivity {
 
         user = FirebaseAuth.getInstance().getCurrentUser();
 
+        String entryId = getIntent().getStringExtra("entryId");
+        draftStore = new JournalDraftStore(this, user != null ? user.getUid() : null,
+                entryId != null ? JournalDraftStore.entryDraftKey(entryId) : JournalDraftStore.NEW_DRAFT_KEY,
+                this::readDraftField);
+
         pickImageButton.setOnClickListener(v -> {
             if (imageUri != null) {
                 imageUri = null;
                 previewImage.setImageDrawable(null);
                 pickImageButton.setText("Choose from Gallery");
+                draftStore.markDirty(JournalDraftStore.FIELD_IMAGE);
             } else {
                 launchGallery();
             }
@@ -106,56 +133,245 @@ public class JournalActivity extends AppCompatActivity {
 
         setupMoodSelection();
         setupTagInput();
+        setupDraftAutosave();
         loadPreviousTags();
         loadIfEditing();
 
         bottomNavigation.setSelectedItemId(R.id.navigation_journal);
         bottomNavigation.setOnItemSelectedListener(item -> {
             int id = item.getItemId();
-            if (id == R.id.navigation_home) {
-                startActivity(new Intent(this, MainActivity.class));
-            } else if (id == R.id.navigation_notes) {
-                startActivity(new Intent(this, NotesActivity.class));
-            } else if (id == R.id.navigation_profile) {
-                startActivity(new Intent(this, ProfileActivity.class));
-            } else if (id == R.id.navigation_calendar) {
-                startActivity(new Intent(this, CalendarActivity.class));
-            } else if (id == R.id.navigation_journal) {
+            if (id == R.id.navigation_journal) {
                 return true;
-            } else {
-                return false;
             }
+            // Return to the single tab host rather than stacking another screen
+            startActivity(MainActivity.tabIntent(this, id));
             overridePendingTransition(0, 0);
             return true;
         });
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // Frame tracking starts with the resume, so state set any earlier would be dropped
+        JankMetrics.setScreen(bottomNavigation, "journal");
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // Persist anything still waiting on the debounce before we can be killed
+        draftStore.flush();
+    }
+
     private void loadIfEditing() {
         String entryId = getIntent().getStringExtra("entryId");
-        if (entryId != null) {
-            editingEntryId = entryId;
-            JournalDataManager.getInstance(this).fetchEntryById(entryId, entry -> {
-                if (entry != null) {
-                    titleInput.setText(entry.getTitle());
+        if (entryId == null) {
+            restoreDraft();
+            return;
+        }
+
+        editingEntryId = entryId;
+        // Set by the calendar, whose entries may sit in an archived month
+        long entryMillis = getIntent().getLongExtra("entryDate", 0);
+        Date entryDate = entryMillis > 0 ? new Date(entryMillis) : null;
+        JournalDataManager.getInstance(this).fetchEntryById(entryId, entryDate, entry -> {
+            if (entry != null) {
+                originalEntry = entry;
+                restoringDraft = true;
+                titleInput.setText(entry.getTitle());
+                if (entry.getChunkCount() > 0) {
+                    // Long note: only a preview is inline, the body streams in as the user scrolls
+                    contentInput.setText("");
+                    totalChunks = entry.getChunkCount();
+                    loadMoreChunks();
+                } else {
                     contentInput.setText(entry.getNote());
-                    selectedMood = entry.getMood();
-                    updateMoodUI();
+                }
+                selectedMood = entry.getMood();
+                updateMoodUI();
 
-                    if (entry.getTags() != null) {
-                        for (String tag : entry.getTags()) {
-                            tags.add(tag);
-                            addTagChip(tag);
-                        }
+                if (entry.getTags() != null) {
+                    for (String tag : entry.getTags()) {
+                        tags.add(tag);
+                        addTagChip(tag);
                     }
+                }
 
-                    if (entry.getImagePath() != null) {
-                        imageUri = Uri.parse(entry.getImagePath());
-                        Glide.with(this).load(imageUri).into(previewImage);
-                        pickImageButton.setText("Remove Image");
-                    }
+                if (entry.getImagePath() != null) {
+                    imageUri = Uri.parse(entry.getImagePath());
+                    JournalImages.loadFull(previewImage, entryId, entry.getImagePath(), entry.getImageVersion());
+                    pickImageButton.setText("Remove Image");
                 }
-            });
+                restoringDraft = false;
+            }
+            // Unsaved edits from an earlier session win over the stored entry
+            restoreDraft();
+        });
+    }
+
+    private void setupDraftAutosave() {
+        titleInput.addTextChangedListener(new DraftWatcher(JournalDraftStore.FIELD_TITLE));
+        contentInput.addTextChangedListener(new DraftWatcher(JournalDraftStore.FIELD_CONTENT));
+        contentInput.setOnScrollChangeListener((v, scrollX, scrollY, oldScrollX, oldScrollY) -> {
+            if (contentInput.getLayout() == null) return;
+            int remaining = contentInput.getLayout().getHeight() - (scrollY + contentInput.getHeight());
+            if (remaining < contentInput.getHeight()) loadMoreChunks();
+        });
+    }
+
+    private boolean noteFullyLoaded() {
+        return loadedChunks >= totalChunks;
+    }
+
+    // Runs onLoaded once every chunk of the note is in the editor
+    private void loadFullNote(Runnable onLoaded) {
+        if (noteFullyLoaded()) {
+            onLoaded.run();
+            return;
         }
+        fullNoteWaiters.add(onLoaded);
+        loadMoreChunks();
+    }
+
+    // Appends the next page of a long note's chunks, or all of them when someone is waiting on the full note
+    private void loadMoreChunks() {
+        if (noteFullyLoaded() || loadingChunks) return;
+
+        loadingChunks = true;
+        int generation = chunkGeneration;
+        int count = fullNoteWaiters.isEmpty() ? CHUNKS_PER_PAGE : totalChunks - loadedChunks;
+        JournalDataManager.getInstance(this).loadNoteChunks(editingEntryId, loadedChunks, count, chunks -> {
+            if (generation != chunkGeneration || isFinishing()) return;
+            loadingChunks = false;
+            if (chunks == null || chunks.isEmpty()) {
+                fullNoteWaiters.clear();
+                draftPendingFullNote = false;
+                saveEntryButton.setEnabled(true);
+                Toast.makeText(this, "Couldn't load the rest of this note", Toast.LENGTH_SHORT).show();
+                return;
+            }
+
+            restoringDraft = true;
+            for (String chunk : chunks) {
+                contentInput.append(chunk);
+            }
+            restoringDraft = false;
+            loadedChunks += chunks.size();
+
+            if (noteFullyLoaded()) {
+                runFullNoteWaiters();
+            } else if (!fullNoteWaiters.isEmpty()) {
+                loadMoreChunks();
+            }
+        });
+    }
+
+    private void runFullNoteWaiters() {
+        List<Runnable> waiters = new ArrayList<>(fullNoteWaiters);
+        fullNoteWaiters.clear();
+        for (Runnable waiter : waiters) {
+            waiter.run();
+        }
+    }
+
+    private void cancelChunkLoading() {
+        chunkGeneration++;
+        loadingChunks = false;
+        loadedChunks = totalChunks;
+    }
+
+    private class DraftWatcher implements TextWatcher {
+        private final String field;
+
+        DraftWatcher(String field) {
+            this.field = field;
+        }
+
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) { }
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) { }
+
+        // Only marks the field; the text is read once when the debounced write fires
+        @Override
+        public void afterTextChanged(Editable s) {
+            if (restoringDraft) return;
+            draftStore.markDirty(field);
+            if (JournalDraftStore.FIELD_CONTENT.equals(field) && !noteFullyLoaded() && !draftPendingFullNote) {
+                // Editing a long note: pull in the rest so the content draft is never partial
+                draftPendingFullNote = true;
+                loadFullNote(() -> {
+                    draftPendingFullNote = false;
+                    draftStore.markDirty(JournalDraftStore.FIELD_CONTENT);
+                });
+            }
+        }
+    }
+
+    private String readDraftField(String field) {
+        switch (field) {
+            case JournalDraftStore.FIELD_TITLE:
+                return titleInput.getText().toString();
+            case JournalDraftStore.FIELD_CONTENT:
+                return noteFullyLoaded() ? contentInput.getText().toString() : null;
+            case JournalDraftStore.FIELD_TAGS:
+                return TextUtils.join("\n", tags);
+            case JournalDraftStore.FIELD_MOOD:
+                return String.valueOf(selectedMood);
+            case JournalDraftStore.FIELD_IMAGE:
+                // Empty means the image was removed, which differs from "no change"
+                return imageUri != null ? imageUri.toString() : "";
+            default:
+                return null;
+        }
+    }
+
+    private void restoreDraft() {
+        draftStore.restore(fields -> {
+            if (fields.isEmpty() || isFinishing()) return;
+            restoringDraft = true;
+
+            if (fields.containsKey(JournalDraftStore.FIELD_TITLE)) {
+                titleInput.setText(fields.get(JournalDraftStore.FIELD_TITLE));
+            }
+            if (fields.containsKey(JournalDraftStore.FIELD_CONTENT)) {
+                // Content drafts always hold the full note, so stop streaming chunks
+                cancelChunkLoading();
+                runFullNoteWaiters();
+                contentInput.setText(fields.get(JournalDraftStore.FIELD_CONTENT));
+            }
+            if (fields.containsKey(JournalDraftStore.FIELD_MOOD)) {
+                try {
+                    selectedMood = Integer.parseInt(fields.get(JournalDraftStore.FIELD_MOOD));
+                } catch (NumberFormatException ignored) {
+                }
+                updateMoodUI();
+            }
+            if (fields.containsKey(JournalDraftStore.FIELD_TAGS)) {
+                tags.clear();
+                tagChipGroup.removeAllViews();
+                for (String tag : fields.get(JournalDraftStore.FIELD_TAGS).split("\n")) {
+                    if (!tag.isEmpty() && tags.add(tag)) addTagChip(tag);
+                }
+            }
+            if (fields.containsKey(JournalDraftStore.FIELD_IMAGE)) {
+                String image = fields.get(JournalDraftStore.FIELD_IMAGE);
+                if (image.isEmpty()) {
+                    imageUri = null;
+                    previewImage.setImageDrawable(null);
+                    pickImageButton.setText("Choose from Gallery");
+                } else {
+                    imageUri = Uri.parse(image);
+                    Glide.with(this).load(image).into(previewImage);
+                    pickImageButton.setText("Remove Image");
+                }
+            }
+
+            restoringDraft = false;
+            Toast.makeText(this, "Draft restored", Toast.LENGTH_SHORT).show();
+        });
     }
 
     private void updateMoodUI() {
@@ -174,6 +390,7 @@ public class JournalActivity extends AppCompatActivity {
     private void selectMood(int mood) {
         selectedMood = mood;
         updateMoodUI();
+        draftStore.markDirty(JournalDraftStore.FIELD_MOOD);
     }
 
     private void setupTagInput() {
@@ -199,11 +416,14 @@ public class JournalActivity extends AppCompatActivity {
         chip.setOnCloseIconClickListener(view -> {
             tagChipGroup.removeView(chip);
             tags.remove(tag);
+            draftStore.markDirty(JournalDraftStore.FIELD_TAGS);
         });
         tagChipGroup.addView(chip);
+        if (!restoringDraft) draftStore.markDirty(JournalDraftStore.FIELD_TAGS);
     }
 
     private void loadPreviousTags() {
+        JankMetrics.setState(previousTagChipGroup, "loading", "loadingTags");
         JournalDataManager.getInstance(this).loadTagsFromFirestore(allTags -> {
             previousTagChipGroup.removeAllViews();
             for (String tag : allTags) {
@@ -221,6 +441,9 @@ public class JournalActivity extends AppCompatActivity {
                     previousTagChipGroup.addView(chip);
                 }
             }
+            // The chips are measured and laid out in the next frame, so that one keeps the tag
+            JankMetrics.clearState(previousTagChipGroup, "loading");
+            JankMetrics.markNextFrame(previousTagChipGroup, "loading", "loadingTags");
         });
     }
 
@@ -243,6 +466,16 @@ public class JournalActivity extends AppCompatActivity {
     }
 
     private void saveEntry() {
+        if (!noteFullyLoaded()) {
+            // Never save a long note with only some of its chunks in the editor
+            saveEntryButton.setEnabled(false);
+            loadFullNote(() -> {
+                saveEntryButton.setEnabled(true);
+                saveEntry();
+            });
+            return;
+        }
+
         String title = titleInput.getText().toString().trim();
         String content = contentInput.getText().toString().trim();
 
@@ -264,14 +497,44 @@ public class JournalActivity extends AppCompatActivity {
         entry.setDate(new Date());
         entry.setImagePath(imageUri != null ? imageUri.toString() : null);
 
-        if (editingEntryId != null) {
-            entry.setId(editingEntryId);
+        JournalDataManager dataManager = JournalDataManager.getInstance(this);
+        JournalEntry original = originalEntry;
+        saveEntryButton.setEnabled(false);
+        if (JournalImageStore.needsStoring(imageUri)) {
+            // The picked photo is copied into the image store and the entry points at its hash
+            JournalImageStore.getInstance(this).store(imageUri, ref -> {
+                entry.setImagePath(ref);
+                persistEntry(dataManager, original, entry, this::onSaveFinished);
+            }, e -> {
+                Log.e(TAG, "Failed to store image, saving with the local URI", e);
+                persistEntry(dataManager, original, entry, this::onSaveFinished);
+            });
+        } else {
+            persistEntry(dataManager, original, entry, this::onSaveFinished);
         }
+        dataManager.saveTagsToFirestore(tags);
+    }
 
-        JournalDataManager.getInstance(this).saveEntry(entry);
-        JournalDataManager.getInstance(this).saveTagsToFirestore(tags);
+    private static void persistEntry(JournalDataManager dataManager, JournalEntry original, JournalEntry entry,
+                                     Consumer<Boolean> callback) {
+        if (original != null) {
+            dataManager.updateEntry(original, entry, callback);
+        } else {
+            dataManager.saveEntry(entry, callback);
+        }
+    }
 
-        Toast.makeText(this, "Entry saved", Toast.LENGTH_SHORT).show();
-        finish();
+    // The draft is only dropped once the write is acknowledged, so a failed save loses nothing
+    private void onSaveFinished(boolean success) {
+        if (success) draftStore.discard();
+        if (isDestroyed()) return;
+
+        if (success) {
+            Toast.makeText(this, "Entry saved", Toast.LENGTH_SHORT).show();
+            finish();
+        } else {
+            saveEntryButton.setEnabled(true);
+            Toast.makeText(this, "Couldn't save the entry; your draft is kept", Toast.LENGTH_LONG).show();
+        }
     }
 }
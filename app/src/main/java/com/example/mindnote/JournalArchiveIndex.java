@@ -0,0 +1,119 @@
+package com.example.mindnote;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-memory copy of users/{uid}/meta/archives: for each month compacted by
+ * JournalArchiver, how many entries its archive holds and their moods. The
+ * counts let stats and day indexes account for entries the live collection
+ * no longer returns, without reading the archives themselves.
+ */
+public class JournalArchiveIndex {
+
+    static final String MONTHS = "months";
+    static final String COUNT = "count";
+    static final String MOODS = "moods";
+
+    private static final JournalArchiveIndex EMPTY = new JournalArchiveIndex(new TreeMap<>());
+
+    // Month key to the archived mood counts, keyed by mood value
+    private final TreeMap<String, Map<Integer, Integer>> months;
+
+    private JournalArchiveIndex(TreeMap<String, Map<Integer, Integer>> months) {
+        this.months = months;
+    }
+
+    public static JournalArchiveIndex empty() {
+        return EMPTY;
+    }
+
+    public static JournalArchiveIndex fromSnapshot(DocumentSnapshot doc) {
+        if (doc == null || !doc.exists() || !(doc.get(MONTHS) instanceof Map)) return EMPTY;
+
+        TreeMap<String, Map<Integer, Integer>> months = new TreeMap<>();
+        for (Map.Entry<?, ?> month : ((Map<?, ?>) doc.get(MONTHS)).entrySet()) {
+            if (!(month.getValue() instanceof Map)) continue;
+            Object moods = ((Map<?, ?>) month.getValue()).get(MOODS);
+            Map<Integer, Integer> counts = new HashMap<>();
+            if (moods instanceof Map) {
+                for (Map.Entry<?, ?> mood : ((Map<?, ?>) moods).entrySet()) {
+                    if (!(mood.getValue() instanceof Number)) continue;
+                    try {
+                        counts.put(Integer.parseInt(String.valueOf(mood.getKey())),
+                                ((Number) mood.getValue()).intValue());
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+            }
+            months.put(String.valueOf(month.getKey()), counts);
+        }
+        return new JournalArchiveIndex(months);
+    }
+
+    // The manifest entry for one month's archive, as JournalArchiver writes it
+    static Map<String, Object> monthData(int count, Map<Integer, Integer> moodCounts) {
+        Map<String, Object> moods = new HashMap<>();
+        for (Map.Entry<Integer, Integer> mood : moodCounts.entrySet()) {
+            moods.put(String.valueOf(mood.getKey()), mood.getValue());
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put(COUNT, count);
+        data.put(MOODS, moods);
+        return data;
+    }
+
+    public boolean isEmpty() {
+        return months.isEmpty();
+    }
+
+    public boolean contains(String monthKey) {
+        return months.containsKey(monthKey);
+    }
+
+    // Newest first, the order the notes list reaches them in
+    public List<String> getMonthKeys() {
+        List<String> keys = new ArrayList<>(months.descendingKeySet());
+        return Collections.unmodifiableList(keys);
+    }
+
+    // Newest first, only months that overlap from (inclusive) to to (exclusive); either may be null
+    public List<String> getMonthKeys(Date from, Date to) {
+        String first = from != null ? JournalMonthIndex.monthKey(from) : null;
+        String last = to != null ? JournalMonthIndex.monthKey(new Date(to.getTime() - 1)) : null;
+        List<String> keys = new ArrayList<>();
+        for (String key : months.descendingKeySet()) {
+            if (first != null && key.compareTo(first) < 0) continue;
+            if (last != null && key.compareTo(last) > 0) continue;
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    public int getEntryCount() {
+        int total = 0;
+        for (Map<Integer, Integer> moods : months.values()) {
+            for (int count : moods.values()) {
+                total += count;
+            }
+        }
+        return total;
+    }
+
+    public Map<Integer, Integer> getMoodCounts() {
+        Map<Integer, Integer> totals = new HashMap<>();
+        for (Map<Integer, Integer> moods : months.values()) {
+            for (Map.Entry<Integer, Integer> mood : moods.entrySet()) {
+                totals.merge(mood.getKey(), mood.getValue(), Integer::sum);
+            }
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,460 @@
+package com.example.mindnote;
+
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.Blob;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compacts entries older than a cutoff into one document per month at
+ * users/{uid}/archives/{yyyy-MM}, so a full load stops paying a read for
+ * every entry ever written. An archive holds its entries' documents as
+ * gzipped JSON in a single blob, plus the union of their tags so tag
+ * removal can find it. users/{uid}/meta/archives lists the archived months
+ * with their counts (see JournalArchiveIndex).
+ *
+ * Whole months are archived, so a day index is never split between the
+ * live collection and an archive. Stats and day indexes are left as they
+ * are: the entries still exist. Note chunks stay under entries/{id}/chunks.
+ * An archived entry is edited or deleted by restoring it to the live
+ * collection first.
+ */
+public class JournalArchiver {
+
+    private static final String TAG = "JournalArchiver";
+    private static final String ARCHIVE_DATA = "data";
+    private static final String ARCHIVE_TAGS = "tags";
+    private static final String RECORD_ID = "id";
+    private static final long TIMEOUT_SECONDS = 60;
+
+    // One transaction writes the archive, the index and a delete per entry, within Firestore's 500
+    private static final int MAX_MONTH_ENTRIES = 400;
+    // Leaves headroom under Firestore's 1 MiB document limit
+    private static final int MAX_ARCHIVE_BYTES = 900 * 1024;
+
+    private final FirebaseFirestore db;
+    private final String uid;
+    private final FirestoreMeter meter;
+
+    public JournalArchiver(FirebaseFirestore db, String uid) {
+        this(db, uid, FirestoreMeter.NONE);
+    }
+
+    public JournalArchiver(FirebaseFirestore db, String uid, FirestoreMeter meter) {
+        this.db = db;
+        this.uid = uid;
+        this.meter = meter;
+    }
+
+    private CollectionReference entriesRef() {
+        return db.collection("users").document(uid).collection("entries");
+    }
+
+    private DocumentReference archiveRef(String monthKey) {
+        return db.collection("users").document(uid).collection("archives").document(monthKey);
+    }
+
+    private DocumentReference indexRef() {
+        return db.collection("users").document(uid).collection("meta").document("archives");
+    }
+
+    // The first day of the month ageMonths before this one; months before it are archived
+    public static Date cutoff(int ageMonths) {
+        Calendar cal = startOfMonth(new Date());
+        cal.add(Calendar.MONTH, -ageMonths);
+        return cal.getTime();
+    }
+
+    private static Calendar startOfMonth(Date date) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(date);
+        cal.set(Calendar.DAY_OF_MONTH, 1);
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        return cal;
+    }
+
+    /**
+     * Archives every live entry dated before cutoff, a month at a time, and
+     * returns how many it moved. Blocks, so run it from a worker. Once the
+     * backlog is archived a run costs the one query that finds nothing older.
+     */
+    public int compact(Date cutoff) throws Exception {
+        QuerySnapshot oldest = await(meter.query(entriesRef().whereLessThan("date", cutoff)
+                .orderBy("date", Query.Direction.ASCENDING)
+                .limit(1)
+                .get(Source.SERVER)));
+        if (oldest.isEmpty()) return 0;
+
+        Date first = oldest.getDocuments().get(0).getDate("date");
+        if (first == null) return 0;
+        Calendar month = startOfMonth(first);
+        int archived = 0;
+        while (month.getTime().before(cutoff)) {
+            Date from = month.getTime();
+            month.add(Calendar.MONTH, 1);
+            String monthKey = JournalMonthIndex.monthKey(from);
+
+            QuerySnapshot live = await(meter.query(entriesRef().whereGreaterThanOrEqualTo("date", from)
+                    .whereLessThan("date", month.getTime())
+                    .get(Source.SERVER)));
+            if (live.isEmpty()) continue;
+            if (live.size() > MAX_MONTH_ENTRIES) {
+                Log.w(TAG, "Skipping " + monthKey + ": " + live.size() + " entries is more than one archive takes");
+                continue;
+            }
+
+            try {
+                archived += await(compactMonth(monthKey, live));
+            } catch (ExecutionException e) {
+                if (!isTooLarge(e.getCause())) throw e;
+                Log.w(TAG, "Skipping " + monthKey + ": archive would exceed " + MAX_ARCHIVE_BYTES + " bytes");
+            }
+        }
+        Log.d(TAG, "Archived " + archived + " entries dated before " + cutoff);
+        return archived;
+    }
+
+    // Reads each entry again inside the transaction, so an edit made meanwhile is archived, not lost
+    private Task<Integer> compactMonth(String monthKey, QuerySnapshot live) {
+        DocumentReference archive = archiveRef(monthKey);
+        return meter.runTransaction(db, transaction -> {
+            List<Map<String, Object>> records = recordsOf(transaction.get(archive));
+            List<DocumentSnapshot> current = new ArrayList<>();
+            for (QueryDocumentSnapshot doc : live) {
+                current.add(transaction.get(doc.getReference()));
+            }
+
+            int moved = 0;
+            for (DocumentSnapshot doc : current) {
+                if (!doc.exists()) continue;
+                // The live copy is the newer one if an earlier run left the entry in both places
+                records.removeIf(record -> doc.getId().equals(record.get(RECORD_ID)));
+                records.add(toRecord(doc));
+                transaction.delete(doc.getReference());
+                moved++;
+            }
+            writeArchive(transaction, monthKey, records);
+            return moved;
+        });
+    }
+
+    public Task<JournalArchiveIndex> loadIndex() {
+        return meter.document(indexRef().get()).onSuccessTask(doc -> Tasks.forResult(JournalArchiveIndex.fromSnapshot(doc)));
+    }
+
+    // Newest first
+    public Task<List<JournalEntry>> load(String monthKey) {
+        return meter.document(archiveRef(monthKey).get()).onSuccessTask(doc -> {
+            List<JournalEntry> entries = new ArrayList<>();
+            for (Map<String, Object> record : recordsOf(doc)) {
+                entries.add(toEntry(record));
+            }
+            Collections.sort(entries, (a, b) -> Long.compare(millisOf(b.getDate()), millisOf(a.getDate())));
+            return Tasks.forResult(entries);
+        });
+    }
+
+    // Moves the entries back into the live collection; entries not found in their month's archive are skipped
+    public Task<Void> restore(Collection<JournalEntrySummary> entries) {
+        Map<String, Set<String>> idsByMonth = new HashMap<>();
+        for (JournalEntrySummary entry : entries) {
+            if (entry.getDate() == null) continue;
+            idsByMonth.computeIfAbsent(JournalMonthIndex.monthKey(entry.getDate()), key -> new HashSet<>())
+                    .add(entry.getId());
+        }
+
+        List<Task<Void>> restores = new ArrayList<>();
+        for (Map.Entry<String, Set<String>> month : idsByMonth.entrySet()) {
+            String monthKey = month.getKey();
+            Set<String> ids = month.getValue();
+            restores.add(meter.runTransaction(db, transaction -> {
+                List<Map<String, Object>> records = recordsOf(transaction.get(archiveRef(monthKey)));
+                List<Map<String, Object>> kept = new ArrayList<>();
+                for (Map<String, Object> record : records) {
+                    String id = String.valueOf(record.get(RECORD_ID));
+                    if (ids.contains(id)) {
+                        transaction.set(entriesRef().document(id), toLiveData(record));
+                    } else {
+                        kept.add(record);
+                    }
+                }
+                if (kept.size() != records.size()) writeArchive(transaction, monthKey, kept);
+                return null;
+            }));
+        }
+        return Tasks.whenAll(restores);
+    }
+
+    // Passes the number of archived entries that carried the tag
+    public Task<Integer> removeTag(String tag) {
+        return meter.query(db.collection("users").document(uid).collection("archives")
+                .whereArrayContains(ARCHIVE_TAGS, tag)
+                .get())
+                .onSuccessTask(snapshot -> {
+                    String clock = HybridLogicalClock.get().now();
+                    List<Task<Integer>> edits = new ArrayList<>();
+                    for (QueryDocumentSnapshot doc : snapshot) {
+                        edits.add(meter.runTransaction(db, transaction -> {
+                            List<Map<String, Object>> records = recordsOf(transaction.get(doc.getReference()));
+                            int removed = 0;
+                            for (Map<String, Object> record : records) {
+                                if (untag(record, tag, clock)) removed++;
+                            }
+                            if (removed > 0) writeArchive(transaction, doc.getId(), records);
+                            return removed;
+                        }));
+                    }
+                    return Tasks.<Integer>whenAllSuccess(edits).onSuccessTask(counts -> {
+                        int total = 0;
+                        for (Integer count : counts) {
+                            total += count;
+                        }
+                        return Tasks.forResult(total);
+                    });
+                });
+    }
+
+    // Stamps the remove in tagClocks as a live edit would, so a restored entry merges the same way
+    @SuppressWarnings("unchecked")
+    private static boolean untag(Map<String, Object> record, String tag, String clock) {
+        Object tags = record.get("tags");
+        if (!(tags instanceof List) || !((List<Object>) tags).remove(tag)) return false;
+
+        Map<String, Object> tagClocks = record.get(JournalTagSet.FIELD) instanceof Map
+                ? (Map<String, Object>) record.get(JournalTagSet.FIELD) : new HashMap<>();
+        Map<String, Object> sides = tagClocks.get(tag) instanceof Map
+                ? new HashMap<>((Map<String, Object>) tagClocks.get(tag)) : new HashMap<>();
+        sides.put(JournalTagSet.REMOVED, clock);
+        tagClocks.put(tag, sides);
+        record.put(JournalTagSet.FIELD, tagClocks);
+        return true;
+    }
+
+    // Rewrites the month's archive and its line in the index, or drops both once the month is empty
+    private void writeArchive(FirestoreMeter.MeteredTransaction transaction, String monthKey,
+                              List<Map<String, Object>> records) throws FirebaseFirestoreException {
+        SetOptions indexLine = SetOptions.mergeFieldPaths(
+                Collections.singletonList(FieldPath.of(JournalArchiveIndex.MONTHS, monthKey)));
+        Map<String, Object> months = new HashMap<>();
+        Map<String, Object> index = new HashMap<>();
+        index.put(JournalArchiveIndex.MONTHS, months);
+
+        if (records.isEmpty()) {
+            transaction.delete(archiveRef(monthKey));
+            months.put(monthKey, FieldValue.delete());
+            transaction.set(indexRef(), index, indexLine);
+            return;
+        }
+
+        Blob blob;
+        try {
+            blob = encode(records);
+        } catch (IOException e) {
+            throw new FirebaseFirestoreException("Failed to encode " + monthKey,
+                    FirebaseFirestoreException.Code.INTERNAL, e);
+        }
+        if (blob.toBytes().length > MAX_ARCHIVE_BYTES) {
+            throw new FirebaseFirestoreException("Archive " + monthKey + " is too large",
+                    FirebaseFirestoreException.Code.RESOURCE_EXHAUSTED);
+        }
+
+        Set<String> tags = new LinkedHashSet<>();
+        Map<Integer, Integer> moodCounts = new HashMap<>();
+        for (Map<String, Object> record : records) {
+            if (record.get("tags") instanceof List) {
+                for (Object tag : (List<?>) record.get("tags")) {
+                    tags.add(String.valueOf(tag));
+                }
+            }
+            moodCounts.merge(intOf(record.get("mood")), 1, Integer::sum);
+        }
+
+        Map<String, Object> archive = new HashMap<>();
+        archive.put(ARCHIVE_DATA, blob);
+        archive.put(ARCHIVE_TAGS, new ArrayList<>(tags));
+        archive.put(JournalArchiveIndex.COUNT, records.size());
+        archive.put("updatedAt", FieldValue.serverTimestamp());
+        transaction.set(archiveRef(monthKey), archive);
+
+        months.put(monthKey, JournalArchiveIndex.monthData(records.size(), moodCounts));
+        transaction.set(indexRef(), index, indexLine);
+    }
+
+    private static boolean isTooLarge(Throwable e) {
+        return e instanceof FirebaseFirestoreException
+                && ((FirebaseFirestoreException) e).getCode() == FirebaseFirestoreException.Code.RESOURCE_EXHAUSTED;
+    }
+
+    // An entry document as an archive record, with the date as millis
+    private static Map<String, Object> toRecord(DocumentSnapshot doc) {
+        Map<String, Object> record = new HashMap<>();
+        Map<String, Object> data = doc.getData();
+        if (data != null) record.putAll(data);
+        // JSON has no timestamps; updatedAt is set again on restore
+        record.values().removeIf(value -> value instanceof Timestamp);
+        Date date = doc.getDate("date");
+        record.put("date", date != null ? date.getTime() : null);
+        record.put(RECORD_ID, doc.getId());
+        return record;
+    }
+
+    private static Map<String, Object> toLiveData(Map<String, Object> record) {
+        Map<String, Object> data = new HashMap<>(record);
+        data.remove(RECORD_ID);
+        Object date = record.get("date");
+        data.put("date", date instanceof Number ? new Date(((Number) date).longValue()) : null);
+        data.put("updatedAt", FieldValue.serverTimestamp());
+        return data;
+    }
+
+    private static JournalEntry toEntry(Map<String, Object> record) {
+        JournalEntry entry = new JournalEntry();
+        entry.setId(String.valueOf(record.get(RECORD_ID)));
+        Object date = record.get("date");
+        entry.setDate(date instanceof Number ? new Date(((Number) date).longValue()) : null);
+        entry.setTitle(stringOf(record.get("title")));
+        entry.setNote(stringOf(record.get("note")));
+        entry.setMood(intOf(record.get("mood")));
+        entry.setTags(stringsOf(record.get("tags")));
+        entry.setImagePath(stringOf(record.get("imagePath")));
+        Object imageVersion = record.get("imageVersion");
+        entry.setImageVersion(imageVersion instanceof Number ? ((Number) imageVersion).longValue() : 0);
+        entry.setChunkCount(intOf(record.get("chunkCount")));
+        entry.setChunkHashes(record.get("chunkHashes") instanceof List ? stringsOf(record.get("chunkHashes")) : null);
+        return entry;
+    }
+
+    private static String stringOf(Object value) {
+        return value instanceof String ? (String) value : null;
+    }
+
+    private static int intOf(Object value) {
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+
+    private static List<String> stringsOf(Object value) {
+        List<String> strings = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                if (item != null) strings.add(String.valueOf(item));
+            }
+        }
+        return strings;
+    }
+
+    private static long millisOf(Date date) {
+        return date != null ? date.getTime() : 0;
+    }
+
+    private static List<Map<String, Object>> recordsOf(DocumentSnapshot archive) throws FirebaseFirestoreException {
+        Blob blob = archive.exists() ? archive.getBlob(ARCHIVE_DATA) : null;
+        if (blob == null) return new ArrayList<>();
+        try {
+            return decode(blob);
+        } catch (IOException | JSONException e) {
+            throw new FirebaseFirestoreException("Unreadable archive " + archive.getId(),
+                    FirebaseFirestoreException.Code.DATA_LOSS, e);
+        }
+    }
+
+    static Blob encode(List<Map<String, Object>> records) throws IOException {
+        JSONArray array = new JSONArray();
+        for (Map<String, Object> record : records) {
+            array.put(new JSONObject(record));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(array.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return Blob.fromBytes(bytes.toByteArray());
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<Map<String, Object>> decode(Blob blob) throws IOException, JSONException {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(blob.toBytes()))) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                json.write(buffer, 0, read);
+            }
+        }
+        List<Object> array = (List<Object>) fromJson(new JSONArray(json.toString("UTF-8")));
+        List<Map<String, Object>> records = new ArrayList<>();
+        for (Object record : array) {
+            if (record instanceof Map) records.add((Map<String, Object>) record);
+        }
+        return records;
+    }
+
+    // JSON back to the maps, lists and values Firestore takes
+    private static Object fromJson(Object value) throws JSONException {
+        if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            Map<String, Object> map = new HashMap<>();
+            Iterator<String> keys = object.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                map.put(key, fromJson(object.get(key)));
+            }
+            return map;
+        }
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            List<Object> list = new ArrayList<>();
+            for (int i = 0; i < array.length(); i++) {
+                list.add(fromJson(array.get(i)));
+            }
+            return list;
+        }
+        return value == JSONObject.NULL ? null : value;
+    }
+
+    private static <T> T await(Task<T> task) throws Exception {
+        return Tasks.await(task, TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+}
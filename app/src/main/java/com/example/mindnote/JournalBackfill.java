@@ -0,0 +1,161 @@
+package com.example.mindnote;
+
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One-time migrations for journals written before a per-write document
+ * existed: it reads the live entries once and builds what is missing. Each
+ * part is recorded in users/{uid}/meta/backfill when it is done, so it runs
+ * once per journal, on whichever device gets there first.
+ */
+public class JournalBackfill {
+
+    private static final String TAG = "JournalBackfill";
+    private static final long TIMEOUT_SECONDS = 60;
+    private static final int MAX_BATCH_WRITES = 500;
+
+    // Fields of the backfill document, each set once its part has run
+    static final String DAY_INDEXES = "dayIndexes";
+    static final String STREAK = "streak";
+    private static final String[] PARTS = {DAY_INDEXES, STREAK};
+
+    // Bumped with every part added, so devices that finished an earlier set run again
+    public static final int VERSION = PARTS.length;
+
+    private final FirebaseFirestore db;
+    private final String uid;
+
+    public JournalBackfill(FirebaseFirestore db, String uid) {
+        this.db = db;
+        this.uid = uid;
+    }
+
+    private DocumentReference userRef() {
+        return db.collection("users").document(uid);
+    }
+
+    private CollectionReference entriesRef() {
+        return userRef().collection("entries");
+    }
+
+    private DocumentReference backfillRef() {
+        return userRef().collection("meta").document("backfill");
+    }
+
+    /**
+     * Runs the parts not yet recorded as done. Blocks, so run it from a
+     * worker. Once every part is done a run costs one read.
+     */
+    public void run() throws Exception {
+        DocumentSnapshot done = await(backfillRef().get(Source.SERVER));
+        List<String> pending = new ArrayList<>();
+        for (String part : PARTS) {
+            if (!done.contains(part)) pending.add(part);
+        }
+        if (pending.isEmpty()) return;
+
+        List<JournalEntry> entries = loadEntries();
+        if (pending.contains(DAY_INDEXES)) {
+            backfillDayIndexes(entries);
+            markDone(DAY_INDEXES);
+        }
+        if (pending.contains(STREAK)) {
+            backfillStreak(entries);
+            markDone(STREAK);
+        }
+        Log.d(TAG, "Backfilled " + pending + " from " + entries.size() + " entries");
+    }
+
+    private List<JournalEntry> loadEntries() throws Exception {
+        List<JournalEntry> entries = new ArrayList<>();
+        for (QueryDocumentSnapshot doc : await(entriesRef().get(Source.SERVER))) {
+            JournalEntry entry = doc.toObject(JournalEntry.class);
+            entry.setId(doc.getId());
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    // Merged into the stored months, so days indexed by saves made meanwhile are kept.
+    // Archived months need nothing: compaction leaves their day indexes in place.
+    private void backfillDayIndexes(List<JournalEntry> entries) throws Exception {
+        Map<String, JournalMonthIndex> months = JournalMonthIndex.fromEntries(entries);
+
+        List<Task<Void>> commits = new ArrayList<>();
+        WriteBatch batch = db.batch();
+        int ops = 0;
+        for (JournalMonthIndex index : months.values()) {
+            batch.set(userRef().collection("days").document(index.getMonthKey()),
+                    Collections.<String, Object>singletonMap("days", index.toDays()), SetOptions.merge());
+            if (++ops == MAX_BATCH_WRITES) {
+                commits.add(batch.commit());
+                batch = db.batch();
+                ops = 0;
+            }
+        }
+        if (ops > 0) {
+            commits.add(batch.commit());
+        }
+        await(Tasks.whenAll(commits));
+    }
+
+    // Saves only advance the stored streak, so a journal from before it was stored would restart at 1
+    private void backfillStreak(List<JournalEntry> entries) throws Exception {
+        List<Long> dates = new ArrayList<>();
+        for (JournalEntry entry : entries) {
+            if (entry.getDate() != null) dates.add(entry.getDate().getTime());
+        }
+        if (dates.isEmpty()) return;
+
+        DocumentReference statsRef = userRef().collection("meta").document("stats");
+        await(db.runTransaction(transaction -> {
+            DocumentSnapshot stored = transaction.get(statsRef);
+            // An entry saved since the read above is part of the streak too
+            Date storedLast = stored.getDate("lastEntryDate");
+            long[] millis = new long[dates.size() + (storedLast != null ? 1 : 0)];
+            for (int i = 0; i < dates.size(); i++) {
+                millis[i] = dates.get(i);
+            }
+            if (storedLast != null) millis[dates.size()] = storedLast.getTime();
+
+            // streakOf sorts millis, leaving the newest last
+            int streak = JournalStats.streakOf(millis);
+            Date last = new Date(millis[millis.length - 1]);
+            Map<String, Object> data = new HashMap<>();
+            data.put("streak", streak);
+            data.put("lastEntryDay", JournalStats.dayKey(last));
+            data.put("lastEntryDate", last);
+            transaction.set(statsRef, data, SetOptions.merge());
+            return null;
+        }));
+    }
+
+    private void markDone(String part) throws Exception {
+        await(backfillRef().set(Collections.<String, Object>singletonMap(part, FieldValue.serverTimestamp()),
+                SetOptions.merge()));
+    }
+
+    private static <T> T await(Task<T> task) throws Exception {
+        return Tasks.await(task, TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+}
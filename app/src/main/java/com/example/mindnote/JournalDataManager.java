@@ -2,36 +2,87 @@ package com.example.mindnote;
 
 import android.content.Context;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import com.google.firebase.analytics.FirebaseAnalytics;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.CollectionReference;
-import com.google.firebase.firestore.SetOptions;
-import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.function.Consumer;
-import java.util.HashSet;
 
 public class JournalDataManager {
 
     private static final String TAG = "JournalDataManager";
+    private static final int MOOD_COUNT = 3;
+    private static final String BACKEND_SQLITE = "sqlite";
+
+    // Recently used accounts stay warm so switching back is instant
+    private static final int MAX_CACHED_SESSIONS = 3;
+
+    // How long a deferred delete can be undone; deletes made within it go out together
+    public static final long UNDO_WINDOW_MS = 4000;
+
+    private static final Map<String, JournalDataManager> sessions =
+            new LinkedHashMap<String, JournalDataManager>(MAX_CACHED_SESSIONS + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, JournalDataManager> eldest) {
+                    if (size() > MAX_CACHED_SESSIONS) {
+                        eldest.getValue().clearCache();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+    private static JournalDataManager signedOut;
+    private static Context appContext;
 
-    private static JournalDataManager instance;
-    private final FirebaseFirestore db;
-    private final FirebaseUser user;
+    private final JournalRepository repository;
+    private final String uid;
+    // The live journal from the last loadEntrySummaries or loadEntriesFromFirestore, stored column-wise
+    private JournalEntryTable table = JournalEntryTable.EMPTY;
+    private final List<JournalEntrySummary> summaries = new ArrayList<>();
+    private JournalStats stats = JournalStats.empty();
+    private final Map<String, JournalMonthIndex> monthIndexes = new HashMap<>();
+    // Months compacted out of the live collection, and the ones loaded so far by month key
+    private JournalArchiveIndex archiveIndex = JournalArchiveIndex.empty();
+    private boolean archiveIndexLoaded;
+    private final TreeMap<String, List<JournalEntry>> archivedMonths = new TreeMap<>();
+    // Null without a signed-in user or an app context, e.g. in JVM tests
+    private final JournalTextAnalytics textAnalytics;
+    // Events go out only while this user's session is live; cleared with it on sign-out
     private FirebaseAnalytics analytics;
-    private final List<JournalEntry> entries = new ArrayList<>();
+    private long dataVersion;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, PendingDelete> pendingDeletes = new LinkedHashMap<>();
+    private final Runnable commitPending = this::commitPendingDeletes;
+
+    private static class PendingDelete {
+        final JournalEntrySummary summary;
+        final JournalEntry entry;
+        final Consumer<Boolean> callback;
+
+        PendingDelete(JournalEntrySummary summary, JournalEntry entry, Consumer<Boolean> callback) {
+            this.summary = summary;
+            this.entry = entry;
+            this.callback = callback;
+        }
+    }
 
     public static final String DEMO_IMAGE_FAMILY = "demo_family_sunset";
     public static final String DEMO_IMAGE_MEDITATION = "demo_meditation_sunrise";
@@ -44,16 +95,73 @@ public class JournalDataManager {
                         imagePath.equals(DEMO_IMAGE_LIGHTBULB));
     }
 
-    private JournalDataManager(Context context) {
-        db = FirebaseFirestore.getInstance();
-        user = FirebaseAuth.getInstance().getCurrentUser();
+    private JournalDataManager(JournalRepository repository, String uid) {
+        this.repository = repository;
+        this.uid = uid;
+        this.textAnalytics = appContext != null && uid != null ? JournalTextAnalytics.getInstance(appContext, uid) : null;
+        this.analytics = appContext != null && uid != null ? FirebaseAnalytics.getInstance(appContext) : null;
     }
 
+    // A manager outside the per-account sessions, e.g. over InMemoryJournalRepository in JVM tests
+    public static JournalDataManager withRepository(JournalRepository repository, String uid) {
+        return new JournalDataManager(repository, uid);
+    }
+
+    // Returns the data manager for whoever is signed in right now; each uid has its own cache
     public static synchronized JournalDataManager getInstance(Context context) {
-        if (instance == null) {
-            instance = new JournalDataManager(context.getApplicationContext());
+        if (appContext == null) {
+            appContext = context.getApplicationContext();
+            FirebaseAuth.getInstance().addAuthStateListener(auth -> onAuthStateChanged(auth.getCurrentUser()));
+        }
+
+        FirebaseUser current = FirebaseAuth.getInstance().getCurrentUser();
+        return sessionFor(current != null ? current.getUid() : null);
+    }
+
+    private static synchronized JournalDataManager sessionFor(String uid) {
+        if (uid == null) {
+            if (signedOut == null) {
+                signedOut = new JournalDataManager(repositoryFor(null), null);
+            }
+            return signedOut;
+        }
+
+        JournalDataManager session = sessions.get(uid);
+        if (session == null) {
+            session = new JournalDataManager(repositoryFor(uid), uid);
+            sessions.put(uid, session);
+        }
+        return session;
+    }
+
+    // -PjournalBackend=sqlite keeps journals in a database on the device instead of Firestore
+    private static JournalRepository repositoryFor(String uid) {
+        if (BACKEND_SQLITE.equals(BuildConfig.JOURNAL_BACKEND)) {
+            return new SQLiteJournalRepository(appContext, uid);
+        }
+        return new FirestoreJournalRepository(FirebaseFirestore.getInstance(), uid);
+    }
+
+    private static synchronized void onAuthStateChanged(FirebaseUser current) {
+        if (current == null) {
+            // Nothing of the previous user may outlive the sign-out, including a queued delete firing later
+            Log.d(TAG, "Signed out, dropping " + sessions.size() + " cached session(s)");
+            for (JournalDataManager session : sessions.values()) {
+                session.endSession();
+            }
+            sessions.clear();
+            return;
+        }
+        sessionFor(current.getUid());
+    }
+
+    // Drops a user's cached partition, e.g. when the account is removed from the device
+    public static synchronized void forgetSession(String uid) {
+        JournalDataManager session = sessions.remove(uid);
+        if (session != null) {
+            session.clearCache();
+            if (session.textAnalytics != null) session.textAnalytics.clear();
         }
-        return instance;
     }
 
     public FirebaseAnalytics setAnalytics(FirebaseAnalytics analytics) {
@@ -61,285 +169,874 @@ public class JournalDataManager {
         return analytics;
     }
 
-    private CollectionReference getUserEntriesRef() {
-        if (user == null) return null;
-        return db.collection("users").document(user.getUid()).collection("entries");
+    // Deletes still inside the undo window are cancelled; signing out commits them first while it still can
+    private void endSession() {
+        cancelPendingDeletes();
+        clearCache();
+        analytics = null;
     }
 
-    private CollectionReference getMetaRef() {
-        if (user == null) return null;
-        return db.collection("users").document(user.getUid()).collection("meta");
+    public String getUid() {
+        return uid;
+    }
+
+    public JournalRepository getRepository() {
+        return repository;
+    }
+
+    // Bumped on every local write so retained screens know when to re-query
+    public long getDataVersion() {
+        return dataVersion;
     }
 
     public interface FirestoreCallback {
         void onComplete(List<JournalEntry> result);
     }
 
+    // Entries in archived months are not part of the result; their counts still go into the stats
     public void loadEntriesFromFirestore(FirestoreCallback callback) {
-        CollectionReference ref = getUserEntriesRef();
-        if (ref == null) return;
-
-        ref.orderBy("date", Query.Direction.DESCENDING)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    entries.clear();
-                    for (QueryDocumentSnapshot doc : queryDocumentSnapshots) {
-                        JournalEntry entry = doc.toObject(JournalEntry.class);
-                        entry.setId(doc.getId());
-                        entries.add(entry);
-                    }
+        refreshArchiveIndex(() -> loadLiveEntries(callback));
+    }
 
-                    if (analytics != null) {
-                        Bundle bundle = new Bundle();
-                        bundle.putInt("entry_count", entries.size());
-                        analytics.logEvent("entries_loaded", bundle);
-                    }
+    private void loadLiveEntries(FirestoreCallback callback) {
+        repository.loadEntries(result -> {
+            table = JournalEntryTable.fromEntries(result);
 
-                    callback.onComplete(entries);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error loading Firestore entries", e);
-                    callback.onComplete(new ArrayList<>());
+            if (analytics != null) {
+                Bundle bundle = new Bundle();
+                bundle.putInt("entry_count", table.size());
+                analytics.logEvent("entries_loaded", bundle);
+            }
 
-                    if (analytics != null) {
-                        Bundle bundle = new Bundle();
-                        bundle.putString("error", e.getMessage());
-                        analytics.logEvent("entries_load_failed", bundle);
-                    }
-                });
+            syncStatsFromEntries();
+            if (textAnalytics != null) textAnalytics.onEntriesLoaded(result);
+            callback.onComplete(result);
+        }, e -> {
+            Log.e(TAG, "Error loading entries", e);
+            callback.onComplete(new ArrayList<>());
+
+            if (analytics != null) {
+                Bundle bundle = new Bundle();
+                bundle.putString("error", e.getMessage());
+                analytics.logEvent("entries_load_failed", bundle);
+            }
+        });
     }
 
-    public void saveEntry(JournalEntry entry) {
-        CollectionReference ref = getUserEntriesRef();
-        if (ref == null) return;
-
-        Map<String, Object> entryMap = new HashMap<>();
-        entryMap.put("title", entry.getTitle());
-        entryMap.put("note", entry.getNote());
-        entryMap.put("mood", entry.getMood());
-        entryMap.put("tags", entry.getTags());
-        entryMap.put("imagePath", entry.getImagePath());
-        entryMap.put("date", FieldValue.serverTimestamp());
-
-        ref.add(entryMap)
-                .addOnSuccessListener(docRef -> {
-                    entry.setId(docRef.getId());
-                    Log.d(TAG, "Entry added with ID: " + docRef.getId());
-
-                    if (analytics != null) {
-                        Bundle bundle = new Bundle();
-                        bundle.putString("entry_action", "created");
-                        analytics.logEvent("journal_entry", bundle);
-                    }
-                })
-                .addOnFailureListener(e -> Log.e(TAG, "Add entry failed", e));
+    public interface SummaryCallback {
+        void onComplete(List<JournalEntrySummary> result);
     }
 
-    public void saveTagsToFirestore(Set<String> newTags) {
-        if (user == null || newTags == null || newTags.isEmpty()) return;
-
-        getMetaRef()
-                .document("tags")
-                .get()
-                .addOnSuccessListener(doc -> {
-                    List<String> existingTags = new ArrayList<>();
-                    if (doc.exists() && doc.get("tags") instanceof List) {
-                        existingTags.addAll((List<String>) doc.get("tags"));
-                    }
+    // May answer twice: from the local cache first, then with fresh data. Archived months already
+    // loaded with loadOlderEntries stay at the end of the list.
+    public void loadEntrySummaries(SummaryCallback callback) {
+        refreshArchiveIndex(() -> { });
+        repository.loadSummaries(result -> {
+            List<JournalEntrySummary> live = withoutPendingDeletes(result);
+            table = JournalEntryTable.fromSummaries(live);
+            summaries.clear();
+            summaries.addAll(live);
+            summaries.addAll(withoutPendingDeletes(archivedSummaries(result)));
 
-                    Set<String> mergedTags = new HashSet<>(existingTags);
-                    mergedTags.addAll(newTags);
+            if (analytics != null) {
+                Bundle bundle = new Bundle();
+                bundle.putInt("entry_count", summaries.size());
+                analytics.logEvent("summaries_loaded", bundle);
+            }
 
-                    Map<String, Object> data = new HashMap<>();
-                    data.put("tags", new ArrayList<>(mergedTags));
+            callback.onComplete(new ArrayList<>(summaries));
+        }, e -> {
+            Log.e(TAG, "Error loading entry summaries", e);
+            callback.onComplete(new ArrayList<>(summaries));
+        });
+    }
 
-                    getMetaRef()
-                            .document("tags")
-                            .set(data, SetOptions.merge())
-                            .addOnSuccessListener(aVoid -> Log.d(TAG, "Tags merged and saved to Firestore"))
-                            .addOnFailureListener(e -> Log.e(TAG, "Failed to save merged tags to Firestore", e));
-                })
-                .addOnFailureListener(e -> Log.e(TAG, "Failed to load existing tags before merge", e));
+    // May answer twice: from the local cache first, then with fresh data
+    public void loadRecentEntries(int limit, SummaryCallback callback) {
+        repository.loadRecentSummaries(limit, result -> callback.onComplete(withoutPendingDeletes(result)),
+                e -> Log.e(TAG, "Error loading recent entries", e));
     }
 
-    public void loadTagsFromFirestore(Consumer<List<String>> callback) {
-        if (user == null) {
+    // The backend still has entries whose delete is waiting out the undo window
+    private List<JournalEntrySummary> withoutPendingDeletes(List<JournalEntrySummary> result) {
+        if (pendingDeletes.isEmpty()) return result;
+        List<JournalEntrySummary> filtered = new ArrayList<>();
+        for (JournalEntrySummary summary : result) {
+            if (!pendingDeletes.containsKey(summary.getId())) filtered.add(summary);
+        }
+        return filtered;
+    }
+
+    public List<JournalEntrySummary> getSummariesCached() {
+        return new ArrayList<>(summaries);
+    }
+
+    private void refreshArchiveIndex(Runnable then) {
+        repository.loadArchiveIndex(index -> {
+            archiveIndex = index;
+            archiveIndexLoaded = true;
+            then.run();
+        }, e -> {
+            Log.e(TAG, "Failed to load archive index", e);
+            then.run();
+        });
+    }
+
+    private void withArchiveIndex(Runnable then) {
+        if (archiveIndexLoaded) {
+            then.run();
+        } else {
+            refreshArchiveIndex(then);
+        }
+    }
+
+    /**
+     * Appends the newest archived month not loaded yet to the cached summaries
+     * and passes the whole list, e.g. when the notes list is scrolled to its
+     * end. Returns false, without calling back, once there is nothing older.
+     */
+    public boolean loadOlderEntries(SummaryCallback callback) {
+        String next = null;
+        for (String monthKey : archiveIndex.getMonthKeys()) {
+            if (!archivedMonths.containsKey(monthKey)) {
+                next = monthKey;
+                break;
+            }
+        }
+        if (next == null) return false;
+
+        loadArchivedMonth(next, entries -> {
+            // Months opened from the calendar may already be in the list; keep archives in date order
+            Set<String> archivedIds = new HashSet<>();
+            for (JournalEntrySummary summary : archivedSummaries(new ArrayList<>())) {
+                archivedIds.add(summary.getId());
+            }
+            List<JournalEntrySummary> live = new ArrayList<>();
+            for (JournalEntrySummary summary : summaries) {
+                if (!archivedIds.contains(summary.getId())) live.add(summary);
+            }
+            summaries.clear();
+            summaries.addAll(live);
+            summaries.addAll(withoutPendingDeletes(archivedSummaries(live)));
+            callback.onComplete(new ArrayList<>(summaries));
+        });
+        return true;
+    }
+
+    private void loadArchivedMonth(String monthKey, Consumer<List<JournalEntry>> callback) {
+        List<JournalEntry> cached = archivedMonths.get(monthKey);
+        if (cached != null) {
+            callback.accept(cached);
+            return;
+        }
+
+        repository.loadArchive(monthKey, entries -> {
+            archivedMonths.put(monthKey, entries);
+            callback.accept(entries);
+        }, e -> {
+            Log.e(TAG, "Failed to load archive " + monthKey, e);
             callback.accept(new ArrayList<>());
+        });
+    }
+
+    // Loaded archived entries the live result does not have, newest first
+    private List<JournalEntrySummary> archivedSummaries(List<JournalEntrySummary> live) {
+        Set<String> liveIds = new HashSet<>();
+        for (JournalEntrySummary summary : live) {
+            liveIds.add(summary.getId());
+        }
+        List<JournalEntrySummary> result = new ArrayList<>();
+        for (List<JournalEntry> month : archivedMonths.descendingMap().values()) {
+            for (JournalEntry entry : month) {
+                if (!liveIds.contains(entry.getId())) result.add(JournalEntrySummary.fromEntry(entry));
+            }
+        }
+        return result;
+    }
+
+    private JournalEntry findArchived(String entryId) {
+        for (List<JournalEntry> month : archivedMonths.values()) {
+            for (JournalEntry entry : month) {
+                if (entry.getId().equals(entryId)) return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Runs then once any of the entries that sit in a loaded archive are back
+     * in the live collection, where every write path expects them.
+     */
+    private void restoreIfArchived(Collection<String> entryIds, Runnable then, Consumer<Exception> onFailure) {
+        List<JournalEntrySummary> archived = new ArrayList<>();
+        for (String entryId : entryIds) {
+            JournalEntry found = findArchived(entryId);
+            if (found != null) archived.add(JournalEntrySummary.fromEntry(found));
+        }
+        if (archived.isEmpty()) {
+            then.run();
             return;
         }
 
-        getMetaRef()
-                .document("tags")
-                .get()
-                .addOnSuccessListener(doc -> {
-                    if (doc.exists()) {
-                        List<String> tags = (List<String>) doc.get("tags");
-                        callback.accept(tags != null ? tags : new ArrayList<>());
-                    } else {
-                        callback.accept(new ArrayList<>());
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to load tags from Firestore", e);
-                    callback.accept(new ArrayList<>());
-                });
+        repository.restoreArchived(archived, () -> {
+            Set<String> restored = new HashSet<>();
+            for (JournalEntrySummary entry : archived) {
+                restored.add(entry.getId());
+            }
+            for (List<JournalEntry> month : archivedMonths.values()) {
+                month.removeIf(entry -> restored.contains(entry.getId()));
+            }
+            then.run();
+        }, onFailure);
     }
 
-    public void deleteEntry(String entryId, Consumer<Boolean> callback) {
-        CollectionReference ref = getUserEntriesRef();
-        if (ref == null) return;
-
-        ref.document(entryId).delete()
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Deleted entry ID: " + entryId);
-                    if (analytics != null) {
-                        Bundle bundle = new Bundle();
-                        bundle.putString("entry_action", "deleted");
-                        analytics.logEvent("journal_entry", bundle);
-                    }
-                    callback.accept(true);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Delete entry failed", e);
+    public void saveEntry(JournalEntry entry) {
+        saveEntry(entry, success -> { });
+    }
+
+    public void saveEntry(JournalEntry entry, Consumer<Boolean> callback) {
+        dataVersion++;
+        repository.addEntry(entry, () -> {
+            // The stored counters and streak moved after the call began; stats read since then are stale
+            dataVersion++;
+            summaries.add(0, JournalEntrySummary.fromEntry(entry));
+            table = table.inserting(entry);
+            updateCachedMonthIndex(entry.getDate(), entry.getId(), entry.getMood());
+            if (textAnalytics != null) textAnalytics.onEntrySaved(entry);
+            Log.d(TAG, "Entry added with ID: " + entry.getId());
+
+            if (analytics != null) {
+                Bundle bundle = new Bundle();
+                bundle.putString("entry_action", "created");
+                analytics.logEvent("journal_entry", bundle);
+            }
+            callback.accept(true);
+        }, e -> {
+            Log.e(TAG, "Add entry failed", e);
+            callback.accept(false);
+        });
+    }
+
+    // Rewrites only the fields and note chunks that differ from what was loaded
+    public void updateEntry(JournalEntry original, JournalEntry updated, Consumer<Boolean> callback) {
+        if (original.getId() == null) {
+            callback.accept(false);
+            return;
+        }
+
+        dataVersion++;
+        restoreIfArchived(Collections.singletonList(original.getId()),
+                () -> sendUpdate(original, updated, callback), e -> {
+                    Log.e(TAG, "Restoring archived entry failed", e);
                     callback.accept(false);
                 });
     }
 
-    public JournalEntry getEntryById(String entryId) {
-        for (JournalEntry entry : entries) {
-            if (entry.getId() != null && entry.getId().equals(entryId)) {
-                return entry;
+    private void sendUpdate(JournalEntry original, JournalEntry updated, Consumer<Boolean> callback) {
+        String entryId = original.getId();
+        boolean moodChanged = original.getMood() != updated.getMood();
+        repository.updateEntry(original, updated, () -> {
+            replaceSummary(JournalEntrySummary.fromEntry(updated));
+            int row = table.indexOf(entryId);
+            if (row >= 0) table = table.replacing(row, updated);
+            if (moodChanged && updated.getDate() != null) {
+                updateCachedMonthIndex(updated.getDate(), entryId, updated.getMood());
             }
+            if (textAnalytics != null) {
+                // The entry keeps its id and original date; updated only carries the edits
+                JournalEntry analysed = new JournalEntry(original.getDate(), updated.getNote(), updated.getMood());
+                analysed.setId(entryId);
+                analysed.setTitle(updated.getTitle());
+                textAnalytics.onEntrySaved(analysed);
+            }
+            Log.d(TAG, "Entry updated: " + entryId);
+
+            if (analytics != null) {
+                Bundle bundle = new Bundle();
+                bundle.putString("entry_action", "updated");
+                analytics.logEvent("journal_entry", bundle);
+            }
+            callback.accept(true);
+        }, e -> {
+            Log.e(TAG, "Update entry failed", e);
+            callback.accept(false);
+        });
+    }
+
+    // Loads up to count chunks of a long note starting at index from, in order; null on failure
+    public void loadNoteChunks(String entryId, int from, int count, Consumer<List<String>> callback) {
+        if (entryId == null) {
+            callback.accept(new ArrayList<>());
+            return;
         }
-        return null;
+
+        repository.loadNoteChunks(entryId, from, count, callback, e -> {
+            Log.e(TAG, "Failed to load note chunks for " + entryId, e);
+            callback.accept(null);
+        });
+    }
+
+    public void saveTagsToFirestore(Set<String> newTags) {
+        if (newTags == null || newTags.isEmpty()) return;
+
+        repository.loadTags(existingTags -> {
+            Set<String> mergedTags = new LinkedHashSet<>(existingTags);
+            if (!mergedTags.addAll(newTags)) return;
+
+            repository.saveTags(new ArrayList<>(mergedTags),
+                    () -> Log.d(TAG, "Tags merged and saved"),
+                    e -> Log.e(TAG, "Failed to save merged tags", e));
+        }, e -> Log.e(TAG, "Failed to load existing tags before merge", e));
+    }
+
+    public void loadTagsFromFirestore(Consumer<List<String>> callback) {
+        repository.loadTags(callback, e -> {
+            Log.e(TAG, "Failed to load tags", e);
+            callback.accept(new ArrayList<>());
+        });
+    }
+
+    public void deleteEntry(String entryId, Consumer<Boolean> callback) {
+        JournalEntrySummary known = findCachedSummary(entryId);
+
+        dataVersion++;
+        restoreIfArchived(Collections.singletonList(entryId), () -> sendDelete(entryId, known, callback), e -> {
+            Log.e(TAG, "Restoring archived entry failed", e);
+            callback.accept(false);
+        });
+    }
+
+    private void sendDelete(String entryId, JournalEntrySummary known, Consumer<Boolean> callback) {
+        repository.deleteEntry(entryId, known, () -> {
+            Log.d(TAG, "Deleted entry ID: " + entryId);
+            removeSummary(entryId);
+            int row = table.indexOf(entryId);
+            if (row >= 0) table = table.without(row);
+            if (known != null) {
+                updateCachedMonthIndex(known.getDate(), entryId, null);
+            }
+            if (textAnalytics != null) textAnalytics.onEntryDeleted(entryId);
+            if (analytics != null) {
+                Bundle bundle = new Bundle();
+                bundle.putString("entry_action", "deleted");
+                analytics.logEvent("journal_entry", bundle);
+            }
+            callback.accept(true);
+        }, e -> {
+            Log.e(TAG, "Delete entry failed", e);
+            callback.accept(false);
+        });
+    }
+
+    /**
+     * Takes the entry out of every cache at once and queues its delete. The
+     * queue is committed as batched writes UNDO_WINDOW_MS after the latest
+     * deferred delete, unless undoDelete takes the entry back first. If the
+     * commit fails the entries are restored and their callbacks get false.
+     */
+    public void deleteEntryDeferred(JournalEntrySummary summary, Consumer<Boolean> callback) {
+        int row = table.indexOf(summary.getId());
+        pendingDeletes.put(summary.getId(),
+                new PendingDelete(summary, row >= 0 ? table.toEntry(row) : null, callback));
+        removeCached(summary);
+        dataVersion++;
+
+        mainHandler.removeCallbacks(commitPending);
+        mainHandler.postDelayed(commitPending, UNDO_WINDOW_MS);
+    }
+
+    // False once the delete has been sent
+    public boolean undoDelete(String entryId) {
+        PendingDelete pending = pendingDeletes.remove(entryId);
+        if (pending == null) return false;
+
+        restoreCached(pending);
+        dataVersion++;
+        if (pendingDeletes.isEmpty()) mainHandler.removeCallbacks(commitPending);
+        return true;
+    }
+
+    // Sends queued deletes now, e.g. when the screen offering undo goes away
+    public void commitPendingDeletes() {
+        mainHandler.removeCallbacks(commitPending);
+        if (pendingDeletes.isEmpty()) return;
+
+        List<PendingDelete> committing = new ArrayList<>(pendingDeletes.values());
+        pendingDeletes.clear();
+        List<JournalEntrySummary> toDelete = new ArrayList<>();
+        for (PendingDelete pending : committing) {
+            toDelete.add(pending.summary);
+        }
+
+        Set<String> committed = new HashSet<>();
+        Consumer<Exception> onFailure = e -> {
+            // Batches that did land stay deleted; only the rest come back
+            Log.e(TAG, "Batched delete failed, restoring " + (committing.size() - committed.size()) + " entries", e);
+            for (PendingDelete pending : committing) {
+                if (!committed.contains(pending.summary.getId())) restoreCached(pending);
+            }
+            dataVersion++;
+            for (PendingDelete pending : committing) {
+                pending.callback.accept(committed.contains(pending.summary.getId()));
+            }
+        };
+        restoreIfArchived(idsOf(toDelete), () -> repository.deleteEntries(toDelete, ids -> {
+            committed.addAll(ids);
+            forgetText(ids);
+        }, () -> {
+            Log.d(TAG, "Deleted " + committing.size() + " entries in one commit");
+            if (analytics != null) {
+                Bundle bundle = new Bundle();
+                bundle.putString("entry_action", "deleted");
+                bundle.putInt("entry_count", committing.size());
+                analytics.logEvent("journal_entry", bundle);
+            }
+            for (PendingDelete pending : committing) {
+                pending.callback.accept(true);
+            }
+        }, onFailure), onFailure);
+    }
+
+    // Drops queued deletes unsent; their callbacks get false
+    private void cancelPendingDeletes() {
+        mainHandler.removeCallbacks(commitPending);
+        if (pendingDeletes.isEmpty()) return;
+
+        List<PendingDelete> cancelled = new ArrayList<>(pendingDeletes.values());
+        pendingDeletes.clear();
+        Log.d(TAG, "Cancelled " + cancelled.size() + " queued deletes");
+        for (PendingDelete pending : cancelled) {
+            pending.callback.accept(false);
+        }
+    }
+
+    public interface BulkCallback {
+        // done of total entries written so far
+        void onProgress(int done, int total);
+
+        void onComplete(boolean success);
+    }
+
+    // Caches follow each committed batch, so a partial failure leaves them matching the backend
+    public void deleteEntries(List<JournalEntrySummary> selected, BulkCallback callback) {
+        Map<String, JournalEntrySummary> byId = new HashMap<>();
+        for (JournalEntrySummary summary : selected) {
+            byId.put(summary.getId(), summary);
+        }
+        int total = selected.size();
+        int[] done = {0};
+
+        dataVersion++;
+        Consumer<Exception> onFailure = e -> {
+            Log.e(TAG, "Bulk delete stopped after " + done[0] + " of " + total, e);
+            dataVersion++;
+            callback.onComplete(false);
+        };
+        restoreIfArchived(idsOf(selected), () -> repository.deleteEntries(selected, ids -> {
+            Set<String> idSet = new HashSet<>(ids);
+            summaries.removeIf(summary -> idSet.contains(summary.getId()));
+            table = table.withoutIds(idSet);
+            for (String id : ids) {
+                JournalEntrySummary summary = byId.get(id);
+                updateCachedMonthIndex(summary.getDate(), id, null);
+            }
+            forgetText(ids);
+            done[0] += ids.size();
+            callback.onProgress(done[0], total);
+        }, () -> {
+            if (analytics != null) {
+                Bundle bundle = new Bundle();
+                bundle.putString("entry_action", "bulk_deleted");
+                bundle.putInt("entry_count", total);
+                analytics.logEvent("journal_entry", bundle);
+            }
+            callback.onComplete(true);
+        }, onFailure), onFailure);
+    }
+
+    public void addTagToEntries(List<String> entryIds, String tag, BulkCallback callback) {
+        updateEntryTags(entryIds, tag, true, callback);
+        saveTagsToFirestore(Collections.singleton(tag));
+    }
+
+    public void removeTagFromEntries(List<String> entryIds, String tag, BulkCallback callback) {
+        updateEntryTags(entryIds, tag, false, callback);
+    }
+
+    private void updateEntryTags(List<String> entryIds, String tag, boolean add, BulkCallback callback) {
+        int total = entryIds.size();
+        int[] done = {0};
+
+        dataVersion++;
+        Consumer<Exception> onFailure = e -> {
+            Log.e(TAG, "Bulk tag change stopped after " + done[0] + " of " + total, e);
+            dataVersion++;
+            callback.onComplete(false);
+        };
+        restoreIfArchived(entryIds, () -> repository.updateEntryTags(entryIds, tag, add, ids -> {
+            Set<String> idSet = new HashSet<>(ids);
+            table = table.withTagChange(idSet, tag, add);
+            changeSummaryTags(idSet, tag, add);
+            done[0] += ids.size();
+            callback.onProgress(done[0], total);
+        }, () -> callback.onComplete(true), onFailure), onFailure);
+    }
+
+    private void changeSummaryTags(Set<String> entryIds, String tag, boolean add) {
+        for (int i = 0; i < summaries.size(); i++) {
+            JournalEntrySummary summary = summaries.get(i);
+            if (entryIds.contains(summary.getId())) summaries.set(i, summary.withTagChange(tag, add));
+        }
+    }
+
+    private static List<String> idsOf(List<JournalEntrySummary> entries) {
+        List<String> ids = new ArrayList<>();
+        for (JournalEntrySummary entry : entries) {
+            ids.add(entry.getId());
+        }
+        return ids;
+    }
+
+    private void forgetText(List<String> entryIds) {
+        if (textAnalytics == null) return;
+        for (String id : entryIds) {
+            textAnalytics.onEntryDeleted(id);
+        }
+    }
+
+    private void removeCached(JournalEntrySummary summary) {
+        removeSummary(summary.getId());
+        int row = table.indexOf(summary.getId());
+        if (row >= 0) table = table.without(row);
+        updateCachedMonthIndex(summary.getDate(), summary.getId(), null);
+    }
+
+    private void restoreCached(PendingDelete pending) {
+        insertSummary(pending.summary);
+        if (pending.entry != null) table = table.inserting(pending.entry);
+        updateCachedMonthIndex(pending.summary.getDate(), pending.summary.getId(), pending.summary.getMood());
+    }
+
+    private JournalEntrySummary findCachedSummary(String entryId) {
+        for (JournalEntrySummary summary : summaries) {
+            if (entryId.equals(summary.getId())) return summary;
+        }
+        JournalEntry entry = getEntryById(entryId);
+        return entry != null ? JournalEntrySummary.fromEntry(entry) : null;
+    }
+
+    private void updateCachedMonthIndex(Date date, String entryId, Integer mood) {
+        if (date == null) return;
+        JournalMonthIndex index = monthIndexes.get(JournalMonthIndex.monthKey(date));
+        if (index == null) return;
+        if (mood != null) {
+            index.put(JournalMonthIndex.dayOfMonth(date), entryId, mood);
+        } else {
+            index.remove(JournalMonthIndex.dayOfMonth(date), entryId);
+        }
+    }
+
+    public void loadMonthIndex(int year, int month, Consumer<JournalMonthIndex> callback) {
+        String monthKey = JournalMonthIndex.monthKey(year, month);
+        JournalMonthIndex cached = monthIndexes.get(monthKey);
+        if (cached != null) {
+            callback.accept(cached);
+            return;
+        }
+
+        repository.loadMonthIndex(monthKey, index -> {
+            monthIndexes.put(monthKey, index);
+            callback.accept(index);
+        }, e -> {
+            Log.e(TAG, "Failed to load day index for " + monthKey, e);
+            callback.accept(new JournalMonthIndex(monthKey));
+        });
+    }
+
+    private void replaceSummary(JournalEntrySummary summary) {
+        for (int i = 0; i < summaries.size(); i++) {
+            if (summary.getId().equals(summaries.get(i).getId())) {
+                summaries.set(i, summary);
+                return;
+            }
+        }
+    }
+
+    // Summaries are newest first
+    private void insertSummary(JournalEntrySummary summary) {
+        int position = summaries.size();
+        if (summary.getDate() != null) {
+            for (int i = 0; i < summaries.size(); i++) {
+                Date date = summaries.get(i).getDate();
+                if (date == null || date.before(summary.getDate())) {
+                    position = i;
+                    break;
+                }
+            }
+        }
+        summaries.add(position, summary);
+    }
+
+    private void removeSummary(String entryId) {
+        for (int i = 0; i < summaries.size(); i++) {
+            if (entryId.equals(summaries.get(i).getId())) {
+                summaries.remove(i);
+                return;
+            }
+        }
+    }
+
+    // A copy from the cached journal; its note is null until loadNote has fetched it
+    public JournalEntry getEntryById(String entryId) {
+        int row = table.indexOf(entryId);
+        if (row >= 0) return table.toEntry(row);
+        JournalEntry archived = findArchived(entryId);
+        return archived != null ? copyOf(archived) : null;
+    }
+
+    // Callers edit what they get; the archive cache keeps its own
+    private static JournalEntry copyOf(JournalEntry entry) {
+        JournalEntry copy = new JournalEntry(entry.getDate(), entry.getNote(), entry.getMood());
+        copy.setId(entry.getId());
+        copy.setTitle(entry.getTitle());
+        copy.setTags(entry.getTags() != null ? new ArrayList<>(entry.getTags()) : new ArrayList<>());
+        copy.setImagePath(entry.getImagePath());
+        copy.setImageVersion(entry.getImageVersion());
+        copy.setChunkCount(entry.getChunkCount());
+        copy.setChunkHashes(entry.getChunkHashes());
+        return copy;
+    }
+
+    // Note bodies are not kept from the full load; this fetches one and caches it on its row
+    public void loadNote(String entryId, Consumer<String> callback) {
+        int row = table.indexOf(entryId);
+        if (row >= 0 && table.note(row) != null) {
+            callback.accept(table.note(row));
+            return;
+        }
+
+        JournalEntryTable loadedFrom = table;
+        fetchEntryById(entryId, entry -> {
+            String note = entry != null ? entry.getNote() : null;
+            if (note != null && row >= 0 && loadedFrom == table) table.setNote(row, note);
+            callback.accept(note);
+        });
     }
 
     public void fetchEntryById(String entryId, Consumer<JournalEntry> callback) {
-        CollectionReference ref = getUserEntriesRef();
-        if (ref == null || entryId == null) {
+        fetchEntryById(entryId, null, callback);
+    }
+
+    // date, when the caller knows it, lets an entry of an archive not loaded yet be found in its month
+    public void fetchEntryById(String entryId, Date date, Consumer<JournalEntry> callback) {
+        if (entryId == null) {
             callback.accept(null);
             return;
         }
+        JournalEntry archived = findArchived(entryId);
+        if (archived != null) {
+            callback.accept(copyOf(archived));
+            return;
+        }
 
-        ref.document(entryId).get().addOnSuccessListener(doc -> {
-            if (doc.exists()) {
-                JournalEntry entry = doc.toObject(JournalEntry.class);
-                if (entry != null) {
-                    entry.setId(doc.getId());
-                }
+        repository.fetchEntry(entryId, entry -> {
+            if (entry != null || date == null) {
                 callback.accept(entry);
-            } else {
-                callback.accept(null);
+                return;
             }
-        }).addOnFailureListener(e -> {
+            loadArchivedMonth(JournalMonthIndex.monthKey(date), entries -> {
+                JournalEntry found = findArchived(entryId);
+                callback.accept(found != null ? copyOf(found) : null);
+            });
+        }, e -> {
             Log.e(TAG, "Failed to fetch entry by ID", e);
             callback.accept(null);
         });
     }
 
+    public void loadStats(Consumer<JournalStats> callback) {
+        repository.loadStats(result -> {
+            stats = result;
+            callback.accept(stats);
+        }, e -> {
+            Log.e(TAG, "Failed to load stats", e);
+            callback.accept(stats);
+        });
+    }
+
+    // Word frequencies and sentiment of the entries written in the month of date
+    public void loadTextStats(Date date, int topWords, Consumer<JournalTextStats> callback) {
+        String monthKey = JournalMonthIndex.monthKey(date);
+        if (textAnalytics == null) {
+            callback.accept(JournalTextStats.empty(monthKey));
+            return;
+        }
+        textAnalytics.loadMonth(monthKey, topWords, callback);
+    }
+
+    public JournalStats getStatsCached() {
+        return stats;
+    }
+
+    // A full load has every entry in hand, so use it to correct any drift in the stored stats
+    private void syncStatsFromEntries() {
+        JournalStats live = table.stats(MOOD_COUNT);
+        if (!archiveIndexLoaded) {
+            // Archived entries would be missing from the count; leave the stored stats alone
+            stats = live;
+            return;
+        }
+
+        Map<Integer, Integer> moodCounts = new HashMap<>(live.getMoodCountsByValue());
+        for (Map.Entry<Integer, Integer> archived : archiveIndex.getMoodCounts().entrySet()) {
+            moodCounts.merge(archived.getKey(), archived.getValue(), Integer::sum);
+        }
+        stats = new JournalStats(live.getEntryCount() + archiveIndex.getEntryCount(), live.getStreak(),
+                live.getLastEntryDate(), moodCounts);
+        repository.saveStats(stats, () -> { }, e -> Log.e(TAG, "Failed to sync stats", e));
+    }
+
     public int getEntryCount() {
-        return entries.size();
+        return stats.getEntryCount();
     }
 
     public List<JournalEntry> getAllEntriesCached() {
-        return new ArrayList<>(entries);
+        return table.toEntries();
     }
 
     public List<JournalEntry> getAllEntries() {
         return getAllEntriesCached();
     }
 
-    public List<JournalEntry> getEntriesByTag(String tag) {
-        List<JournalEntry> filtered = new ArrayList<>();
-        for (JournalEntry entry : entries) {
-            if (entry.getTags() != null && entry.getTags().contains(tag)) {
-                filtered.add(entry);
-            }
+    // Filtered, paged views read only the matching entries; these are the methods screens should use
+    // Once the live entries run out, later pages come from the archived months the query covers, one month a page
+    public void queryEntries(JournalQuery query, JournalPage after, Consumer<JournalPage> callback) {
+        if (after != null && after.getCursor() instanceof ArchiveCursor) {
+            queryArchives(query, ((ArchiveCursor) after.getCursor()).monthKeys, callback);
+            return;
         }
-        return filtered;
-    }
 
-    public List<JournalEntry> getEntriesByMood(String moodLabel) {
-        List<JournalEntry> filtered = new ArrayList<>();
-        for (JournalEntry entry : entries) {
-            if (entry.getMoodEmoji().equalsIgnoreCase(moodLabel)) {
-                filtered.add(entry);
+        repository.queryEntries(query, after, page -> {
+            if (page.hasMore() || page.isFromCache()) {
+                callback.accept(page);
+                return;
             }
+            withArchiveIndex(() -> {
+                List<String> months = archiveIndex.getMonthKeys(query.getFrom(), query.getTo());
+                callback.accept(months.isEmpty() ? page
+                        : new JournalPage(page.getItems(), new ArchiveCursor(months), true, false));
+            });
+        }, e -> {
+            Log.e(TAG, "Filtered query failed", e);
+            callback.accept(new JournalPage(new ArrayList<>(), null, false, false));
+        });
+    }
+
+    // Archived months still to search, newest first
+    private static class ArchiveCursor {
+        final List<String> monthKeys;
+
+        ArchiveCursor(List<String> monthKeys) {
+            this.monthKeys = monthKeys;
         }
-        return filtered;
     }
 
-    public Map<String, Integer> getMoodCounts() {
-        Map<String, Integer> moodMap = new HashMap<>();
-        for (JournalEntry entry : entries) {
-            String mood = entry.getMoodEmoji();
-            if (mood != null) {
-                moodMap.put(mood, moodMap.getOrDefault(mood, 0) + 1);
-            }
+    // Skips months with no match, so a page is empty only when nothing older matches either
+    private void queryArchives(JournalQuery query, List<String> monthKeys, Consumer<JournalPage> callback) {
+        if (monthKeys.isEmpty()) {
+            callback.accept(new JournalPage(new ArrayList<>(), null, false, false));
+            return;
         }
-        return moodMap;
+
+        List<String> rest = monthKeys.subList(1, monthKeys.size());
+        loadArchivedMonth(monthKeys.get(0), entries -> {
+            List<JournalEntrySummary> items = new ArrayList<>();
+            for (JournalEntry entry : entries) {
+                if (query.matches(entry) && !pendingDeletes.containsKey(entry.getId())) {
+                    items.add(JournalEntrySummary.fromEntry(entry));
+                }
+            }
+            if (items.isEmpty()) {
+                queryArchives(query, rest, callback);
+                return;
+            }
+            callback.accept(new JournalPage(items, rest.isEmpty() ? null : new ArchiveCursor(rest),
+                    !rest.isEmpty(), false));
+        });
     }
 
-    public int calculateStreak() {
-        if (entries.isEmpty()) return 0;
+    public void loadEntriesByTag(String tag, JournalPage after, Consumer<JournalPage> callback) {
+        queryEntries(new JournalQuery().tag(tag), after, callback);
+    }
+
+    public void loadEntriesByMood(int mood, JournalPage after, Consumer<JournalPage> callback) {
+        queryEntries(new JournalQuery().mood(mood), after, callback);
+    }
 
-        entries.sort((e1, e2) -> e2.getDate().compareTo(e1.getDate())); // newest first
+    public void loadEntriesBetween(Date from, Date to, JournalPage after, Consumer<JournalPage> callback) {
+        queryEntries(new JournalQuery().between(from, to), after, callback);
+    }
 
-        int streak = 1;
-        Date prevDate = entries.get(0).getDate();
-        if (prevDate == null) return 0;
+    // Cached-only filters: they see nothing until loadEntrySummaries or loadEntriesFromFirestore has run
+    public List<JournalEntry> getEntriesByTag(String tag) {
+        return table.entriesWithTag(tag);
+    }
 
-        for (int i = 1; i < entries.size(); i++) {
-            Date current = entries.get(i).getDate();
-            if (current == null) continue;
+    public List<JournalEntry> getEntriesByMood(String moodLabel) {
+        return table.entriesWithMood(JournalEntry.moodFromLabel(moodLabel));
+    }
 
-            long diff = prevDate.getTime() - current.getTime();
-            long daysBetween = diff / (1000 * 60 * 60 * 24);
+    public void loadMoodCounts(Consumer<Map<String, Integer>> callback) {
+        loadStats(result -> callback.accept(result.getMoodCounts()));
+    }
 
-            if (daysBetween == 1) {
-                streak++;
-                prevDate = current;
-            } else if (daysBetween > 1) {
-                break;
-            }
+    public Map<String, Integer> getMoodCounts() {
+        Map<String, Integer> moodMap = new HashMap<>();
+        int[] counts = table.moodCounts(MOOD_COUNT);
+        for (int mood = 0; mood < counts.length; mood++) {
+            if (counts[mood] == 0) continue;
+            String emoji = JournalEntry.moodEmoji(mood);
+            moodMap.put(emoji, moodMap.getOrDefault(emoji, 0) + counts[mood]);
         }
-        return streak;
+        return moodMap;
     }
 
-    public Date getLastEntryDate() {
-        if (entries.isEmpty()) return null;
-        Date latest = null;
+    public int calculateStreak() {
+        return table.streak();
+    }
 
-        for (JournalEntry entry : entries) {
-            Date entryDate = entry.getDate();
-            if (entryDate != null && (latest == null || entryDate.after(latest))) {
-                latest = entryDate;
-            }
-        }
-        return latest;
+    public Date getLastEntryDate() {
+        long last = table.lastMillis();
+        return last != JournalEntryTable.NO_DATE ? new Date(last) : null;
     }
 
     public void deleteTagFromAllEntries(String tagToDelete) {
-        CollectionReference ref = getUserEntriesRef();
-        if (ref == null) return;
-
-        ref.get().addOnSuccessListener(queryDocumentSnapshots -> {
-            for (QueryDocumentSnapshot doc : queryDocumentSnapshots) {
-                List<String> entryTags = (List<String>) doc.get("tags");
-                if (entryTags != null && entryTags.contains(tagToDelete)) {
-                    entryTags.remove(tagToDelete);
-                    ref.document(doc.getId()).update("tags", entryTags)
-                            .addOnSuccessListener(aVoid ->
-                                    Log.d(TAG, "Removed tag '" + tagToDelete + "' from entry: " + doc.getId()))
-                            .addOnFailureListener(e ->
-                                    Log.e(TAG, "Failed to remove tag from entry: " + doc.getId(), e));
+        dataVersion++;
+        repository.removeTagFromEntries(tagToDelete, count -> {
+            table = table.withoutTag(tagToDelete);
+            for (int i = 0; i < summaries.size(); i++) {
+                if (summaries.get(i).getTags().contains(tagToDelete)) {
+                    summaries.set(i, summaries.get(i).withTagChange(tagToDelete, false));
+                }
+            }
+            for (List<JournalEntry> month : archivedMonths.values()) {
+                for (JournalEntry entry : month) {
+                    if (entry.getTags() != null) entry.getTags().remove(tagToDelete);
                 }
             }
-        }).addOnFailureListener(e ->
-                Log.e(TAG, "Failed to fetch entries for tag cleanup", e));
+            Log.d(TAG, "Removed tag '" + tagToDelete + "' from " + count + " entries");
+        }, e -> Log.e(TAG, "Failed to remove tag '" + tagToDelete + "' from entries", e));
     }
 
     public void clearCache() {
-        entries.clear();
+        commitPendingDeletes();
+        table = JournalEntryTable.EMPTY;
+        summaries.clear();
+        monthIndexes.clear();
+        archiveIndex = JournalArchiveIndex.empty();
+        archiveIndexLoaded = false;
+        archivedMonths.clear();
+        dataVersion++;
+        stats = JournalStats.empty();
     }
 }
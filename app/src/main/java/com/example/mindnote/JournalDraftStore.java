@@ -0,0 +1,141 @@
+package com.example.mindnote;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Local autosave for the journal editor. Each field lives in its own small file
+ * under files/drafts/{uid}/{draftKey}/, so a change to one field never rewrites
+ * the others. Writes are debounced and run on a background thread.
+ */
+public class JournalDraftStore {
+
+    private static final String TAG = "JournalDraftStore";
+    private static final long DEBOUNCE_MS = 600;
+
+    public static final String NEW_DRAFT_KEY = "new";
+    public static final String FIELD_TITLE = "title";
+    public static final String FIELD_CONTENT = "content";
+    public static final String FIELD_TAGS = "tags";
+    public static final String FIELD_MOOD = "mood";
+    public static final String FIELD_IMAGE = "image";
+
+    // One writer for every draft so a discard always lands after the writes before it
+    private static final ExecutorService io = Executors.newSingleThreadExecutor();
+
+    public interface DraftSource {
+        // Called on the main thread when a debounced write fires; null leaves the stored field as is
+        String read(String field);
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final File dir;
+    private final DraftSource source;
+    private final Set<String> dirty = new HashSet<>();
+    private final Runnable flushRunnable = this::flush;
+
+    public JournalDraftStore(Context context, String uid, String draftKey, DraftSource source) {
+        File root = new File(context.getFilesDir(), "drafts");
+        this.dir = new File(new File(root, uid != null ? uid : "signed_out"), draftKey);
+        this.source = source;
+    }
+
+    public static String entryDraftKey(String entryId) {
+        return "entry_" + entryId;
+    }
+
+    public void markDirty(String field) {
+        dirty.add(field);
+        mainHandler.removeCallbacks(flushRunnable);
+        mainHandler.postDelayed(flushRunnable, DEBOUNCE_MS);
+    }
+
+    public void flush() {
+        mainHandler.removeCallbacks(flushRunnable);
+        if (dirty.isEmpty()) return;
+
+        Map<String, String> snapshot = new HashMap<>();
+        for (String field : dirty) {
+            String value = source.read(field);
+            if (value != null) snapshot.put(field, value);
+        }
+        dirty.clear();
+
+        io.execute(() -> {
+            if (!dir.exists() && !dir.mkdirs()) {
+                Log.e(TAG, "Could not create draft directory " + dir);
+                return;
+            }
+            for (Map.Entry<String, String> field : snapshot.entrySet()) {
+                writeField(field.getKey(), field.getValue());
+            }
+        });
+    }
+
+    public void restore(Consumer<Map<String, String>> callback) {
+        io.execute(() -> {
+            Map<String, String> fields = new HashMap<>();
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (file.getName().endsWith(".new") || file.getName().endsWith(".bak")) continue;
+                    String value = readField(file);
+                    if (value != null) fields.put(file.getName(), value);
+                }
+            }
+            mainHandler.post(() -> callback.accept(fields));
+        });
+    }
+
+    // The entry reached Firestore; the local copy is no longer needed
+    public void discard() {
+        mainHandler.removeCallbacks(flushRunnable);
+        dirty.clear();
+        io.execute(() -> {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            dir.delete();
+        });
+    }
+
+    private void writeField(String field, String value) {
+        AtomicFile file = new AtomicFile(new File(dir, field));
+        FileOutputStream out = null;
+        try {
+            out = file.startWrite();
+            out.write(value.getBytes(StandardCharsets.UTF_8));
+            file.finishWrite(out);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write draft field " + field, e);
+            if (out != null) file.failWrite(out);
+        }
+    }
+
+    private String readField(File path) {
+        try {
+            return new String(new AtomicFile(path).readFully(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read draft field " + path.getName(), e);
+            return null;
+        }
+    }
+}
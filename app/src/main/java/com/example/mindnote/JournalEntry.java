@@ -9,7 +9,10 @@ import java.util.Locale;
 
 import com.google.firebase.Timestamp;
 import com.google.firebase.firestore.Exclude;
+import com.google.firebase.firestore.IgnoreExtraProperties;
 
+// Stored entries also hold preview, thumbnail, clocks and updatedAt, which toObject skips without a warning each
+@IgnoreExtraProperties
 public class JournalEntry implements Serializable {
     private String id;
     private String title; // ✅ NEW FIELD
@@ -18,6 +21,9 @@ public class JournalEntry implements Serializable {
     private int mood;
     private List<String> tags;
     private String imagePath;
+    private long imageVersion;
+    private int chunkCount;
+    private List<String> chunkHashes;
 
     public JournalEntry() {
         this.date = new Date();
@@ -39,6 +45,8 @@ public class JournalEntry implements Serializable {
         this.tags = new ArrayList<>();
     }
 
+    // The document id, set by whoever reads the document; never a stored field
+    @Exclude
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
 
@@ -64,6 +72,16 @@ public class JournalEntry implements Serializable {
     public String getImagePath() { return imagePath; }
     public void setImagePath(String imagePath) { this.imagePath = imagePath; }
 
+    public long getImageVersion() { return imageVersion; }
+    public void setImageVersion(long imageVersion) { this.imageVersion = imageVersion; }
+
+    // Non-zero when the full note lives in the chunks subcollection and note holds only a preview
+    public int getChunkCount() { return chunkCount; }
+    public void setChunkCount(int chunkCount) { this.chunkCount = chunkCount; }
+
+    public List<String> getChunkHashes() { return chunkHashes; }
+    public void setChunkHashes(List<String> chunkHashes) { this.chunkHashes = chunkHashes; }
+
     @Exclude
     public String getFormattedDate() {
         if (date == null) return "Just Now";
@@ -90,6 +108,21 @@ public class JournalEntry implements Serializable {
 
     @Exclude
     public String getMoodEmoji() {
+        return moodEmoji(mood);
+    }
+
+    // Accepts a mood name ("happy", "neutral", "sad"), its emoji or its number; -1 when unknown
+    public static int moodFromLabel(String label) {
+        if (label == null) return -1;
+        switch (label.trim().toLowerCase(Locale.ROOT)) {
+            case "0": case "happy": case "😊": return 0;
+            case "1": case "neutral": case "😐": return 1;
+            case "2": case "sad": case "😢": return 2;
+            default: return -1;
+        }
+    }
+
+    public static String moodEmoji(int mood) {
         switch (mood) {
             case 0: return "😊";
             case 1: return "😐";
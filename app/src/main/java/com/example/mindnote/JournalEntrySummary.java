@@ -0,0 +1,124 @@
+package com.example.mindnote;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+
+/**
+ * Lightweight list-row model. Holds what the notes list and the home feed
+ * render, plus the title, tags and full image path JournalDataManager needs
+ * to fill its entry table, so list loads never materialize full note bodies.
+ */
+public class JournalEntrySummary {
+
+    public static final int PREVIEW_LENGTH = 140;
+
+    private final String id;
+    private final Date date;
+    private final String preview;
+    private final String thumbnail;
+    private final long imageVersion;
+    private final int mood;
+    private final int chunkCount;
+    private final String title;
+    private final List<String> tags;
+    private final String imagePath;
+
+    public JournalEntrySummary(String id, Date date, String preview, String thumbnail, long imageVersion,
+                               int mood, int chunkCount) {
+        this(id, date, preview, thumbnail, imageVersion, mood, chunkCount, null, null, thumbnail);
+    }
+
+    public JournalEntrySummary(String id, Date date, String preview, String thumbnail, long imageVersion,
+                               int mood, int chunkCount, String title, List<String> tags, String imagePath) {
+        this.id = id;
+        this.date = date;
+        this.preview = preview;
+        this.thumbnail = thumbnail;
+        this.imageVersion = imageVersion;
+        this.mood = mood;
+        this.chunkCount = chunkCount;
+        this.title = title;
+        this.tags = tags != null ? Collections.unmodifiableList(new ArrayList<>(tags)) : Collections.emptyList();
+        this.imagePath = imagePath;
+    }
+
+    public static JournalEntrySummary fromSnapshot(DocumentSnapshot doc) {
+        String preview = doc.getString("preview");
+        if (preview == null) {
+            // Entries written before previews were stored
+            preview = makePreview(doc.getString("note"));
+        }
+
+        String thumbnail = doc.getString("thumbnail");
+        if (thumbnail == null) {
+            thumbnail = doc.getString("imagePath");
+        }
+
+        List<String> tags = new ArrayList<>();
+        Object storedTags = doc.get("tags");
+        if (storedTags instanceof List) {
+            for (Object tag : (List<?>) storedTags) {
+                if (tag instanceof String) tags.add((String) tag);
+            }
+        }
+
+        Long imageVersion = doc.getLong("imageVersion");
+        Long mood = doc.getLong("mood");
+        Long chunkCount = doc.getLong("chunkCount");
+        return new JournalEntrySummary(doc.getId(), doc.getDate("date"), preview, thumbnail,
+                imageVersion != null ? imageVersion : 0, mood != null ? mood.intValue() : 0,
+                chunkCount != null ? chunkCount.intValue() : 0, doc.getString("title"), tags,
+                doc.getString("imagePath"));
+    }
+
+    public static JournalEntrySummary fromEntry(JournalEntry entry) {
+        return new JournalEntrySummary(entry.getId(), entry.getDate(), makePreview(entry.getNote()),
+                entry.getImagePath(), entry.getImageVersion(), entry.getMood(), entry.getChunkCount(),
+                entry.getTitle(), entry.getTags(), entry.getImagePath());
+    }
+
+    // The same summary with tag added or removed
+    public JournalEntrySummary withTagChange(String tag, boolean add) {
+        List<String> changed = new ArrayList<>(tags);
+        if (!add) {
+            changed.remove(tag);
+        } else if (!changed.contains(tag)) {
+            changed.add(tag);
+        }
+        return new JournalEntrySummary(id, date, preview, thumbnail, imageVersion, mood, chunkCount,
+                title, changed, imagePath);
+    }
+
+    public static String makePreview(String note) {
+        if (note == null) return null;
+        if (note.length() <= PREVIEW_LENGTH) return note;
+        return note.substring(0, PREVIEW_LENGTH).trim() + "…";
+    }
+
+    public String getId() { return id; }
+    public Date getDate() { return date; }
+    public String getPreview() { return preview; }
+    public String getThumbnail() { return thumbnail; }
+    public long getImageVersion() { return imageVersion; }
+    public int getMood() { return mood; }
+    public int getChunkCount() { return chunkCount; }
+    public String getTitle() { return title; }
+    public List<String> getTags() { return tags; }
+    public String getImagePath() { return imagePath; }
+
+    public String getFormattedDate() {
+        if (date == null) return "Just Now";
+        return new SimpleDateFormat("EEEE, MMMM d, yyyy", Locale.getDefault()).format(date);
+    }
+
+    public String getShortDate() {
+        if (date == null) return "Unknown date";
+        return new SimpleDateFormat("MMM d, yyyy", Locale.getDefault()).format(date);
+    }
+}
@@ -0,0 +1,456 @@
+package com.example.mindnote;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Column-per-field copy of a full journal, kept by JournalDataManager instead
+ * of a List of JournalEntry. Dates are epoch millis in a long[], moods a
+ * byte[], and tags ids into one interned name table, stored CSR-style: the
+ * tags of row r are tagIds[tagStart[r] .. tagStart[r + 1]). Note bodies are
+ * not kept from the load; setNote caches one once something fetches it.
+ *
+ * Immutable apart from the note cache: edits return a new table. Single-row
+ * edits copy the columns and patch the row; tags of the other rows keep
+ * their ids.
+ */
+final class JournalEntryTable {
+
+    static final long NO_DATE = Long.MIN_VALUE;
+    static final JournalEntryTable EMPTY = new Builder(0).build();
+
+    private final int size;
+    private final String[] ids;
+    private final String[] titles;
+    private final long[] dates;
+    private final byte[] moods;
+    private final int[] tagStart;
+    private final int[] tagIds;
+    private final String[] tagNames;
+    private final String[] imagePaths;
+    private final long[] imageVersions;
+    private final int[] chunkCounts;
+    private final String[] notes;
+    // The first row of each id
+    private final Map<String, Integer> rowsById;
+
+    private JournalEntryTable(Builder b) {
+        size = b.size;
+        ids = Arrays.copyOf(b.ids, size);
+        titles = Arrays.copyOf(b.titles, size);
+        dates = Arrays.copyOf(b.dates, size);
+        moods = Arrays.copyOf(b.moods, size);
+        tagStart = Arrays.copyOf(b.tagStart, size + 1);
+        tagIds = Arrays.copyOf(b.tagIds, b.tagCount);
+        tagNames = b.tagNames.toArray(new String[0]);
+        imagePaths = Arrays.copyOf(b.imagePaths, size);
+        imageVersions = Arrays.copyOf(b.imageVersions, size);
+        chunkCounts = Arrays.copyOf(b.chunkCounts, size);
+        notes = new String[size];
+        rowsById = indexIds(ids);
+    }
+
+    // Takes the columns as they are; rowsById is rebuilt when null
+    private JournalEntryTable(String[] ids, String[] titles, long[] dates, byte[] moods, int[] tagStart,
+                              int[] tagIds, String[] tagNames, String[] imagePaths, long[] imageVersions,
+                              int[] chunkCounts, String[] notes, Map<String, Integer> rowsById) {
+        this.size = ids.length;
+        this.ids = ids;
+        this.titles = titles;
+        this.dates = dates;
+        this.moods = moods;
+        this.tagStart = tagStart;
+        this.tagIds = tagIds;
+        this.tagNames = tagNames;
+        this.imagePaths = imagePaths;
+        this.imageVersions = imageVersions;
+        this.chunkCounts = chunkCounts;
+        this.notes = notes;
+        this.rowsById = rowsById != null ? rowsById : indexIds(ids);
+    }
+
+    private static Map<String, Integer> indexIds(String[] ids) {
+        Map<String, Integer> rows = new HashMap<>(ids.length * 2);
+        for (int row = 0; row < ids.length; row++) {
+            if (ids[row] != null) rows.putIfAbsent(ids[row], row);
+        }
+        return rows;
+    }
+
+    // Rows keep the list's order
+    static JournalEntryTable fromEntries(List<JournalEntry> entries) {
+        Builder builder = new Builder(entries.size());
+        for (JournalEntry entry : entries) {
+            builder.add(entry);
+        }
+        return builder.build();
+    }
+
+    // Summaries carry every column but the note, which loadNote fetches on demand
+    static JournalEntryTable fromSummaries(List<JournalEntrySummary> summaries) {
+        Builder builder = new Builder(summaries.size());
+        for (JournalEntrySummary summary : summaries) {
+            builder.add(summary);
+        }
+        return builder.build();
+    }
+
+    int size() { return size; }
+    String id(int row) { return ids[row]; }
+    int mood(int row) { return moods[row]; }
+    long millis(int row) { return dates[row]; }
+
+    Date date(int row) {
+        return dates[row] != NO_DATE ? new Date(dates[row]) : null;
+    }
+
+    int indexOf(String entryId) {
+        Integer row = entryId != null ? rowsById.get(entryId) : null;
+        return row != null ? row : -1;
+    }
+
+    String note(int row) { return notes[row]; }
+
+    void setNote(int row, String note) {
+        notes[row] = note;
+    }
+
+    // -1 when no row carries the tag
+    int tagId(String tag) {
+        for (int id = 0; id < tagNames.length; id++) {
+            if (tagNames[id].equals(tag)) return id;
+        }
+        return -1;
+    }
+
+    boolean hasTag(int row, int tagId) {
+        for (int i = tagStart[row]; i < tagStart[row + 1]; i++) {
+            if (tagIds[i] == tagId) return true;
+        }
+        return false;
+    }
+
+    // A standalone entry; its note is null unless one has been cached for the row
+    JournalEntry toEntry(int row) {
+        JournalEntry entry = new JournalEntry(date(row), notes[row], moods[row]);
+        entry.setId(ids[row]);
+        entry.setTitle(titles[row]);
+        List<String> tags = new ArrayList<>(tagStart[row + 1] - tagStart[row]);
+        for (int i = tagStart[row]; i < tagStart[row + 1]; i++) {
+            tags.add(tagNames[tagIds[i]]);
+        }
+        entry.setTags(tags);
+        entry.setImagePath(imagePaths[row]);
+        entry.setImageVersion(imageVersions[row]);
+        entry.setChunkCount(chunkCounts[row]);
+        return entry;
+    }
+
+    List<JournalEntry> toEntries() {
+        List<JournalEntry> result = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            result.add(toEntry(row));
+        }
+        return result;
+    }
+
+    List<JournalEntry> entriesWithTag(String tag) {
+        List<JournalEntry> result = new ArrayList<>();
+        int tagId = tagId(tag);
+        if (tagId < 0) return result;
+        for (int row = 0; row < size; row++) {
+            if (hasTag(row, tagId)) result.add(toEntry(row));
+        }
+        return result;
+    }
+
+    List<JournalEntry> entriesWithMood(int mood) {
+        List<JournalEntry> result = new ArrayList<>();
+        for (int row = 0; row < size; row++) {
+            if (moods[row] == mood) result.add(toEntry(row));
+        }
+        return result;
+    }
+
+    // Index is the mood value; moods outside 0..moodCount-1 are not counted
+    int[] moodCounts(int moodCount) {
+        int[] counts = new int[moodCount];
+        for (int row = 0; row < size; row++) {
+            int mood = moods[row];
+            if (mood >= 0 && mood < moodCount) counts[mood]++;
+        }
+        return counts;
+    }
+
+    long lastMillis() {
+        long last = NO_DATE;
+        for (int row = 0; row < size; row++) {
+            if (dates[row] > last) last = dates[row];
+        }
+        return last;
+    }
+
+    int streak() {
+        int dated = 0;
+        long[] sorted = new long[size];
+        for (int row = 0; row < size; row++) {
+            if (dates[row] != NO_DATE) sorted[dated++] = dates[row];
+        }
+        return JournalStats.streakOf(Arrays.copyOf(sorted, dated));
+    }
+
+    JournalStats stats(int moodCount) {
+        int[] counts = moodCounts(moodCount);
+        Map<Integer, Integer> moodMap = new HashMap<>();
+        for (int mood = 0; mood < moodCount; mood++) {
+            moodMap.put(mood, counts[mood]);
+        }
+        long last = lastMillis();
+        return new JournalStats(size, streak(), last != NO_DATE ? new Date(last) : null, moodMap);
+    }
+
+    JournalEntryTable replacing(int row, JournalEntry entry) {
+        return splice(row, 1, entry);
+    }
+
+    // Keeps rows newest first
+    JournalEntryTable inserting(JournalEntry entry) {
+        long millis = entry.getDate() != null ? entry.getDate().getTime() : NO_DATE;
+        int row = 0;
+        while (row < size && dates[row] >= millis) row++;
+        return splice(row, 0, entry);
+    }
+
+    JournalEntryTable without(int row) {
+        return splice(row, 1, null);
+    }
+
+    // Drops `removed` rows at row and puts entry, when not null, in their place
+    private JournalEntryTable splice(int row, int removed, JournalEntry entry) {
+        int added = entry != null ? 1 : 0;
+        int newSize = size - removed + added;
+
+        String[] newIds = splice(ids, new String[newSize], row, removed, added);
+        String[] newTitles = splice(titles, new String[newSize], row, removed, added);
+        long[] newDates = splice(dates, new long[newSize], row, removed, added);
+        byte[] newMoods = splice(moods, new byte[newSize], row, removed, added);
+        String[] newImagePaths = splice(imagePaths, new String[newSize], row, removed, added);
+        long[] newImageVersions = splice(imageVersions, new long[newSize], row, removed, added);
+        int[] newChunkCounts = splice(chunkCounts, new int[newSize], row, removed, added);
+        String[] newNotes = splice(notes, new String[newSize], row, removed, added);
+
+        // Only the new row's tags are looked up; names nothing uses any more stay in the table
+        String[] newTagNames = tagNames;
+        int[] rowTags = new int[0];
+        if (entry != null) {
+            newIds[row] = entry.getId();
+            newTitles[row] = entry.getTitle();
+            newDates[row] = entry.getDate() != null ? entry.getDate().getTime() : NO_DATE;
+            newMoods[row] = (byte) entry.getMood();
+            newImagePaths[row] = entry.getImagePath();
+            newImageVersions[row] = entry.getImageVersion();
+            newChunkCounts[row] = entry.getChunkCount();
+
+            List<String> tags = entry.getTags() != null ? entry.getTags() : new ArrayList<>();
+            rowTags = new int[tags.size()];
+            for (int i = 0; i < rowTags.length; i++) {
+                int id = indexOf(newTagNames, tags.get(i));
+                if (id < 0) {
+                    id = newTagNames.length;
+                    newTagNames = Arrays.copyOf(newTagNames, id + 1);
+                    newTagNames[id] = tags.get(i);
+                }
+                rowTags[i] = id;
+            }
+        }
+
+        int from = tagStart[row];
+        int to = tagStart[row + removed];
+        int shift = rowTags.length - (to - from);
+        int[] newTagIds = new int[tagIds.length + shift];
+        System.arraycopy(tagIds, 0, newTagIds, 0, from);
+        System.arraycopy(rowTags, 0, newTagIds, from, rowTags.length);
+        System.arraycopy(tagIds, to, newTagIds, from + rowTags.length, tagIds.length - to);
+
+        int[] newTagStart = new int[newSize + 1];
+        System.arraycopy(tagStart, 0, newTagStart, 0, row + 1);
+        if (added > 0) newTagStart[row + 1] = from + rowTags.length;
+        for (int r = row + removed + 1; r <= size; r++) {
+            newTagStart[r - removed + added] = tagStart[r] + shift;
+        }
+
+        // A row replaced under the same id leaves every row where it was
+        boolean sameRows = removed == added && (entry == null || Objects.equals(entry.getId(), ids[row]));
+        return new JournalEntryTable(newIds, newTitles, newDates, newMoods, newTagStart, newTagIds, newTagNames,
+                newImagePaths, newImageVersions, newChunkCounts, newNotes, sameRows ? rowsById : null);
+    }
+
+    // Copies from into to around row, leaving `added` slots where `removed` rows were
+    private <A> A splice(A from, A to, int row, int removed, int added) {
+        System.arraycopy(from, 0, to, 0, row);
+        System.arraycopy(from, row + removed, to, row + added, size - row - removed);
+        return to;
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    JournalEntryTable withoutIds(Set<String> entryIds) {
+        Builder builder = new Builder(size);
+        for (int r = 0; r < size; r++) {
+            if (!entryIds.contains(ids[r])) builder.addRow(this, r, -1, null);
+        }
+        return builder.build();
+    }
+
+    JournalEntryTable withoutTag(String tag) {
+        int tagId = tagId(tag);
+        if (tagId < 0) return this;
+        Builder builder = new Builder(size);
+        for (int r = 0; r < size; r++) {
+            builder.addRow(this, r, tagId, null);
+        }
+        return builder.build();
+    }
+
+    // Adds the tag to, or drops it from, the listed rows only
+    JournalEntryTable withTagChange(Set<String> entryIds, String tag, boolean add) {
+        int tagId = tagId(tag);
+        if (!add && tagId < 0) return this;
+        Builder builder = new Builder(size);
+        for (int r = 0; r < size; r++) {
+            if (!entryIds.contains(ids[r])) {
+                builder.addRow(this, r, -1, null);
+            } else if (add) {
+                builder.addRow(this, r, tagId, tag);
+            } else {
+                builder.addRow(this, r, tagId, null);
+            }
+        }
+        return builder.build();
+    }
+
+    private static final class Builder {
+        private int size;
+        private String[] ids;
+        private String[] titles;
+        private long[] dates;
+        private byte[] moods;
+        private int[] tagStart;
+        private int[] tagIds;
+        private int tagCount;
+        private String[] imagePaths;
+        private long[] imageVersions;
+        private int[] chunkCounts;
+        private final List<String> tagNames = new ArrayList<>();
+        private final Map<String, Integer> tagIndex = new HashMap<>();
+        private final List<String> notes = new ArrayList<>();
+
+        Builder(int capacity) {
+            int rows = Math.max(capacity, 1);
+            ids = new String[rows];
+            titles = new String[rows];
+            dates = new long[rows];
+            moods = new byte[rows];
+            tagStart = new int[rows + 1];
+            tagIds = new int[rows * 2];
+            imagePaths = new String[rows];
+            imageVersions = new long[rows];
+            chunkCounts = new int[rows];
+        }
+
+        private void grow() {
+            int rows = ids.length * 2;
+            ids = Arrays.copyOf(ids, rows);
+            titles = Arrays.copyOf(titles, rows);
+            dates = Arrays.copyOf(dates, rows);
+            moods = Arrays.copyOf(moods, rows);
+            tagStart = Arrays.copyOf(tagStart, rows + 1);
+            imagePaths = Arrays.copyOf(imagePaths, rows);
+            imageVersions = Arrays.copyOf(imageVersions, rows);
+            chunkCounts = Arrays.copyOf(chunkCounts, rows);
+        }
+
+        private void addTag(String name) {
+            Integer id = tagIndex.get(name);
+            if (id == null) {
+                id = tagNames.size();
+                tagNames.add(name);
+                tagIndex.put(name, id);
+            }
+            if (tagCount == tagIds.length) tagIds = Arrays.copyOf(tagIds, tagIds.length * 2);
+            tagIds[tagCount++] = id;
+        }
+
+        void add(JournalEntry entry) {
+            if (size == ids.length) grow();
+            ids[size] = entry.getId();
+            titles[size] = entry.getTitle();
+            dates[size] = entry.getDate() != null ? entry.getDate().getTime() : NO_DATE;
+            moods[size] = (byte) entry.getMood();
+            if (entry.getTags() != null) {
+                for (String tag : entry.getTags()) {
+                    addTag(tag);
+                }
+            }
+            imagePaths[size] = entry.getImagePath();
+            imageVersions[size] = entry.getImageVersion();
+            chunkCounts[size] = entry.getChunkCount();
+            notes.add(null);
+            tagStart[++size] = tagCount;
+        }
+
+        void add(JournalEntrySummary summary) {
+            if (size == ids.length) grow();
+            ids[size] = summary.getId();
+            titles[size] = summary.getTitle();
+            dates[size] = summary.getDate() != null ? summary.getDate().getTime() : NO_DATE;
+            moods[size] = (byte) summary.getMood();
+            for (String tag : summary.getTags()) {
+                addTag(tag);
+            }
+            imagePaths[size] = summary.getImagePath();
+            imageVersions[size] = summary.getImageVersion();
+            chunkCounts[size] = summary.getChunkCount();
+            notes.add(null);
+            tagStart[++size] = tagCount;
+        }
+
+        // Copies a row of another table, dropping skipTagId from its tags (-1 keeps them all)
+        // and appending extraTag when it is not null
+        void addRow(JournalEntryTable from, int row, int skipTagId, String extraTag) {
+            if (size == ids.length) grow();
+            ids[size] = from.ids[row];
+            titles[size] = from.titles[row];
+            dates[size] = from.dates[row];
+            moods[size] = from.moods[row];
+            for (int i = from.tagStart[row]; i < from.tagStart[row + 1]; i++) {
+                if (from.tagIds[i] != skipTagId) addTag(from.tagNames[from.tagIds[i]]);
+            }
+            if (extraTag != null) addTag(extraTag);
+            imagePaths[size] = from.imagePaths[row];
+            imageVersions[size] = from.imageVersions[row];
+            chunkCounts[size] = from.chunkCounts[row];
+            notes.add(from.notes[row]);
+            tagStart[++size] = tagCount;
+        }
+
+        JournalEntryTable build() {
+            JournalEntryTable table = new JournalEntryTable(this);
+            for (int row = 0; row < size; row++) {
+                table.notes[row] = notes.get(row);
+            }
+            return table;
+        }
+    }
+}
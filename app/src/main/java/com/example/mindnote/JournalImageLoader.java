@@ -0,0 +1,108 @@
+package com.example.mindnote;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.signature.ObjectKey;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Lets Glide load "sha256:" image refs straight from JournalImageStore, so
+ * views and preloads pass entry imagePath values without resolving them.
+ */
+class JournalImageLoader implements ModelLoader<String, InputStream> {
+
+    private final JournalImageStore store;
+
+    JournalImageLoader(JournalImageStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public LoadData<InputStream> buildLoadData(@NonNull String model, int width, int height,
+                                               @NonNull Options options) {
+        return new LoadData<>(new ObjectKey(model), new Fetcher(store, JournalImageStore.hashOf(model)));
+    }
+
+    @Override
+    public boolean handles(@NonNull String model) {
+        return JournalImageStore.isRef(model);
+    }
+
+    static class Factory implements ModelLoaderFactory<String, InputStream> {
+        private final JournalImageStore store;
+
+        Factory(JournalImageStore store) {
+            this.store = store;
+        }
+
+        @NonNull
+        @Override
+        public ModelLoader<String, InputStream> build(@NonNull MultiModelLoaderFactory multiFactory) {
+            return new JournalImageLoader(store);
+        }
+
+        @Override
+        public void teardown() {
+        }
+    }
+
+    // Runs on Glide's source executor, where blocking on a download is expected
+    private static class Fetcher implements DataFetcher<InputStream> {
+        private final JournalImageStore store;
+        private final String hash;
+        private InputStream stream;
+
+        Fetcher(JournalImageStore store, String hash) {
+            this.store = store;
+            this.hash = hash;
+        }
+
+        @Override
+        public void loadData(@NonNull Priority priority, @NonNull DataCallback<? super InputStream> callback) {
+            try {
+                File file = store.fetch(hash);
+                stream = new FileInputStream(file);
+                callback.onDataReady(stream);
+            } catch (IOException e) {
+                callback.onLoadFailed(e);
+            }
+        }
+
+        @Override
+        public void cleanup() {
+            if (stream == null) return;
+            try {
+                stream.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        @Override
+        public void cancel() {
+        }
+
+        @NonNull
+        @Override
+        public Class<InputStream> getDataClass() {
+            return InputStream.class;
+        }
+
+        // The store keeps the original on disk, so Glide only needs to cache decoded resources
+        @NonNull
+        @Override
+        public DataSource getDataSource() {
+            return DataSource.LOCAL;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.example.mindnote;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageReference;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Content-addressed storage for entry photos. An image is stored once per
+ * user under the SHA-256 of its bytes, at users/{uid}/images/{hash} in
+ * Storage, and entries reference it as "sha256:{hash}" in imagePath.
+ *
+ * A local index maps hashes to files under filesDir/images, so a blob
+ * imported or downloaded once is never fetched or uploaded again. Entry
+ * writes keep a reference count in users/{uid}/images/{hash};
+ * collectGarbage() removes blobs whose count has stayed at zero.
+ */
+public class JournalImageStore {
+
+    private static final String TAG = "JournalImageStore";
+    private static final String REF_PREFIX = "sha256:";
+    private static final String PREFS = "journal_image_index";
+    private static final String FILE_KEY = "file:";
+    private static final String PENDING_KEY = "pending:";
+    private static final String UPLOADED_KEY = "uploaded:";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // A released blob may be picked up again by an entry being saved; give that time to land
+    private static final long GC_GRACE_MS = 24 * 60 * 60 * 1000L;
+
+    private static JournalImageStore instance;
+
+    private final Context context;
+    private final File blobDir;
+    private final SharedPreferences index;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private JournalImageStore(Context context) {
+        this.context = context.getApplicationContext();
+        this.blobDir = new File(this.context.getFilesDir(), "images");
+        this.index = this.context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    public static synchronized JournalImageStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new JournalImageStore(context);
+        }
+        return instance;
+    }
+
+    public static boolean isRef(String imagePath) {
+        return imagePath != null && imagePath.startsWith(REF_PREFIX);
+    }
+
+    public static String hashOf(String ref) {
+        return ref.substring(REF_PREFIX.length());
+    }
+
+    // Local picks and camera captures; stored refs, demo images and web URLs are used as they are
+    public static boolean needsStoring(Uri uri) {
+        return uri != null && ("content".equals(uri.getScheme()) || "file".equals(uri.getScheme()));
+    }
+
+    public static CollectionReference refCountsRef(FirebaseFirestore db, String uid) {
+        return db.collection("users").document(uid).collection("images");
+    }
+
+    private static StorageReference blobRef(String uid, String hash) {
+        return FirebaseStorage.getInstance().getReference().child("users/" + uid + "/images/" + hash);
+    }
+
+    private static String currentUid() {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        return user != null ? user.getUid() : null;
+    }
+
+    /**
+     * Copies the image into the store and passes its ref on the main thread as
+     * soon as it is hashed; the upload, if this user does not have the blob
+     * yet, continues in the background and is retried by uploadPending().
+     */
+    public void store(Uri source, Consumer<String> onStored, Consumer<Exception> onFailure) {
+        executor.execute(() -> {
+            String uid = currentUid();
+            String hash;
+            try {
+                hash = importBlob(source, uid);
+            } catch (IOException e) {
+                mainHandler.post(() -> onFailure.accept(e));
+                return;
+            }
+            String ref = REF_PREFIX + hash;
+            mainHandler.post(() -> onStored.accept(ref));
+            if (uid != null) upload(uid, hash);
+        });
+    }
+
+    // Hashes while copying, so the bytes are read once
+    private String importBlob(Uri source, String uid) throws IOException {
+        if (!blobDir.exists() && !blobDir.mkdirs()) {
+            throw new IOException("Cannot create " + blobDir);
+        }
+        File temp = File.createTempFile("import", null, blobDir);
+        String hash;
+        try (InputStream in = context.getContentResolver().openInputStream(source)) {
+            if (in == null) throw new IOException("Cannot open " + source);
+            hash = copyHashing(in, temp);
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+
+        File blob = new File(blobDir, hash);
+        if (blob.exists() || !temp.renameTo(blob)) {
+            temp.delete();
+        }
+        SharedPreferences.Editor editor = index.edit().putString(FILE_KEY + hash, blob.getPath());
+        if (uid != null && !index.getBoolean(UPLOADED_KEY + uid + ":" + hash, false)) {
+            editor.putBoolean(PENDING_KEY + uid + ":" + hash, true);
+        }
+        editor.apply();
+        return hash;
+    }
+
+    private static String copyHashing(InputStream in, File target) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (DigestInputStream digestIn = new DigestInputStream(in, digest);
+             OutputStream out = new FileOutputStream(target)) {
+            int read;
+            while ((read = digestIn.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private File localFile(String hash) {
+        String path = index.getString(FILE_KEY + hash, null);
+        if (path == null) return null;
+        File file = new File(path);
+        if (file.exists()) return file;
+        index.edit().remove(FILE_KEY + hash).apply();
+        return null;
+    }
+
+    // Blocks; skips the transfer when the blob is already in this user's storage
+    private boolean upload(String uid, String hash) {
+        String uploadedKey = UPLOADED_KEY + uid + ":" + hash;
+        String pendingKey = PENDING_KEY + uid + ":" + hash;
+        if (index.getBoolean(uploadedKey, false)) {
+            index.edit().remove(pendingKey).apply();
+            return true;
+        }
+        File file = localFile(hash);
+        if (file == null) {
+            index.edit().remove(pendingKey).apply();
+            return false;
+        }
+
+        StorageReference ref = blobRef(uid, hash);
+        try {
+            try {
+                Tasks.await(ref.getMetadata());
+            } catch (ExecutionException e) {
+                if (!isNotFound(e)) throw e;
+                Tasks.await(ref.putFile(Uri.fromFile(file)));
+            }
+            index.edit().putBoolean(uploadedKey, true).remove(pendingKey).apply();
+            return true;
+        } catch (ExecutionException | InterruptedException e) {
+            Log.w(TAG, "Upload of " + hash + " failed", e);
+            return false;
+        }
+    }
+
+    private static boolean isNotFound(ExecutionException e) {
+        return e.getCause() instanceof StorageException
+                && ((StorageException) e.getCause()).getErrorCode() == StorageException.ERROR_OBJECT_NOT_FOUND;
+    }
+
+    // Blocks; for background work. Returns false if any upload is still outstanding
+    public boolean uploadPending() {
+        String uid = currentUid();
+        if (uid == null) return true;
+
+        String prefix = PENDING_KEY + uid + ":";
+        boolean allDone = true;
+        for (String key : index.getAll().keySet()) {
+            if (key.startsWith(prefix) && !upload(uid, key.substring(prefix.length()))) {
+                allDone = false;
+            }
+        }
+        return allDone;
+    }
+
+    /**
+     * Returns the local file for a blob, downloading it on first use. Blocks,
+     * so it is only called from image loading and background threads.
+     */
+    public File fetch(String hash) throws IOException {
+        File file = localFile(hash);
+        if (file != null) return file;
+
+        String uid = currentUid();
+        if (uid == null) throw new IOException("Not signed in");
+        if (!blobDir.exists() && !blobDir.mkdirs()) {
+            throw new IOException("Cannot create " + blobDir);
+        }
+
+        File temp = File.createTempFile("download", null, blobDir);
+        try {
+            Tasks.await(blobRef(uid, hash).getFile(temp));
+        } catch (ExecutionException | InterruptedException e) {
+            temp.delete();
+            throw new IOException("Download of " + hash + " failed", e);
+        }
+
+        File blob = new File(blobDir, hash);
+        if (blob.exists() || !temp.renameTo(blob)) {
+            temp.delete();
+        }
+        index.edit()
+                .putString(FILE_KEY + hash, blob.getPath())
+                .putBoolean(UPLOADED_KEY + uid + ":" + hash, true)
+                .apply();
+        return blob;
+    }
+
+    /**
+     * Deletes blobs that no entry has referenced for GC_GRACE_MS, from
+     * Storage and from the local index. Blocks; for background work.
+     */
+    public void collectGarbage() throws ExecutionException, InterruptedException {
+        String uid = currentUid();
+        if (uid == null) return;
+
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        QuerySnapshot released = Tasks.await(refCountsRef(db, uid)
+                .whereLessThanOrEqualTo("refs", 0)
+                .get(Source.SERVER));
+        long cutoff = System.currentTimeMillis() - GC_GRACE_MS;
+
+        int collected = 0;
+        for (QueryDocumentSnapshot doc : released) {
+            Timestamp releasedAt = doc.getTimestamp("releasedAt");
+            if (releasedAt == null || releasedAt.toDate().getTime() > cutoff) continue;
+
+            // Re-checked in a transaction so an entry saved since the query keeps its image
+            DocumentReference countRef = doc.getReference();
+            Boolean orphaned = Tasks.await(db.runTransaction(transaction -> {
+                DocumentSnapshot current = transaction.get(countRef);
+                Long refs = current.getLong("refs");
+                if (refs != null && refs > 0) return false;
+                transaction.delete(countRef);
+                return true;
+            }));
+            if (!Boolean.TRUE.equals(orphaned)) continue;
+
+            String hash = doc.getId();
+            try {
+                Tasks.await(blobRef(uid, hash).delete());
+            } catch (ExecutionException e) {
+                if (!isNotFound(e)) throw e;
+            }
+            File file = localFile(hash);
+            if (file != null) file.delete();
+            index.edit()
+                    .remove(FILE_KEY + hash)
+                    .remove(UPLOADED_KEY + uid + ":" + hash)
+                    .remove(PENDING_KEY + uid + ":" + hash)
+                    .apply();
+            collected++;
+        }
+        Log.d(TAG, "Collected " + collected + " orphaned images");
+    }
+}
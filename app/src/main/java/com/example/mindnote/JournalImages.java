@@ -0,0 +1,126 @@
+package com.example.mindnote;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.os.Bundle;
+import android.util.Log;
+import android.widget.ImageView;
+
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.signature.ObjectKey;
+import com.google.firebase.analytics.FirebaseAnalytics;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared entry image loading. Cache keys are tied to the entry id and image
+ * version, so an image is only decoded again when the entry's image changes.
+ */
+public final class JournalImages {
+
+    private static final String TAG = "JournalImages";
+
+    private static final AtomicLong memoryHits = new AtomicLong();
+    private static final AtomicLong diskHits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong failures = new AtomicLong();
+
+    private static final RequestListener<Drawable> METRICS = new RequestListener<Drawable>() {
+        @Override
+        public boolean onLoadFailed(@Nullable GlideException e, Object model,
+                                    Target<Drawable> target, boolean isFirstResource) {
+            failures.incrementAndGet();
+            return false;
+        }
+
+        @Override
+        public boolean onResourceReady(Drawable resource, Object model, Target<Drawable> target,
+                                       DataSource dataSource, boolean isFirstResource) {
+            switch (dataSource) {
+                case MEMORY_CACHE:
+                    memoryHits.incrementAndGet();
+                    break;
+                case RESOURCE_DISK_CACHE:
+                case DATA_DISK_CACHE:
+                    diskHits.incrementAndGet();
+                    break;
+                default:
+                    misses.incrementAndGet();
+                    break;
+            }
+            return false;
+        }
+    };
+
+    private JournalImages() {}
+
+    public static ObjectKey signature(String entryId, long imageVersion) {
+        return new ObjectKey(entryId + ":" + imageVersion);
+    }
+
+    // List thumbnails decode as RGB_565: half the memory, and the photos have no alpha
+    public static void loadThumbnail(ImageView view, String entryId, String imageRef, long imageVersion) {
+        Glide.with(view)
+                .load(imageRef)
+                .signature(signature(entryId, imageVersion))
+                .format(DecodeFormat.PREFER_RGB_565)
+                .listener(METRICS)
+                .into(view);
+    }
+
+    public static void loadFull(ImageView view, String entryId, Object image, long imageVersion) {
+        Glide.with(view)
+                .load(image)
+                .signature(signature(entryId, imageVersion))
+                .listener(METRICS)
+                .into(view);
+    }
+
+    // Fetches the source image into the disk cache under the same key the views use; blocks
+    public static void preload(Context context, String entryId, String imageRef, long imageVersion) {
+        try {
+            Glide.with(context.getApplicationContext())
+                    .downloadOnly()
+                    .load(imageRef)
+                    .signature(signature(entryId, imageVersion))
+                    .submit()
+                    .get();
+        } catch (ExecutionException | InterruptedException e) {
+            Log.w(TAG, "Failed to preload image for " + entryId, e);
+        }
+    }
+
+    public static double getMemoryHitRatio() {
+        long total = getRequestCount();
+        return total == 0 ? 0 : (double) memoryHits.get() / total;
+    }
+
+    public static double getHitRatio() {
+        long total = getRequestCount();
+        return total == 0 ? 0 : (double) (memoryHits.get() + diskHits.get()) / total;
+    }
+
+    public static long getRequestCount() {
+        return memoryHits.get() + diskHits.get() + misses.get();
+    }
+
+    // Flushes the counters since the last report as one analytics event
+    public static void reportMetrics(FirebaseAnalytics analytics) {
+        if (analytics == null || getRequestCount() == 0) return;
+
+        Bundle bundle = new Bundle();
+        bundle.putLong("memory_hits", memoryHits.getAndSet(0));
+        bundle.putLong("disk_hits", diskHits.getAndSet(0));
+        bundle.putLong("misses", misses.getAndSet(0));
+        bundle.putLong("failures", failures.getAndSet(0));
+        analytics.logEvent("image_cache_stats", bundle);
+    }
+}
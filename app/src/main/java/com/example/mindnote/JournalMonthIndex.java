@@ -0,0 +1,117 @@
+package com.example.mindnote;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+
+/**
+ * In-memory copy of a users/{uid}/days/{yyyy-MM} document: day of month to
+ * the ids and moods of the entries written that day.
+ */
+public class JournalMonthIndex {
+
+    private final String monthKey;
+    private final Map<Integer, Map<String, Integer>> days = new HashMap<>();
+
+    public JournalMonthIndex(String monthKey) {
+        this.monthKey = monthKey;
+    }
+
+    public static String monthKey(Date date) {
+        return new SimpleDateFormat("yyyy-MM", Locale.US).format(date);
+    }
+
+    public static String monthKey(int year, int month) {
+        return String.format(Locale.US, "%04d-%02d", year, month + 1);
+    }
+
+    public static int dayOfMonth(Date date) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(date);
+        return cal.get(Calendar.DAY_OF_MONTH);
+    }
+
+    public static JournalMonthIndex fromSnapshot(String monthKey, DocumentSnapshot doc) {
+        JournalMonthIndex index = new JournalMonthIndex(monthKey);
+        if (doc == null || !doc.exists() || !(doc.get("days") instanceof Map)) return index;
+
+        for (Map.Entry<?, ?> day : ((Map<?, ?>) doc.get("days")).entrySet()) {
+            if (!(day.getValue() instanceof Map)) continue;
+            int dayOfMonth;
+            try {
+                dayOfMonth = Integer.parseInt(String.valueOf(day.getKey()));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) day.getValue()).entrySet()) {
+                int mood = entry.getValue() instanceof Number ? ((Number) entry.getValue()).intValue() : 0;
+                index.put(dayOfMonth, String.valueOf(entry.getKey()), mood);
+            }
+        }
+        return index;
+    }
+
+    public static Map<String, JournalMonthIndex> fromEntries(List<JournalEntry> entries) {
+        Map<String, JournalMonthIndex> indexes = new HashMap<>();
+        for (JournalEntry entry : entries) {
+            if (entry.getDate() == null || entry.getId() == null) continue;
+            String monthKey = monthKey(entry.getDate());
+            JournalMonthIndex index = indexes.get(monthKey);
+            if (index == null) {
+                index = new JournalMonthIndex(monthKey);
+                indexes.put(monthKey, index);
+            }
+            index.put(dayOfMonth(entry.getDate()), entry.getId(), entry.getMood());
+        }
+        return indexes;
+    }
+
+    // The "days" map in the stored document's shape
+    public Map<String, Object> toDays() {
+        Map<String, Object> result = new HashMap<>();
+        for (Map.Entry<Integer, Map<String, Integer>> day : days.entrySet()) {
+            result.put(String.valueOf(day.getKey()), new HashMap<String, Object>(day.getValue()));
+        }
+        return result;
+    }
+
+    public void put(int dayOfMonth, String entryId, int mood) {
+        Map<String, Integer> day = days.get(dayOfMonth);
+        if (day == null) {
+            day = new LinkedHashMap<>();
+            days.put(dayOfMonth, day);
+        }
+        day.put(entryId, mood);
+    }
+
+    public void remove(int dayOfMonth, String entryId) {
+        Map<String, Integer> day = days.get(dayOfMonth);
+        if (day == null) return;
+        day.remove(entryId);
+        if (day.isEmpty()) days.remove(dayOfMonth);
+    }
+
+    public String getMonthKey() { return monthKey; }
+
+    public List<String> getEntryIds(int dayOfMonth) {
+        Map<String, Integer> day = days.get(dayOfMonth);
+        return day != null ? new ArrayList<>(day.keySet()) : new ArrayList<>();
+    }
+
+    public Map<String, Integer> getMoods(int dayOfMonth) {
+        Map<String, Integer> day = days.get(dayOfMonth);
+        return day != null ? new LinkedHashMap<>(day) : new LinkedHashMap<>();
+    }
+
+    public boolean hasEntries(int dayOfMonth) {
+        return days.containsKey(dayOfMonth);
+    }
+}
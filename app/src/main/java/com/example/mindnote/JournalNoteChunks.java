@@ -0,0 +1,78 @@
+package com.example.mindnote;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits long notes into the chunk documents stored under
+ * users/{uid}/entries/{id}/chunks. Chunks end on paragraph breaks where
+ * possible, so an edit usually changes only the chunk it falls in.
+ */
+public final class JournalNoteChunks {
+
+    // Notes up to this many chars stay inline in the entry document
+    public static final int INLINE_LIMIT = 16_000;
+    private static final int TARGET_CHUNK = 8_000;
+    private static final int MAX_CHUNK = 16_000;
+
+    private JournalNoteChunks() {}
+
+    public static boolean needsChunking(String note) {
+        return note != null && note.length() > INLINE_LIMIT;
+    }
+
+    public static List<String> split(String note) {
+        List<String> chunks = new ArrayList<>();
+        int pos = 0;
+        while (pos < note.length()) {
+            int end = findChunkEnd(note, pos);
+            chunks.add(note.substring(pos, end));
+            pos = end;
+        }
+        return chunks;
+    }
+
+    private static int findChunkEnd(String note, int start) {
+        if (note.length() - start <= MAX_CHUNK) return note.length();
+
+        int limit = start + MAX_CHUNK;
+        int paragraph = note.indexOf("\n\n", start + TARGET_CHUNK);
+        if (paragraph != -1 && paragraph + 2 <= limit) return paragraph + 2;
+
+        int line = note.indexOf('\n', start + TARGET_CHUNK);
+        if (line != -1 && line + 1 <= limit) return line + 1;
+
+        // No break in range; cut hard but never between a surrogate pair
+        return Character.isHighSurrogate(note.charAt(limit - 1)) ? limit - 1 : limit;
+    }
+
+    public static List<String> hashes(List<String> chunks) {
+        List<String> result = new ArrayList<>();
+        for (String chunk : chunks) {
+            result.add(hash(chunk));
+        }
+        return result;
+    }
+
+    public static String hash(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] bytes = digest.digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                hex.append(String.format(Locale.US, "%02x", bytes[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    public static String chunkId(int index) {
+        return String.format(Locale.US, "%05d", index);
+    }
+}
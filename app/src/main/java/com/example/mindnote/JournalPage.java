@@ -0,0 +1,29 @@
+package com.example.mindnote;
+
+import java.util.List;
+
+/**
+ * One page of a JournalQuery. Pass it back to the same query to fetch the
+ * page after it; the cursor inside is specific to the backend that made it.
+ */
+public class JournalPage {
+
+    private final List<JournalEntrySummary> items;
+    private final Object cursor;
+    private final boolean hasMore;
+    private final boolean fromCache;
+
+    public JournalPage(List<JournalEntrySummary> items, Object cursor, boolean hasMore, boolean fromCache) {
+        this.items = items;
+        this.cursor = cursor;
+        this.hasMore = hasMore;
+        this.fromCache = fromCache;
+    }
+
+    public List<JournalEntrySummary> getItems() { return items; }
+    public Object getCursor() { return cursor; }
+    public boolean hasMore() { return hasMore; }
+
+    // True when the server was unreachable and the page came from the local cache
+    public boolean isFromCache() { return fromCache; }
+}
@@ -0,0 +1,56 @@
+package com.example.mindnote;
+
+import java.util.Date;
+
+/**
+ * Filter for a paged entry query. Every condition is optional; results are
+ * always newest first. Backends push the conditions down to storage, so a
+ * filtered view reads only what it shows.
+ */
+public class JournalQuery {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    private String tag;
+    private Integer mood;
+    private Date from;
+    private Date to;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+
+    public JournalQuery tag(String tag) {
+        this.tag = tag;
+        return this;
+    }
+
+    public JournalQuery mood(int mood) {
+        this.mood = mood;
+        return this;
+    }
+
+    // from is inclusive, to exclusive; either may be null
+    public JournalQuery between(Date from, Date to) {
+        this.from = from;
+        this.to = to;
+        return this;
+    }
+
+    public JournalQuery pageSize(int pageSize) {
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    public String getTag() { return tag; }
+    public Integer getMood() { return mood; }
+    public Date getFrom() { return from; }
+    public Date getTo() { return to; }
+    public int getPageSize() { return pageSize; }
+
+    public boolean matches(JournalEntry entry) {
+        if (tag != null && (entry.getTags() == null || !entry.getTags().contains(tag))) return false;
+        if (mood != null && entry.getMood() != mood) return false;
+        Date date = entry.getDate();
+        if (from != null && (date == null || date.before(from))) return false;
+        if (to != null && (date == null || !date.before(to))) return false;
+        return true;
+    }
+}
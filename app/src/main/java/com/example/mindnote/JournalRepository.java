@@ -0,0 +1,80 @@
+package com.example.mindnote;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Storage behind JournalDataManager. FirestoreJournalRepository is what the app
+ * ships with; InMemoryJournalRepository and SQLiteJournalRepository let the data
+ * layer run, and be measured, without Firebase.
+ *
+ * Every call reports exactly once through onSuccess or onFailure, except
+ * loadSummaries, loadRecentSummaries and loadStats, which may answer from a
+ * local cache before fresh data.
+ */
+public interface JournalRepository {
+
+    // Newest first
+    void loadEntries(Consumer<List<JournalEntry>> onSuccess, Consumer<Exception> onFailure);
+
+    // Newest first
+    void loadSummaries(Consumer<List<JournalEntrySummary>> onSuccess, Consumer<Exception> onFailure);
+
+    void loadRecentSummaries(int limit, Consumer<List<JournalEntrySummary>> onSuccess, Consumer<Exception> onFailure);
+
+    // Newest first; after is the previous page of the same query, or null for the first page
+    void queryEntries(JournalQuery query, JournalPage after,
+                      Consumer<JournalPage> onSuccess, Consumer<Exception> onFailure);
+
+    // Passes null when there is no such entry
+    void fetchEntry(String entryId, Consumer<JournalEntry> onSuccess, Consumer<Exception> onFailure);
+
+    // Body chunks of a note stored with chunkCount > 0; other backends never chunk
+    void loadNoteChunks(String entryId, int from, int count,
+                        Consumer<List<String>> onSuccess, Consumer<Exception> onFailure);
+
+    // Stores a new entry and assigns its id, together with any counters or indexes the backend keeps
+    void addEntry(JournalEntry entry, Runnable onSuccess, Consumer<Exception> onFailure);
+
+    // Writes what differs between the loaded entry and its edited copy; updated takes original's id and date
+    void updateEntry(JournalEntry original, JournalEntry updated, Runnable onSuccess, Consumer<Exception> onFailure);
+
+    // known carries the mood and date of the entry when the caller has them, otherwise null
+    void deleteEntry(String entryId, JournalEntrySummary known, Runnable onSuccess, Consumer<Exception> onFailure);
+
+    // Bulk writes go out in as few round trips as the backend allows; onChunkCommitted
+    // passes the ids of each group of entries as it is durably written
+    void deleteEntries(List<JournalEntrySummary> entries, Consumer<List<String>> onChunkCommitted,
+                       Runnable onSuccess, Consumer<Exception> onFailure);
+
+    // Adds the tag to, or removes it from, every listed entry
+    void updateEntryTags(List<String> entryIds, String tag, boolean add, Consumer<List<String>> onChunkCommitted,
+                         Runnable onSuccess, Consumer<Exception> onFailure);
+
+    void loadTags(Consumer<List<String>> onSuccess, Consumer<Exception> onFailure);
+
+    void saveTags(List<String> tags, Runnable onSuccess, Consumer<Exception> onFailure);
+
+    // Passes the number of entries that carried the tag
+    void removeTagFromEntries(String tag, Consumer<Integer> onSuccess, Consumer<Exception> onFailure);
+
+    void loadStats(Consumer<JournalStats> onSuccess, Consumer<Exception> onFailure);
+
+    // Corrects stored stats after a full load; backends that derive stats on read ignore it
+    void saveStats(JournalStats stats, Runnable onSuccess, Consumer<Exception> onFailure);
+
+    void loadMonthIndex(String monthKey, Consumer<JournalMonthIndex> onSuccess, Consumer<Exception> onFailure);
+
+    // Rewrites stored month indexes; backends that derive them on read ignore it
+    void saveMonthIndexes(Collection<JournalMonthIndex> indexes, Runnable onSuccess, Consumer<Exception> onFailure);
+
+    // Months compacted out of the entry queries above; backends that never archive pass an empty index
+    void loadArchiveIndex(Consumer<JournalArchiveIndex> onSuccess, Consumer<Exception> onFailure);
+
+    // The archived entries of one month, newest first
+    void loadArchive(String monthKey, Consumer<List<JournalEntry>> onSuccess, Consumer<Exception> onFailure);
+
+    // Moves archived entries back among the live ones, so they can be edited and deleted like any other
+    void restoreArchived(List<JournalEntrySummary> entries, Runnable onSuccess, Consumer<Exception> onFailure);
+}
@@ -0,0 +1,153 @@
+package com.example.mindnote;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+
+/**
+ * Snapshot of the maintained users/{uid}/meta/stats document.
+ */
+public class JournalStats {
+
+    private final int entryCount;
+    private final int streak;
+    private final Date lastEntryDate;
+    private final Map<Integer, Integer> moodCounts;
+
+    public JournalStats(int entryCount, int streak, Date lastEntryDate, Map<Integer, Integer> moodCounts) {
+        this.entryCount = entryCount;
+        this.streak = streak;
+        this.lastEntryDate = lastEntryDate;
+        this.moodCounts = moodCounts != null ? moodCounts : new HashMap<>();
+    }
+
+    public static JournalStats empty() {
+        return new JournalStats(0, 0, null, null);
+    }
+
+    public static JournalStats fromSnapshot(DocumentSnapshot doc) {
+        if (doc == null || !doc.exists()) return empty();
+        Long count = doc.getLong("entryCount");
+        Long streak = doc.getLong("streak");
+
+        Map<Integer, Integer> moods = new HashMap<>();
+        Object raw = doc.get("moodCounts");
+        if (raw instanceof Map) {
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) raw).entrySet()) {
+                if (e.getValue() instanceof Number) {
+                    try {
+                        moods.put(Integer.parseInt(String.valueOf(e.getKey())),
+                                Math.max(0, ((Number) e.getValue()).intValue()));
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+            }
+        }
+
+        return new JournalStats(
+                count != null ? Math.max(0, count.intValue()) : 0,
+                streak != null ? streak.intValue() : 0,
+                doc.getDate("lastEntryDate"),
+                moods);
+    }
+
+    // Computes everything from the entries themselves, for backends without a stats document
+    public static JournalStats fromEntries(List<JournalEntry> entries, int moodCount) {
+        Map<Integer, Integer> moods = new HashMap<>();
+        for (int mood = 0; mood < moodCount; mood++) {
+            moods.put(mood, 0);
+        }
+        Date last = null;
+        for (JournalEntry entry : entries) {
+            moods.put(entry.getMood(), moods.getOrDefault(entry.getMood(), 0) + 1);
+            Date date = entry.getDate();
+            if (date != null && (last == null || date.after(last))) {
+                last = date;
+            }
+        }
+        return new JournalStats(entries.size(), streakOf(entries), last, moods);
+    }
+
+    public static int streakOf(List<JournalEntry> entries) {
+        long[] millis = new long[entries.size()];
+        int dated = 0;
+        for (JournalEntry entry : entries) {
+            if (entry.getDate() != null) millis[dated++] = entry.getDate().getTime();
+        }
+        return streakOf(Arrays.copyOf(millis, dated));
+    }
+
+    // Sorts millis in place
+    public static int streakOf(long[] millis) {
+        if (millis.length == 0) return 0;
+
+        Arrays.sort(millis); // walked from the end, newest first
+
+        int streak = 1;
+        long prev = millis[millis.length - 1];
+        for (int i = millis.length - 2; i >= 0; i--) {
+            long current = millis[i];
+            long daysBetween = (prev - current) / (1000 * 60 * 60 * 24);
+
+            if (daysBetween == 1) {
+                streak++;
+                prev = current;
+            } else if (daysBetween > 1) {
+                break;
+            }
+        }
+        return streak;
+    }
+
+    // Streak after writing an entry on day today, given the stored last entry day
+    public static long advanceStreak(Long lastDay, Long streak, long today, long yesterday) {
+        if (lastDay != null && lastDay == today) {
+            return streak != null ? streak : 1;
+        } else if (lastDay != null && lastDay == yesterday) {
+            return (streak != null ? streak : 0) + 1;
+        }
+        return 1;
+    }
+
+    // Set with the first absolute counters. Saves and deletes only increment, so before it the
+    // counters may hold nothing but the changes made since the stats document appeared.
+    public static final String COUNTS_SEEDED = "countsSeeded";
+
+    public static boolean isInitialized(DocumentSnapshot doc) {
+        return doc != null && doc.exists() && Boolean.TRUE.equals(doc.getBoolean(COUNTS_SEEDED));
+    }
+
+    // Calendar-day key used to advance the streak without reading entries
+    public static long dayKey(Date date) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(date);
+        return cal.get(Calendar.YEAR) * 10000L + (cal.get(Calendar.MONTH) + 1) * 100L + cal.get(Calendar.DAY_OF_MONTH);
+    }
+
+    public static long previousDayKey(Date date) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(date);
+        cal.add(Calendar.DAY_OF_MONTH, -1);
+        return dayKey(cal.getTime());
+    }
+
+    public int getEntryCount() { return entryCount; }
+    public int getStreak() { return streak; }
+    public Date getLastEntryDate() { return lastEntryDate; }
+    public Map<Integer, Integer> getMoodCountsByValue() { return moodCounts; }
+
+    public Map<String, Integer> getMoodCounts() {
+        Map<String, Integer> moodMap = new HashMap<>();
+        for (Map.Entry<Integer, Integer> e : moodCounts.entrySet()) {
+            if (e.getValue() <= 0) continue;
+            String emoji = JournalEntry.moodEmoji(e.getKey());
+            moodMap.put(emoji, moodMap.getOrDefault(emoji, 0) + e.getValue());
+        }
+        return moodMap;
+    }
+}
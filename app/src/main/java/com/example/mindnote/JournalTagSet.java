@@ -0,0 +1,118 @@
+package com.example.mindnote;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * An entry's tags as a last-writer-wins element set. The tagClocks field
+ * maps each tag ever used on the entry to the HLC timestamps of its latest
+ * add ("a") and latest remove ("r"), and the tag is in the set while its add
+ * is the later of the two. Merging takes the later timestamp per tag and
+ * side, so replicas agree whatever order the edits arrive in. The tags
+ * array stays a plain projection for queries and older clients.
+ */
+final class JournalTagSet {
+
+    static final String FIELD = "tagClocks";
+    static final String ADDED = "a";
+    static final String REMOVED = "r";
+
+    // Tag to its add and remove timestamps
+    private final Map<String, Map<String, String>> clocks;
+
+    private JournalTagSet(Map<String, Map<String, String>> clocks) {
+        this.clocks = clocks;
+    }
+
+    /**
+     * Reads the stored clocks. Tags in the array without clocks, from before
+     * clocks were kept, count as added at the start of time.
+     */
+    static JournalTagSet fromStored(List<String> tags, Object rawClocks) {
+        Map<String, Map<String, String>> clocks = new HashMap<>();
+        if (rawClocks instanceof Map) {
+            for (Map.Entry<?, ?> tag : ((Map<?, ?>) rawClocks).entrySet()) {
+                if (!(tag.getValue() instanceof Map)) continue;
+                Map<String, String> sides = new HashMap<>();
+                for (String side : new String[]{ADDED, REMOVED}) {
+                    Object clock = ((Map<?, ?>) tag.getValue()).get(side);
+                    if (clock instanceof String) sides.put(side, (String) clock);
+                }
+                clocks.put(String.valueOf(tag.getKey()), sides);
+            }
+        }
+        if (tags != null) {
+            for (String tag : tags) {
+                if (!clocks.containsKey(tag)) {
+                    Map<String, String> sides = new HashMap<>();
+                    sides.put(ADDED, "");
+                    clocks.put(tag, sides);
+                }
+            }
+        }
+        return new JournalTagSet(clocks);
+    }
+
+    // Records the local edit; an older clock than one already stored changes nothing
+    void apply(Collection<String> added, Collection<String> removed, String clock) {
+        for (String tag : added) {
+            stamp(tag, ADDED, clock);
+        }
+        for (String tag : removed) {
+            stamp(tag, REMOVED, clock);
+        }
+    }
+
+    private void stamp(String tag, String side, String clock) {
+        Map<String, String> sides = clocks.get(tag);
+        if (sides == null) {
+            sides = new HashMap<>();
+            clocks.put(tag, sides);
+        }
+        if (HybridLogicalClock.isAfter(clock, sides.get(side))) sides.put(side, clock);
+    }
+
+    boolean contains(String tag) {
+        Map<String, String> sides = clocks.get(tag);
+        // An add and remove with the same timestamp can only come from one edit; keep the tag
+        return sides != null && sides.containsKey(ADDED)
+                && !HybridLogicalClock.isAfter(sides.get(REMOVED), sides.get(ADDED));
+    }
+
+    // The tags in the set, in preferredOrder where it lists them and alphabetically after that
+    List<String> members(List<String> preferredOrder) {
+        Set<String> result = new LinkedHashSet<>();
+        if (preferredOrder != null) {
+            for (String tag : preferredOrder) {
+                if (contains(tag)) result.add(tag);
+            }
+        }
+        for (String tag : new TreeSet<>(clocks.keySet())) {
+            if (contains(tag)) result.add(tag);
+        }
+        return new ArrayList<>(result);
+    }
+
+    // The whole clock map, for writing back in place of the stored one
+    Map<String, Object> toData() {
+        Map<String, Object> data = new HashMap<>();
+        for (Map.Entry<String, Map<String, String>> tag : clocks.entrySet()) {
+            data.put(tag.getKey(), new HashMap<>(tag.getValue()));
+        }
+        return data;
+    }
+
+    Collection<String> allClocks() {
+        List<String> all = new ArrayList<>();
+        for (Map<String, String> sides : clocks.values()) {
+            all.addAll(sides.values());
+        }
+        return all;
+    }
+}
@@ -0,0 +1,395 @@
+package com.example.mindnote;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Word frequencies and lexicon sentiment per month, kept up to date as
+ * entries are saved and deleted instead of being recomputed from every note.
+ *
+ * Each entry's contribution is stored next to the monthly totals in a
+ * per-user SQLite database, so a changed entry is subtracted and added back
+ * on its own. An entry whose title and note hash the same as last time is
+ * skipped. Work is coalesced per entry and runs on one low-priority thread.
+ */
+public class JournalTextAnalytics {
+
+    private static final String TAG = "JournalTextAnalytics";
+    private static final int DB_VERSION = 1;
+    private static final int MIN_WORD_LENGTH = 3;
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "the", "and", "for", "that", "this", "with", "was", "were", "are", "but", "not", "you", "your",
+            "have", "has", "had", "his", "her", "she", "him", "they", "them", "their", "our", "out", "its",
+            "from", "then", "than", "there", "what", "when", "which", "who", "will", "would", "could",
+            "should", "just", "about", "into", "been", "being", "some", "all", "any", "can", "did", "does",
+            "get", "got", "one", "also", "too", "very", "really", "much", "more", "today", "yesterday",
+            "im", "ive", "dont", "didnt", "thats", "because", "after", "before", "again", "still"));
+
+    private static final Set<String> POSITIVE = new HashSet<>(Arrays.asList(
+            "happy", "glad", "good", "great", "calm", "relaxed", "grateful", "thankful", "love", "loved",
+            "proud", "excited", "fun", "enjoyed", "peaceful", "hopeful", "better", "best", "joy",
+            "wonderful", "amazing", "nice", "rested", "energized", "confident", "content", "laughed",
+            "beautiful", "productive", "focused", "kind", "safe", "free", "progress", "success"));
+
+    private static final Set<String> NEGATIVE = new HashSet<>(Arrays.asList(
+            "sad", "bad", "tired", "angry", "anxious", "anxiety", "stress", "stressed", "worried", "worry",
+            "lonely", "upset", "afraid", "scared", "hurt", "sick", "exhausted", "frustrated", "annoyed",
+            "awful", "terrible", "worse", "worst", "cried", "fear", "guilty", "overwhelmed", "bored",
+            "depressed", "pain", "lost", "hate", "failed", "difficult", "hard"));
+
+    // Flip the sentiment of the next word: "not happy" counts as negative
+    private static final Set<String> NEGATIONS = new HashSet<>(Arrays.asList(
+            "not", "no", "never", "dont", "didnt", "isnt", "wasnt", "cant", "couldnt", "without"));
+
+    private static final Map<String, JournalTextAnalytics> instances = new HashMap<>();
+
+    private final Helper helper;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // One thread at most, and it goes away when idle
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "journal-text-analytics"));
+
+    // Latest change to each entry not processed yet. Guarded by itself
+    private final Map<String, Change> pending = new LinkedHashMap<>();
+    private boolean draining;
+    // Keyed by month and word limit
+    private final Map<String, JournalTextStats> cache = new HashMap<>();
+
+    private static class Change {
+        // Null for a delete
+        final JournalEntry entry;
+        // From a load rather than a save, so a long note is only its preview
+        final boolean loaded;
+
+        Change(JournalEntry entry, boolean loaded) {
+            this.entry = entry;
+            this.loaded = loaded;
+        }
+    }
+
+    private JournalTextAnalytics(Context context, String uid) {
+        helper = new Helper(context.getApplicationContext(), "text_analytics_" + uid + ".db");
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static synchronized JournalTextAnalytics getInstance(Context context, String uid) {
+        JournalTextAnalytics instance = instances.get(uid);
+        if (instance == null) {
+            instance = new JournalTextAnalytics(context, uid);
+            instances.put(uid, instance);
+        }
+        return instance;
+    }
+
+    private static class Helper extends SQLiteOpenHelper {
+        Helper(Context context, String name) {
+            super(context, name, null, DB_VERSION);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE entries (id TEXT PRIMARY KEY, month TEXT NOT NULL, hash TEXT NOT NULL,"
+                    + " words INTEGER NOT NULL, sentiment REAL NOT NULL)");
+            db.execSQL("CREATE TABLE entry_words (entry_id TEXT NOT NULL, word TEXT NOT NULL, count INTEGER NOT NULL,"
+                    + " PRIMARY KEY (entry_id, word))");
+            db.execSQL("CREATE TABLE month_words (month TEXT NOT NULL, word TEXT NOT NULL, count INTEGER NOT NULL,"
+                    + " PRIMARY KEY (month, word))");
+            db.execSQL("CREATE INDEX month_words_count ON month_words (month, count)");
+            db.execSQL("CREATE TABLE months (month TEXT PRIMARY KEY, entries INTEGER NOT NULL,"
+                    + " words INTEGER NOT NULL, sentiment_sum REAL NOT NULL)");
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        }
+    }
+
+    // Call after a successful save; unchanged text costs one hash
+    public void onEntrySaved(JournalEntry entry) {
+        if (entry.getId() == null || entry.getDate() == null) return;
+        enqueue(entry.getId(), new Change(entry, false));
+    }
+
+    public void onEntryDeleted(String entryId) {
+        enqueue(entryId, new Change(null, false));
+    }
+
+    /**
+     * Catches up on entries saved on other devices. Long notes arrive as a
+     * preview only, so those are analysed from it just until the editor saves
+     * the full text, never over an earlier full analysis.
+     */
+    public void onEntriesLoaded(List<JournalEntry> entries) {
+        for (JournalEntry entry : entries) {
+            if (entry.getId() == null || entry.getDate() == null) continue;
+            enqueue(entry.getId(), new Change(entry, true));
+        }
+    }
+
+    private void enqueue(String entryId, Change change) {
+        synchronized (pending) {
+            Change queued = pending.get(entryId);
+            // A load may return the server copy before a save still queued here; the save is newer
+            if (change.loaded && queued != null && !queued.loaded) return;
+            pending.put(entryId, change);
+            if (draining) return;
+            draining = true;
+        }
+        executor.execute(this::drain);
+    }
+
+    private void drain() {
+        while (true) {
+            Map<String, Change> batch;
+            synchronized (pending) {
+                if (pending.isEmpty()) {
+                    draining = false;
+                    return;
+                }
+                batch = new LinkedHashMap<>(pending);
+                pending.clear();
+            }
+            try {
+                Set<String> changedMonths = process(batch);
+                if (!changedMonths.isEmpty()) {
+                    synchronized (cache) {
+                        cache.keySet().removeIf(key -> changedMonths.contains(key.substring(0, key.indexOf(':'))));
+                    }
+                }
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Failed to analyse " + batch.size() + " entries", e);
+            }
+        }
+    }
+
+    // One transaction for the batch; returns the months whose totals moved
+    private Set<String> process(Map<String, Change> batch) {
+        Set<String> changedMonths = new HashSet<>();
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Map.Entry<String, Change> item : batch.entrySet()) {
+                String entryId = item.getKey();
+                JournalEntry entry = item.getValue().entry;
+                String hash = entry != null ? hashOf(entry) : null;
+
+                String oldMonth = null;
+                try (Cursor c = db.rawQuery("SELECT month, hash FROM entries WHERE id = ?", new String[]{entryId})) {
+                    if (c.moveToFirst()) {
+                        if (hash != null && hash.equals(c.getString(1))) continue;
+                        oldMonth = c.getString(0);
+                    }
+                }
+                // A preview never replaces an analysis of the full note
+                if (oldMonth != null && item.getValue().loaded && entry.getChunkCount() > 0) continue;
+
+                if (oldMonth != null) {
+                    subtract(db, entryId, oldMonth);
+                    changedMonths.add(oldMonth);
+                }
+                if (entry != null) {
+                    String month = JournalMonthIndex.monthKey(entry.getDate());
+                    add(db, entryId, month, hash, entry);
+                    changedMonths.add(month);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return changedMonths;
+    }
+
+    private static void subtract(SQLiteDatabase db, String entryId, String month) {
+        db.execSQL("UPDATE month_words SET count = count - (SELECT count FROM entry_words"
+                + " WHERE entry_id = ? AND word = month_words.word) WHERE month = ? AND word IN"
+                + " (SELECT word FROM entry_words WHERE entry_id = ?)", new Object[]{entryId, month, entryId});
+        db.delete("month_words", "month = ? AND count <= 0", new String[]{month});
+        db.execSQL("UPDATE months SET entries = entries - 1,"
+                + " words = words - (SELECT words FROM entries WHERE id = ?),"
+                + " sentiment_sum = sentiment_sum - (SELECT sentiment FROM entries WHERE id = ?)"
+                + " WHERE month = ?", new Object[]{entryId, entryId, month});
+        db.delete("months", "month = ? AND entries <= 0", new String[]{month});
+        db.delete("entry_words", "entry_id = ?", new String[]{entryId});
+        db.delete("entries", "id = ?", new String[]{entryId});
+    }
+
+    private static void add(SQLiteDatabase db, String entryId, String month, String hash, JournalEntry entry) {
+        Map<String, Integer> counts = new HashMap<>();
+        int[] polarity = new int[2];
+        int words = tokenize(entry.getTitle(), counts, polarity) + tokenize(entry.getNote(), counts, polarity);
+        int scored = polarity[0] + polarity[1];
+        double sentiment = scored == 0 ? 0 : (double) (polarity[0] - polarity[1]) / scored;
+
+        ContentValues row = new ContentValues();
+        row.put("id", entryId);
+        row.put("month", month);
+        row.put("hash", hash);
+        row.put("words", words);
+        row.put("sentiment", sentiment);
+        db.insert("entries", null, row);
+
+        for (Map.Entry<String, Integer> word : counts.entrySet()) {
+            ContentValues wordRow = new ContentValues();
+            wordRow.put("entry_id", entryId);
+            wordRow.put("word", word.getKey());
+            wordRow.put("count", word.getValue());
+            db.insert("entry_words", null, wordRow);
+
+            db.execSQL("INSERT OR IGNORE INTO month_words (month, word, count) VALUES (?, ?, 0)",
+                    new Object[]{month, word.getKey()});
+            db.execSQL("UPDATE month_words SET count = count + ? WHERE month = ? AND word = ?",
+                    new Object[]{word.getValue(), month, word.getKey()});
+        }
+
+        db.execSQL("INSERT OR IGNORE INTO months (month, entries, words, sentiment_sum) VALUES (?, 0, 0, 0)",
+                new Object[]{month});
+        db.execSQL("UPDATE months SET entries = entries + 1, words = words + ?, sentiment_sum = sentiment_sum + ?"
+                + " WHERE month = ?", new Object[]{words, sentiment, month});
+    }
+
+    /**
+     * Counts the words of text into counts, skipping stop words and short
+     * words, and adds its positive and negative lexicon hits to polarity.
+     * Returns the number of words read, counted or not.
+     */
+    static int tokenize(String text, Map<String, Integer> counts, int[] polarity) {
+        if (text == null || text.isEmpty()) return 0;
+        int words = 0;
+        boolean negated = false;
+        for (String raw : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}']+")) {
+            String word = raw.replace("'", "");
+            if (word.isEmpty()) continue;
+            words++;
+
+            boolean positive = POSITIVE.contains(word);
+            if (positive || NEGATIVE.contains(word)) {
+                polarity[positive != negated ? 0 : 1]++;
+            }
+            boolean negation = NEGATIONS.contains(word);
+            negated = negation;
+
+            if (!negation && word.length() >= MIN_WORD_LENGTH && !STOP_WORDS.contains(word)) {
+                counts.merge(word, 1, Integer::sum);
+            }
+        }
+        return words;
+    }
+
+    private static String hashOf(JournalEntry entry) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update((entry.getTitle() != null ? entry.getTitle() : "").getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update((entry.getNote() != null ? entry.getNote() : "").getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(JournalMonthIndex.monthKey(entry.getDate()).getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Passes the month's totals and its topWords most frequent words on the
+     * main thread. Answers from memory until an entry in that month changes.
+     */
+    public void loadMonth(String monthKey, int topWords, Consumer<JournalTextStats> callback) {
+        String cacheKey = monthKey + ":" + topWords;
+        synchronized (cache) {
+            JournalTextStats cached = cache.get(cacheKey);
+            if (cached != null) {
+                callback.accept(cached);
+                return;
+            }
+        }
+        // Queued behind any pending analysis, so the answer includes the latest saves
+        executor.execute(() -> {
+            JournalTextStats stats;
+            try {
+                stats = queryMonth(monthKey, topWords);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Failed to read text stats for " + monthKey, e);
+                stats = JournalTextStats.empty(monthKey);
+            }
+            synchronized (cache) {
+                cache.put(cacheKey, stats);
+            }
+            JournalTextStats result = stats;
+            mainHandler.post(() -> callback.accept(result));
+        });
+    }
+
+    private JournalTextStats queryMonth(String monthKey, int topWords) {
+        SQLiteDatabase db = helper.getReadableDatabase();
+        int entries = 0;
+        int words = 0;
+        double sentimentSum = 0;
+        try (Cursor c = db.rawQuery("SELECT entries, words, sentiment_sum FROM months WHERE month = ?",
+                new String[]{monthKey})) {
+            if (c.moveToFirst()) {
+                entries = c.getInt(0);
+                words = c.getInt(1);
+                sentimentSum = c.getDouble(2);
+            }
+        }
+
+        Map<String, Integer> top = new LinkedHashMap<>();
+        try (Cursor c = db.rawQuery("SELECT word, count FROM month_words WHERE month = ?"
+                + " ORDER BY count DESC, word LIMIT " + topWords, new String[]{monthKey})) {
+            while (c.moveToNext()) {
+                top.put(c.getString(0), c.getInt(1));
+            }
+        }
+        return new JournalTextStats(monthKey, entries, words, entries > 0 ? sentimentSum / entries : 0, top);
+    }
+
+    // For signing out of an account on this device
+    public void clear() {
+        synchronized (pending) {
+            pending.clear();
+        }
+        synchronized (cache) {
+            cache.clear();
+        }
+        executor.execute(() -> {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            for (String table : Arrays.asList("entries", "entry_words", "month_words", "months")) {
+                db.delete(table, null, null);
+            }
+        });
+    }
+}
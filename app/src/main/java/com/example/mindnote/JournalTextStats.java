@@ -0,0 +1,52 @@
+package com.example.mindnote;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Word frequencies and lexicon sentiment of the entries written in one month,
+ * as kept by JournalTextAnalytics.
+ */
+public class JournalTextStats {
+
+    private final String monthKey;
+    private final int entryCount;
+    private final int wordCount;
+    private final double sentiment;
+    private final Map<String, Integer> topWords;
+
+    public JournalTextStats(String monthKey, int entryCount, int wordCount, double sentiment,
+                            Map<String, Integer> topWords) {
+        this.monthKey = monthKey;
+        this.entryCount = entryCount;
+        this.wordCount = wordCount;
+        this.sentiment = sentiment;
+        this.topWords = topWords != null ? topWords : new LinkedHashMap<>();
+    }
+
+    public static JournalTextStats empty(String monthKey) {
+        return new JournalTextStats(monthKey, 0, 0, 0, null);
+    }
+
+    public String getMonthKey() {
+        return monthKey;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    // Mean of the entries' scores, from -1 (all negative words) to 1 (all positive)
+    public double getSentiment() {
+        return sentiment;
+    }
+
+    // Most frequent first
+    public Map<String, Integer> getTopWords() {
+        return topWords;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.mindnote;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.util.List;
+
+/**
+ * Screen state shared by the tabs hosted in MainActivity. Each query only runs
+ * again after JournalDataManager reports a local write, so switching tabs is free.
+ */
+public class JournalViewModel extends AndroidViewModel {
+
+    private final MutableLiveData<List<JournalEntrySummary>> recentEntries = new MutableLiveData<>();
+    private final MutableLiveData<List<JournalEntrySummary>> summaries = new MutableLiveData<>();
+    private final MutableLiveData<JournalStats> stats = new MutableLiveData<>();
+
+    private long recentVersion = -1;
+    private long summariesVersion = -1;
+    private long statsVersion = -1;
+
+    public JournalViewModel(@NonNull Application application) {
+        super(application);
+    }
+
+    public JournalDataManager getDataManager() {
+        return JournalDataManager.getInstance(getApplication());
+    }
+
+    public LiveData<List<JournalEntrySummary>> getRecentEntries() {
+        return recentEntries;
+    }
+
+    public LiveData<List<JournalEntrySummary>> getSummaries() {
+        return summaries;
+    }
+
+    public LiveData<JournalStats> getStats() {
+        return stats;
+    }
+
+    public void refreshRecentEntries(int limit) {
+        JournalDataManager dataManager = getDataManager();
+        if (recentVersion == dataManager.getDataVersion()) return;
+        recentVersion = dataManager.getDataVersion();
+        dataManager.loadRecentEntries(limit, recentEntries::setValue);
+    }
+
+    public void refreshSummaries() {
+        JournalDataManager dataManager = getDataManager();
+        if (summariesVersion == dataManager.getDataVersion()) return;
+        summariesVersion = dataManager.getDataVersion();
+        dataManager.loadEntrySummaries(summaries::setValue);
+    }
+
+    // Appends the next archived month to the summaries; false once every archive is loaded
+    public boolean loadOlderSummaries() {
+        return getDataManager().loadOlderEntries(summaries::setValue);
+    }
+
+    public void refreshStats() {
+        JournalDataManager dataManager = getDataManager();
+        if (statsVersion == dataManager.getDataVersion()) return;
+        statsVersion = dataManager.getDataVersion();
+        if (stats.getValue() == null) {
+            stats.setValue(dataManager.getStatsCached());
+        }
+        dataManager.loadStats(stats::setValue);
+    }
+}
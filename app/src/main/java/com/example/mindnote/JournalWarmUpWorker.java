@@ -0,0 +1,188 @@
+package com.example.mindnote;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pulls what the first screens read into Firestore's local cache and Glide's
+ * disk cache ahead of time: entries added or changed since the last run, the
+ * recent feed, tags, stats, this month's day index and entry thumbnails.
+ * Runs periodically on unmetered, charging devices and once right after sign-in.
+ * Every run first finishes JournalBackfill's one-time migrations, which also get
+ * a run of their own on app start, and, once per device, feeds the whole live
+ * journal to JournalTextAnalytics; later runs feed it the changed entries.
+ * Periodic runs also compact old months into archives with JournalArchiver.
+ */
+public class JournalWarmUpWorker extends Worker {
+
+    private static final String TAG = "JournalWarmUp";
+    private static final String PERIODIC_WORK = "journal_warm_up";
+    private static final String SIGN_IN_WORK = "journal_warm_up_sign_in";
+    private static final String BACKFILL_WORK = "journal_backfill";
+    private static final String PREFS = "journal_warm_up";
+    private static final String BACKFILL_PREFIX = "backfill:";
+    private static final String TEXT_STATS_PREFIX = "textStats:";
+    private static final long TIMEOUT_SECONDS = 60;
+
+    // Matches what the home feed and the first page of the notes tab read
+    private static final int RECENT_LIMIT = 50;
+
+    public JournalWarmUpWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    public static void schedulePeriodic(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .setRequiresCharging(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(JournalWarmUpWorker.class, 12, TimeUnit.HOURS)
+                .setConstraints(constraints)
+                .addTag(PERIODIC_WORK)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(PERIODIC_WORK, ExistingPeriodicWorkPolicy.UPDATE, request);
+    }
+
+    // Opportunistic run after sign-in; any network will do since the user is about to need the data
+    public static void runAfterSignIn(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(JournalWarmUpWorker.class)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(SIGN_IN_WORK, ExistingWorkPolicy.REPLACE, request);
+    }
+
+    // Journals signed in before an upgrade get their migrations without waiting for a charger
+    public static void runBackfill(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(JournalWarmUpWorker.class)
+                .setConstraints(constraints)
+                .addTag(BACKFILL_WORK)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(BACKFILL_WORK, ExistingWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) return Result.success();
+
+        String uid = user.getUid();
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        DocumentReference userRef = db.collection("users").document(uid);
+        SharedPreferences prefs = getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        long lastSync = prefs.getLong(uid, 0);
+        long started = System.currentTimeMillis();
+
+        try {
+            // Before any compaction, which would take old entries out of the backfill's reach
+            if (prefs.getInt(BACKFILL_PREFIX + uid, 0) < JournalBackfill.VERSION) {
+                new JournalBackfill(db, uid).run();
+                prefs.edit().putInt(BACKFILL_PREFIX + uid, JournalBackfill.VERSION).apply();
+            }
+            // Text stats are kept on the device, so each device analyses the journal once
+            JournalTextAnalytics textAnalytics = JournalTextAnalytics.getInstance(getApplicationContext(), uid);
+            if (!prefs.getBoolean(TEXT_STATS_PREFIX + uid, false)) {
+                textAnalytics.onEntriesLoaded(toEntries(await(userRef.collection("entries").get(Source.SERVER))));
+                prefs.edit().putBoolean(TEXT_STATS_PREFIX + uid, true).apply();
+            }
+            if (getTags().contains(BACKFILL_WORK)) return Result.success();
+
+            // Server reads land in the local cache, where later cache-first reads find them
+            if (lastSync > 0) {
+                QuerySnapshot changed = await(userRef.collection("entries")
+                        .whereGreaterThan("updatedAt", new Timestamp(new Date(lastSync)))
+                        .get(Source.SERVER));
+                preloadThumbnails(changed);
+                // Catches the text stats up on edits made on other devices
+                textAnalytics.onEntriesLoaded(toEntries(changed));
+            }
+            QuerySnapshot recent = await(userRef.collection("entries")
+                    .orderBy("date", Query.Direction.DESCENDING)
+                    .limit(RECENT_LIMIT)
+                    .get(Source.SERVER));
+            preloadThumbnails(recent);
+
+            await(userRef.collection("meta").document("tags").get(Source.SERVER));
+            await(userRef.collection("meta").document("stats").get(Source.SERVER));
+            await(userRef.collection("days").document(JournalMonthIndex.monthKey(new Date())).get(Source.SERVER));
+
+            // Photos saved offline get their upload retried, and released ones collected
+            JournalImageStore images = JournalImageStore.getInstance(getApplicationContext());
+            images.uploadPending();
+            images.collectGarbage();
+
+            // Compaction writes every old entry once; leave it to runs on charger and Wi-Fi
+            if (getTags().contains(PERIODIC_WORK)) {
+                new JournalArchiver(db, uid).compact(JournalArchiver.cutoff(BuildConfig.ARCHIVE_AFTER_MONTHS));
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Warm-up failed, will retry", e);
+            return Result.retry();
+        }
+
+        prefs.edit().putLong(uid, started).apply();
+        Log.d(TAG, "Warm-up done in " + (System.currentTimeMillis() - started) + " ms");
+        return Result.success();
+    }
+
+    private void preloadThumbnails(QuerySnapshot snapshot) {
+        for (QueryDocumentSnapshot doc : snapshot) {
+            JournalEntrySummary summary = JournalEntrySummary.fromSnapshot(doc);
+            String thumbnail = summary.getThumbnail();
+            if (thumbnail == null || JournalDataManager.isDemoImage(thumbnail)) continue;
+            JournalImages.preload(getApplicationContext(), summary.getId(), thumbnail, summary.getImageVersion());
+        }
+    }
+
+    private static List<JournalEntry> toEntries(QuerySnapshot snapshot) {
+        List<JournalEntry> entries = new ArrayList<>();
+        for (QueryDocumentSnapshot doc : snapshot) {
+            JournalEntry entry = doc.toObject(JournalEntry.class);
+            entry.setId(doc.getId());
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    private static <T> T await(Task<T> task) throws Exception {
+        return Tasks.await(task, TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+}
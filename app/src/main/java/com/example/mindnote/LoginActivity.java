@@ -79,7 +79,10 @@ public class LoginActivity extends AppCompatActivity {
         }
 
         auth.signInWithEmailAndPassword(email, password)
-                .addOnSuccessListener(authResult -> goToNextScreen(auth.getCurrentUser()))
+                .addOnSuccessListener(authResult -> {
+                    JournalWarmUpWorker.runAfterSignIn(this);
+                    goToNextScreen(auth.getCurrentUser());
+                })
                 .addOnFailureListener(e ->
                         Toast.makeText(this, "Authentication failed", Toast.LENGTH_SHORT).show());
     }
@@ -101,6 +104,7 @@ public class LoginActivity extends AppCompatActivity {
         AuthCredential credential = GoogleAuthProvider.getCredential(idToken, null);
         auth.signInWithCredential(credential)
                 .addOnSuccessListener(authResult -> {
+                    JournalWarmUpWorker.runAfterSignIn(this);
                     FirebaseUser user = auth.getCurrentUser();
                     if (user != null && (user.getDisplayName() == null || user.getDisplayName().isEmpty())) {
                         startActivity(new Intent(this, SetDisplayNameActivity.class));
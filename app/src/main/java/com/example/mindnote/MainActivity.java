@@ -1,126 +1,138 @@
 package com.example.mindnote;
 
+import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
-import android.view.LayoutInflater;
-import android.view.View;
-import android.widget.ImageView;
-import android.widget.LinearLayout;
-import android.widget.TextView;
 
+import androidx.activity.OnBackPressedCallback;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentManager;
+import androidx.fragment.app.FragmentTransaction;
 
-import com.bumptech.glide.Glide;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
-import com.google.android.material.button.MaterialButton;
 import com.google.firebase.analytics.FirebaseAnalytics;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.List;
-import java.util.Locale;
-
 public class MainActivity extends AppCompatActivity {
 
+    public static final String EXTRA_TAB = "tab";
+    private static final String STATE_TAB = "currentTab";
+    private static final String TAB_TAG_PREFIX = "tab:";
+
     private BottomNavigationView bottomNavigationView;
-    private MaterialButton addEntryButton;
-    private TextView viewAllButton, entriesCountText, streakCountText;
-    private LinearLayout recentEntriesContainer;
-    private JournalDataManager dataManager;
+    private int currentTab;
+
+    // Brings the existing host to the front on the given tab instead of stacking a new one
+    public static Intent tabIntent(Context context, int tabId) {
+        Intent intent = new Intent(context, MainActivity.class);
+        intent.putExtra(EXTRA_TAB, tabId);
+        intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
+        return intent;
+    }
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        dataManager = JournalDataManager.getInstance(this);
+        JournalDataManager dataManager = JournalDataManager.getInstance(this);
         FirebaseAnalytics analytics = FirebaseAnalytics.getInstance(this);
         dataManager.setAnalytics(analytics);
 
         bottomNavigationView = findViewById(R.id.bottomNavigation);
-        addEntryButton = findViewById(R.id.addEntryButton);
-        viewAllButton = findViewById(R.id.viewAllButton);
-        entriesCountText = findViewById(R.id.entriesCountText);
-        streakCountText = findViewById(R.id.streakCountText);
-        recentEntriesContainer = findViewById(R.id.recentEntriesContainer);
-
-        bottomNavigationView.setSelectedItemId(R.id.navigation_home);
         bottomNavigationView.setOnItemSelectedListener(item -> {
             int id = item.getItemId();
-            if (id == R.id.navigation_home) return true;
-            if (id == R.id.navigation_calendar) {
-                startActivity(new Intent(this, CalendarActivity.class));
-                return true;
-            }
-            if (id == R.id.navigation_notes) {
-                startActivity(new Intent(this, NotesActivity.class));
-                return true;
-            }
-            if (id == R.id.navigation_profile) {
-                startActivity(new Intent(this, ProfileActivity.class));
-                return true;
-            }
             if (id == R.id.navigation_journal) {
+                // The editor stays a separate activity; the tab bar keeps its selection
                 startActivity(new Intent(this, JournalActivity.class));
-                return true;
+                return false;
+            }
+            return showTab(id);
+        });
+        bottomNavigationView.setOnItemReselectedListener(item -> { });
+
+        int tab = savedInstanceState != null
+                ? savedInstanceState.getInt(STATE_TAB, R.id.navigation_home)
+                : getIntent().getIntExtra(EXTRA_TAB, R.id.navigation_home);
+        bottomNavigationView.setSelectedItemId(tab);
+
+        getOnBackPressedDispatcher().addCallback(this, new OnBackPressedCallback(true) {
+            @Override
+            public void handleOnBackPressed() {
+                if (currentTab != R.id.navigation_home) {
+                    selectTab(R.id.navigation_home);
+                } else {
+                    finish();
+                }
             }
-            return false;
         });
-
-        addEntryButton.setOnClickListener(v ->
-                startActivity(new Intent(this, JournalActivity.class)));
-
-        viewAllButton.setOnClickListener(v ->
-                startActivity(new Intent(this, NotesActivity.class)));
-
-        loadRecentEntries();
-        updateStats();
     }
 
-    private void updateStats() {
-        int entryCount = dataManager.getEntryCount();
-        int streak = dataManager.calculateStreak();
-
-        entriesCountText.setText(entryCount + " entries");
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // Frame tracking starts with the resume, so the screen set by the first showTab was dropped
+        if (currentTab != 0) JankMetrics.setScreen(bottomNavigationView, screenName(currentTab));
+    }
 
-        if (streak >= 3){
-            streakCountText.setText("🔥 " + streak + " day streak");
-        } else {
-            streakCountText.setText(streak + " day streak");
+    @Override
+    protected void onNewIntent(Intent intent) {
+        super.onNewIntent(intent);
+        if (intent.hasExtra(EXTRA_TAB)) {
+            selectTab(intent.getIntExtra(EXTRA_TAB, R.id.navigation_home));
         }
     }
 
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putInt(STATE_TAB, currentTab);
+    }
 
-    private void loadRecentEntries() {
-        dataManager.loadEntriesFromFirestore(entries -> {
-            recentEntriesContainer.removeAllViews();
-            List<JournalEntry> recent = entries.size() > 3 ? entries.subList(0, 3) : entries;
+    public void selectTab(int tabId) {
+        bottomNavigationView.setSelectedItemId(tabId);
+    }
 
-            LayoutInflater inflater = LayoutInflater.from(this);
-            for (JournalEntry entry : recent) {
-                View card = inflater.inflate(R.layout.item_recent_entry, recentEntriesContainer, false);
-                TextView dateText = card.findViewById(R.id.dateText);
-                TextView noteText = card.findViewById(R.id.contentText);
-                ImageView entryImage = card.findViewById(R.id.entryImage);
+    // Tabs are added once and then only shown or hidden, so their views and state survive switching
+    private boolean showTab(int tabId) {
+        FragmentManager fm = getSupportFragmentManager();
+        String tag = TAB_TAG_PREFIX + getResources().getResourceEntryName(tabId);
+        Fragment target = fm.findFragmentByTag(tag);
+        if (target == null) {
+            target = createTab(tabId);
+            if (target == null) return false;
+        }
 
-                dateText.setText(entry.getShortDate());
-                noteText.setText(entry.getNote());
+        FragmentTransaction transaction = fm.beginTransaction().setReorderingAllowed(true);
+        for (Fragment fragment : fm.getFragments()) {
+            String fragmentTag = fragment.getTag();
+            if (fragmentTag != null && fragmentTag.startsWith(TAB_TAG_PREFIX)
+                    && !fragmentTag.equals(tag) && !fragment.isHidden()) {
+                transaction.hide(fragment);
+            }
+        }
+        if (target.isAdded()) {
+            transaction.show(target);
+        } else {
+            transaction.add(R.id.fragmentContainer, target, tag);
+        }
+        transaction.commit();
 
-                if (entry.getImagePath() != null && !JournalDataManager.isDemoImage(entry.getImagePath())) {
-                    Glide.with(this).load(entry.getImagePath()).into(entryImage);
-                    entryImage.setVisibility(View.VISIBLE);
-                } else {
-                    entryImage.setVisibility(View.GONE);
-                }
+        currentTab = tabId;
+        JankMetrics.setScreen(bottomNavigationView, screenName(tabId));
+        return true;
+    }
 
-                card.setOnClickListener(v -> {
-                    Intent intent = new Intent(this, JournalActivity.class);
-                    intent.putExtra("entryId", entry.getId());
-                    startActivity(intent);
-                });
+    // "navigation_notes" -> "notes"
+    private String screenName(int tabId) {
+        return getResources().getResourceEntryName(tabId).replace("navigation_", "");
+    }
 
-                recentEntriesContainer.addView(card);
-            }
-        });
+    private Fragment createTab(int tabId) {
+        if (tabId == R.id.navigation_home) return new HomeFragment();
+        if (tabId == R.id.navigation_notes) return new NotesFragment();
+        if (tabId == R.id.navigation_calendar) return new CalendarFragment();
+        if (tabId == R.id.navigation_profile) return new ProfileFragment();
+        return null;
     }
 }
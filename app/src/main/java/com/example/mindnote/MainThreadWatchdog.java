@@ -0,0 +1,225 @@
+package com.example.mindnote;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.firebase.crashlytics.FirebaseCrashlytics;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reports main-thread stalls. While an activity is started, a background
+ * thread posts a tick to the main looper every thresholdMs; when a tick has
+ * not run within thresholdMs the main thread is blocked, and its stack is
+ * sampled every sampleIntervalMs until the tick runs.
+ *
+ * Samples are aggregated per frame, and each stall is recorded as a Crashlytics
+ * non-fatal whose stack is the most frequently sampled one; its duration and
+ * frame are in the message. When Crashlytics is unavailable or its collection
+ * is off, the report is appended to files/stalls.log instead.
+ */
+public final class MainThreadWatchdog implements Application.ActivityLifecycleCallbacks {
+
+    private static final String TAG = "MainThreadWatchdog";
+    private static final String LOG_FILE = "stalls.log";
+    private static final long MAX_LOG_BYTES = 256 * 1024;
+    private static final int MAX_SAMPLES = 200;
+    private static final int REPORTED_FRAMES = 10;
+
+    /** Thrown at nobody; carries the stall's representative stack into Crashlytics. */
+    static final class StallException extends Exception {
+        StallException(String message, StackTraceElement[] stack) {
+            super(message);
+            setStackTrace(stack);
+        }
+    }
+
+    private final Context context;
+    private final long thresholdMs;
+    private final long sampleIntervalMs;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Thread mainThread = Looper.getMainLooper().getThread();
+
+    private volatile long tickCount;
+    private final Runnable tick = () -> tickCount++;
+
+    private int startedActivities;
+    private Thread watcher;
+
+    private MainThreadWatchdog(Context context, long thresholdMs, long sampleIntervalMs) {
+        this.context = context.getApplicationContext();
+        this.thresholdMs = thresholdMs;
+        this.sampleIntervalMs = sampleIntervalMs;
+    }
+
+    /**
+     * Watches the main thread while any activity is started. A stall is a
+     * block of at least thresholdMs; shorter blocks cost nothing but a post.
+     */
+    public static MainThreadWatchdog install(Application app, long thresholdMs, long sampleIntervalMs) {
+        MainThreadWatchdog watchdog = new MainThreadWatchdog(app, thresholdMs, sampleIntervalMs);
+        app.registerActivityLifecycleCallbacks(watchdog);
+        return watchdog;
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+        if (startedActivities++ == 0) {
+            watcher = new Thread(this::watch, "main-thread-watchdog");
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+        if (--startedActivities == 0 && watcher != null) {
+            watcher.interrupt();
+            watcher = null;
+        }
+    }
+
+    @Override public void onActivityCreated(Activity activity, Bundle savedInstanceState) {}
+    @Override public void onActivityResumed(Activity activity) {}
+    @Override public void onActivityPaused(Activity activity) {}
+    @Override public void onActivitySaveInstanceState(Activity activity, Bundle outState) {}
+    @Override public void onActivityDestroyed(Activity activity) {}
+
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long before = tickCount;
+                mainHandler.post(tick);
+                Thread.sleep(thresholdMs);
+                if (tickCount != before) continue;
+
+                // A paused debugger looks exactly like a stall
+                if (Debug.isDebuggerConnected()) continue;
+                sampleStall(before, SystemClock.uptimeMillis() - thresholdMs);
+            }
+        } catch (InterruptedException e) {
+            mainHandler.removeCallbacks(tick);
+        }
+    }
+
+    private void sampleStall(long stalledTick, long stallStart) throws InterruptedException {
+        List<StackTraceElement[]> samples = new ArrayList<>();
+        while (tickCount == stalledTick) {
+            if (samples.size() < MAX_SAMPLES) samples.add(mainThread.getStackTrace());
+            Thread.sleep(sampleIntervalMs);
+        }
+        if (samples.isEmpty()) return;
+        report(SystemClock.uptimeMillis() - stallStart, samples);
+    }
+
+    private void report(long durationMs, List<StackTraceElement[]> samples) {
+        // Inclusive counts: a frame scores once per sample it appears in
+        Map<String, Integer> frameCounts = new HashMap<>();
+        // Innermost frames, to choose the stack that stands for the whole stall
+        Map<String, Integer> leafCounts = new HashMap<>();
+        for (StackTraceElement[] stack : samples) {
+            if (stack.length == 0) continue;
+            Set<String> seen = new HashSet<>();
+            for (StackTraceElement frame : stack) {
+                String key = frame.toString();
+                if (seen.add(key)) frameCounts.merge(key, 1, Integer::sum);
+            }
+            leafCounts.merge(stack[0].toString(), 1, Integer::sum);
+        }
+
+        String hotLeaf = heaviest(leafCounts);
+        StackTraceElement[] representative = samples.get(0);
+        for (StackTraceElement[] stack : samples) {
+            if (stack.length > 0 && stack[0].toString().equals(hotLeaf)) {
+                representative = stack;
+                break;
+            }
+        }
+
+        String appFrame = firstAppFrame(representative);
+        StringBuilder summary = new StringBuilder(String.format(Locale.US,
+                "Main thread blocked %d ms (%d samples) in %s", durationMs, samples.size(), appFrame));
+        List<Map.Entry<String, Integer>> ranked = new ArrayList<>(frameCounts.entrySet());
+        ranked.sort((a, b) -> b.getValue() - a.getValue());
+        for (int i = 0; i < Math.min(REPORTED_FRAMES, ranked.size()); i++) {
+            Map.Entry<String, Integer> frame = ranked.get(i);
+            summary.append(String.format(Locale.US, "%n  %3d%% %s",
+                    frame.getValue() * 100 / samples.size(), frame.getKey()));
+        }
+        String message = summary.toString();
+        Log.w(TAG, message);
+
+        // No custom keys: they would stick to every later crash and non-fatal of the session
+        FirebaseCrashlytics crashlytics = crashlyticsIfCollecting();
+        if (crashlytics != null) {
+            crashlytics.recordException(new StallException(message, representative));
+        } else {
+            appendToLog(message, representative);
+        }
+    }
+
+    // Null when Crashlytics is missing or collection is off, where recordException would drop the report
+    private static FirebaseCrashlytics crashlyticsIfCollecting() {
+        try {
+            FirebaseCrashlytics crashlytics = FirebaseCrashlytics.getInstance();
+            if (crashlytics.isCrashlyticsCollectionEnabled()) return crashlytics;
+            Log.w(TAG, "Crashlytics collection is off, writing stall to " + LOG_FILE);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Crashlytics unavailable, writing stall to " + LOG_FILE, e);
+        }
+        return null;
+    }
+
+    private static String heaviest(Map<String, Integer> counts) {
+        String best = null;
+        int bestCount = -1;
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (entry.getValue() > bestCount) {
+                best = entry.getKey();
+                bestCount = entry.getValue();
+            }
+        }
+        return best;
+    }
+
+    // The innermost frame of our own code, which is what a fix would touch
+    private static String firstAppFrame(StackTraceElement[] stack) {
+        String appPackage = MainThreadWatchdog.class.getPackage().getName();
+        for (StackTraceElement frame : stack) {
+            if (frame.getClassName().startsWith(appPackage)) return frame.toString();
+        }
+        return stack.length > 0 ? stack[0].toString() : "unknown";
+    }
+
+    private synchronized void appendToLog(String message, StackTraceElement[] stack) {
+        File file = new File(context.getFilesDir(), LOG_FILE);
+        // Drop old reports rather than let the file grow without bound
+        boolean append = file.length() < MAX_LOG_BYTES;
+        try (Writer out = new FileWriter(file, append)) {
+            out.write(String.format(Locale.US, "%tF %<tT %s%n", System.currentTimeMillis(), message));
+            for (StackTraceElement frame : stack) {
+                out.write("    at " + frame + "\n");
+            }
+            out.write("\n");
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write " + LOG_FILE, e);
+        }
+    }
+}
@@ -2,11 +2,52 @@ package com.example.mindnote;
 
 import android.app.Application;
 import com.google.firebase.FirebaseApp;
+import com.google.firebase.analytics.FirebaseAnalytics;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.storage.FirebaseStorage;
 
 public class MindNoteApp extends Application {
+
+    static final int FIRESTORE_EMULATOR_PORT = 8080;
+    private static final int AUTH_EMULATOR_PORT = 9099;
+    private static final int STORAGE_EMULATOR_PORT = 9199;
+    private static final long STALL_SAMPLE_INTERVAL_MS = 50;
+
     @Override
     public void onCreate() {
         super.onCreate();
         FirebaseApp.initializeApp(this);
+        connectEmulators();
+        MainThreadWatchdog.install(this, BuildConfig.STALL_THRESHOLD_MS, STALL_SAMPLE_INTERVAL_MS);
+        JankMetrics.install(this);
+
+        // Registers the auth listener that keeps per-user data sessions in step with sign-in
+        JournalDataManager.getInstance(this);
+
+        FeedViews.prewarm(this);
+        JournalWarmUpWorker.schedulePeriodic(this);
+        JournalWarmUpWorker.runBackfill(this);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level == TRIM_MEMORY_UI_HIDDEN) {
+            // App went to the background; flush this session's image cache and frame metrics
+            FirebaseAnalytics analytics = FirebaseAnalytics.getInstance(this);
+            JournalImages.reportMetrics(analytics);
+            JankMetrics.reportMetrics(analytics);
+        }
+    }
+
+    // Must run before any other Firebase call touches these instances
+    private void connectEmulators() {
+        String host = BuildConfig.FIREBASE_EMULATOR_HOST;
+        if (host == null || host.isEmpty()) return;
+
+        FirebaseFirestore.getInstance().useEmulator(host, FIRESTORE_EMULATOR_PORT);
+        FirebaseAuth.getInstance().useEmulator(host, AUTH_EMULATOR_PORT);
+        FirebaseStorage.getInstance().useEmulator(host, STORAGE_EMULATOR_PORT);
     }
 }
@@ -0,0 +1,74 @@
+package com.example.mindnote;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.module.AppGlideModule;
+
+import java.io.InputStream;
+
+@GlideModule
+public class MindNoteGlideModule extends AppGlideModule {
+
+    private static final String TAG = "MindNoteGlideModule";
+    private static final String DISK_CACHE_NAME = "journal_images";
+    private static final long MB = 1024 * 1024;
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        boolean lowRam = am != null && am.isLowRamDevice();
+        int memoryClass = am != null ? am.getMemoryClass() : 0;
+
+        float memoryScreens;
+        float poolScreens;
+        long diskBytes;
+        if (lowRam) {
+            memoryScreens = 1;
+            poolScreens = 1;
+            diskBytes = 50 * MB;
+        } else if (memoryClass >= 256) {
+            memoryScreens = 3;
+            poolScreens = 4;
+            diskBytes = 250 * MB;
+        } else {
+            memoryScreens = 2;
+            poolScreens = 3;
+            diskBytes = 150 * MB;
+        }
+
+        MemorySizeCalculator calculator = new MemorySizeCalculator.Builder(context)
+                .setMemoryCacheScreens(memoryScreens)
+                .setBitmapPoolScreens(poolScreens)
+                .build();
+
+        builder.setMemoryCache(new LruResourceCache(calculator.getMemoryCacheSize()));
+        builder.setBitmapPool(new LruBitmapPool(calculator.getBitmapPoolSize()));
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(context, DISK_CACHE_NAME, diskBytes));
+
+        Log.d(TAG, "Image caches: memory=" + calculator.getMemoryCacheSize()
+                + " pool=" + calculator.getBitmapPoolSize() + " disk=" + diskBytes);
+    }
+
+    @Override
+    public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
+        registry.prepend(String.class, InputStream.class,
+                new JournalImageLoader.Factory(JournalImageStore.getInstance(context)));
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
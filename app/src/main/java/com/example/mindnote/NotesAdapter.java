@@ -2,60 +2,133 @@ package com.example.mindnote;
 
 import android.content.Context;
 import android.content.Intent;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.cardview.widget.CardView;
+import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteViewHolder> {
 
-    private List<JournalEntry> entries;
+    public interface SelectionListener {
+        void onSelectionChanged(int selectedCount);
+    }
+
+    private List<JournalEntrySummary> entries;
     private final Context context;
+    private final Set<String> selectedIds = new HashSet<>();
+    private boolean selecting;
+    private SelectionListener selectionListener;
 
     public NotesAdapter(Context context) {
         this.context = context;
     }
 
-    public void setEntries(List<JournalEntry> entries) {
+    public void setEntries(List<JournalEntrySummary> entries) {
         this.entries = entries;
+        if (selecting) {
+            Set<String> present = new HashSet<>();
+            for (JournalEntrySummary entry : entries) {
+                present.add(entry.getId());
+            }
+            selectedIds.retainAll(present);
+            if (selectionListener != null) selectionListener.onSelectionChanged(selectedIds.size());
+        }
         notifyDataSetChanged();
     }
 
+    public void setSelectionListener(SelectionListener selectionListener) {
+        this.selectionListener = selectionListener;
+    }
+
+    public boolean isSelecting() {
+        return selecting;
+    }
+
+    public List<JournalEntrySummary> getSelectedEntries() {
+        List<JournalEntrySummary> selected = new ArrayList<>();
+        for (JournalEntrySummary entry : entries) {
+            if (selectedIds.contains(entry.getId())) selected.add(entry);
+        }
+        return selected;
+    }
+
+    public void endSelection() {
+        selecting = false;
+        selectedIds.clear();
+        notifyDataSetChanged();
+    }
+
+    private void toggleSelection(int position) {
+        if (position == RecyclerView.NO_POSITION) return;
+        String id = entries.get(position).getId();
+        if (!selectedIds.remove(id)) selectedIds.add(id);
+        notifyItemChanged(position);
+        if (selectionListener != null) selectionListener.onSelectionChanged(selectedIds.size());
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return R.layout.item_note;
+    }
+
     @NonNull
     @Override
     public NoteViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View itemView = LayoutInflater.from(parent.getContext())
-                .inflate(R.layout.item_note, parent, false);
-        return new NoteViewHolder(itemView);
+        return new NoteViewHolder(FeedViews.inflate(parent, R.layout.item_note));
     }
 
     @Override
     public void onBindViewHolder(@NonNull NoteViewHolder holder, int position) {
-        JournalEntry entry = entries.get(position);
+        JournalEntrySummary entry = entries.get(position);
 
-        holder.noteText.setText(entry.getNote() != null ? entry.getNote() : "No content");
+        holder.noteText.setText(entry.getPreview() != null ? entry.getPreview() : "No content");
         holder.dateText.setText(entry.getFormattedDate());
 
-        if (entry.getImagePath() != null && !JournalDataManager.isDemoImage(entry.getImagePath())) {
-            Glide.with(context).load(entry.getImagePath()).into(holder.entryImage);
+        if (entry.getThumbnail() != null && !JournalDataManager.isDemoImage(entry.getThumbnail())) {
+            JournalImages.loadThumbnail(holder.entryImage, entry.getId(), entry.getThumbnail(), entry.getImageVersion());
             holder.entryImage.setVisibility(View.VISIBLE);
         } else {
             holder.entryImage.setVisibility(View.GONE);
         }
 
+        boolean selected = selectedIds.contains(entry.getId());
+        holder.card.setCardBackgroundColor(ContextCompat.getColor(context,
+                selected ? R.color.cardSelected : R.color.cardBackgroundAlt));
+
         holder.itemView.setOnClickListener(v -> {
+            if (selecting) {
+                toggleSelection(holder.getBindingAdapterPosition());
+                return;
+            }
             Intent intent = new Intent(context, JournalActivity.class);
             intent.putExtra("entryId", entry.getId());
             context.startActivity(intent);
         });
+        holder.itemView.setOnLongClickListener(v -> {
+            selecting = true;
+            toggleSelection(holder.getBindingAdapterPosition());
+            return true;
+        });
+    }
+
+    // Pooled holders outlive this screen; drop anything that references it
+    @Override
+    public void onViewRecycled(@NonNull NoteViewHolder holder) {
+        holder.itemView.setOnClickListener(null);
+        holder.itemView.setOnLongClickListener(null);
+        Glide.with(holder.entryImage).clear(holder.entryImage);
     }
 
     @Override
@@ -64,18 +137,20 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteViewHold
     }
 
     static class NoteViewHolder extends RecyclerView.ViewHolder {
+        CardView card;
         TextView noteText, dateText;
         ImageView entryImage;
 
         NoteViewHolder(View itemView) {
             super(itemView);
+            card = (CardView) itemView;
             noteText = itemView.findViewById(R.id.notePreviewText);
             dateText = itemView.findViewById(R.id.dateText);
             entryImage = itemView.findViewById(R.id.entryImage);
         }
     }
 
-    public JournalEntry getEntryAt(int position) {
+    public JournalEntrySummary getEntryAt(int position) {
         return entries.get(position);
     }
 
@@ -84,4 +159,24 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteViewHold
         notifyItemRemoved(position);
     }
 
+    public void removeEntries(Set<String> entryIds) {
+        entries.removeIf(entry -> entryIds.contains(entry.getId()));
+        notifyDataSetChanged();
+    }
+
+    // Puts an entry back in date order, newest first; returns where it went
+    public int restoreEntry(JournalEntrySummary entry) {
+        int position = entries.size();
+        for (int i = 0; i < entries.size(); i++) {
+            if (entry.getDate() != null && (entries.get(i).getDate() == null
+                    || entries.get(i).getDate().before(entry.getDate()))) {
+                position = i;
+                break;
+            }
+        }
+        entries.add(position, entry);
+        notifyItemInserted(position);
+        return position;
+    }
+
 }
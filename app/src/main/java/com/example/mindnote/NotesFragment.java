@@ -0,0 +1,334 @@
+package com.example.mindnote;
+
+import android.content.Intent;
+import android.graphics.Canvas;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Bundle;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.View;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.LinearLayout;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.view.ActionMode;
+import androidx.core.content.ContextCompat;
+import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.ItemTouchHelper;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.android.material.snackbar.Snackbar;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class NotesFragment extends Fragment {
+
+    private RecyclerView notesRecyclerView;
+    private LinearLayout emptyStateContainer;
+    private NotesAdapter notesAdapter;
+    private JournalDataManager dataManager;
+    private JournalViewModel viewModel;
+    private ActionMode selectionMode;
+    // An archived month is on its way; the next one is asked for once it lands
+    private boolean loadingOlder;
+
+    public NotesFragment() {
+        super(R.layout.fragment_notes);
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        notesRecyclerView = view.findViewById(R.id.notesRecyclerView);
+        emptyStateContainer = view.findViewById(R.id.emptyStateContainer);
+        Button addNoteButton = view.findViewById(R.id.addNoteButton);
+
+        viewModel = new ViewModelProvider(requireActivity()).get(JournalViewModel.class);
+        dataManager = viewModel.getDataManager();
+
+        notesAdapter = new NotesAdapter(requireContext());
+        notesAdapter.setSelectionListener(this::onSelectionChanged);
+        FeedViews.attach(notesRecyclerView, notesAdapter);
+        notesRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    JankMetrics.clearState(recyclerView, "scroll");
+                } else {
+                    JankMetrics.setState(recyclerView, "scroll", "scrolling");
+                }
+            }
+
+            // Older months live in archives and are read only when the list is scrolled to its end
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0 && !loadingOlder && !recyclerView.canScrollVertically(1)) {
+                    loadingOlder = viewModel.loadOlderSummaries();
+                }
+            }
+        });
+
+        addNoteButton.setOnClickListener(v ->
+                startActivity(new Intent(requireContext(), JournalActivity.class)));
+
+        viewModel.getSummaries().observe(getViewLifecycleOwner(), entries -> {
+            loadingOlder = false;
+            notesAdapter.setEntries(entries);
+            updateEmptyState();
+        });
+
+        enableSwipeToDelete();
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        if (!isHidden()) viewModel.refreshSummaries();
+    }
+
+    @Override
+    public void onHiddenChanged(boolean hidden) {
+        super.onHiddenChanged(hidden);
+        if (!hidden) viewModel.refreshSummaries();
+    }
+
+    // Nothing can offer undo once the screen is gone, so don't leave deletes waiting
+    @Override
+    public void onStop() {
+        dataManager.commitPendingDeletes();
+        super.onStop();
+    }
+
+    @Override
+    public void onDestroyView() {
+        if (selectionMode != null) selectionMode.finish();
+        FeedViews.release(notesRecyclerView);
+        super.onDestroyView();
+    }
+
+    private void enableSwipeToDelete() {
+        ItemTouchHelper.SimpleCallback swipeCallback = new ItemTouchHelper.SimpleCallback(0, ItemTouchHelper.LEFT) {
+            private final ColorDrawable background = new ColorDrawable(ContextCompat.getColor(requireContext(), R.color.deleteRed));
+            private final Drawable deleteIcon = ContextCompat.getDrawable(requireContext(), R.drawable.ic_delete);
+            private final int iconMargin = 32;
+
+            @Override
+            public boolean onMove(@NonNull RecyclerView recyclerView, @NonNull RecyclerView.ViewHolder viewHolder, @NonNull RecyclerView.ViewHolder target) {
+                return false;
+            }
+
+            // No swiping while picking entries for a bulk action
+            @Override
+            public int getSwipeDirs(@NonNull RecyclerView recyclerView, @NonNull RecyclerView.ViewHolder viewHolder) {
+                return notesAdapter.isSelecting() ? 0 : super.getSwipeDirs(recyclerView, viewHolder);
+            }
+
+            @Override
+            public void onSwiped(@NonNull RecyclerView.ViewHolder viewHolder, int direction) {
+                int position = viewHolder.getAdapterPosition();
+                if (position == RecyclerView.NO_POSITION) return;
+                deleteWithUndo(notesAdapter.getEntryAt(position), position);
+            }
+
+            @Override
+            public void onChildDraw(@NonNull Canvas canvas, @NonNull RecyclerView recyclerView,
+                                    @NonNull RecyclerView.ViewHolder viewHolder, float dX, float dY,
+                                    int actionState, boolean isCurrentlyActive) {
+                View itemView = viewHolder.itemView;
+
+                if (dX < 0) {
+                    background.setBounds(itemView.getRight() + (int) dX,
+                            itemView.getTop(), itemView.getRight(), itemView.getBottom());
+                    background.draw(canvas);
+
+                    if (deleteIcon != null) {
+                        int iconTop = itemView.getTop() + (itemView.getHeight() - deleteIcon.getIntrinsicHeight()) / 2;
+                        int iconLeft = itemView.getRight() - iconMargin - deleteIcon.getIntrinsicWidth();
+                        int iconRight = itemView.getRight() - iconMargin;
+                        int iconBottom = iconTop + deleteIcon.getIntrinsicHeight();
+
+                        deleteIcon.setBounds(iconLeft, iconTop, iconRight, iconBottom);
+                        deleteIcon.draw(canvas);
+                    }
+                }
+
+                super.onChildDraw(canvas, recyclerView, viewHolder, dX, dY, actionState, isCurrentlyActive);
+            }
+        };
+
+        new ItemTouchHelper(swipeCallback).attachToRecyclerView(notesRecyclerView);
+    }
+
+    // The row goes at once; the delete is sent with any others once the undo window closes
+    private void deleteWithUndo(JournalEntrySummary entry, int position) {
+        notesAdapter.removeEntryAt(position);
+        updateEmptyState();
+        dataManager.deleteEntryDeferred(entry, success -> {
+            if (success || !isAdded()) return;
+            Toast.makeText(requireContext(), "Couldn't delete entry", Toast.LENGTH_SHORT).show();
+            viewModel.refreshSummaries();
+        });
+
+        Snackbar.make(notesRecyclerView, "Entry deleted", Snackbar.LENGTH_LONG)
+                .setDuration((int) JournalDataManager.UNDO_WINDOW_MS)
+                .setAction("Undo", v -> {
+                    if (dataManager.undoDelete(entry.getId())) {
+                        notesRecyclerView.scrollToPosition(notesAdapter.restoreEntry(entry));
+                        updateEmptyState();
+                    }
+                })
+                .show();
+    }
+
+    private void onSelectionChanged(int selectedCount) {
+        if (selectedCount == 0) {
+            if (selectionMode != null) selectionMode.finish();
+            else notesAdapter.endSelection();
+            return;
+        }
+        if (selectionMode == null) {
+            selectionMode = ((AppCompatActivity) requireActivity()).startSupportActionMode(selectionCallback);
+        }
+        if (selectionMode != null) selectionMode.setTitle(selectedCount + " selected");
+    }
+
+    private final ActionMode.Callback selectionCallback = new ActionMode.Callback() {
+        @Override
+        public boolean onCreateActionMode(ActionMode mode, Menu menu) {
+            mode.getMenuInflater().inflate(R.menu.notes_selection_menu, menu);
+            return true;
+        }
+
+        @Override
+        public boolean onPrepareActionMode(ActionMode mode, Menu menu) {
+            return false;
+        }
+
+        @Override
+        public boolean onActionItemClicked(ActionMode mode, MenuItem item) {
+            List<JournalEntrySummary> selected = notesAdapter.getSelectedEntries();
+            if (item.getItemId() == R.id.action_delete_selected) {
+                confirmBulkDelete(selected);
+            } else if (item.getItemId() == R.id.action_add_tag) {
+                promptAddTag(selected);
+            } else if (item.getItemId() == R.id.action_remove_tag) {
+                promptRemoveTag(selected);
+            } else {
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void onDestroyActionMode(ActionMode mode) {
+            selectionMode = null;
+            notesAdapter.endSelection();
+        }
+    };
+
+    private void confirmBulkDelete(List<JournalEntrySummary> selected) {
+        new AlertDialog.Builder(requireContext())
+                .setTitle("Delete " + selected.size() + " entries?")
+                .setMessage("This can't be undone.")
+                .setPositiveButton("Delete", (dialog, which) -> {
+                    Set<String> ids = new HashSet<>();
+                    for (JournalEntrySummary entry : selected) {
+                        ids.add(entry.getId());
+                    }
+                    dataManager.deleteEntries(selected, bulkProgress("Deleting", () -> {
+                        notesAdapter.removeEntries(ids);
+                        updateEmptyState();
+                    }));
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void promptAddTag(List<JournalEntrySummary> selected) {
+        EditText input = new EditText(requireContext());
+        input.setHint("Tag");
+        new AlertDialog.Builder(requireContext())
+                .setTitle("Add tag to " + selected.size() + " entries")
+                .setView(input)
+                .setPositiveButton("Add", (dialog, which) -> {
+                    String tag = input.getText().toString().trim();
+                    if (tag.isEmpty()) return;
+                    dataManager.addTagToEntries(idsOf(selected), tag, bulkProgress("Tagging", this::showCachedSummaries));
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void promptRemoveTag(List<JournalEntrySummary> selected) {
+        dataManager.loadTagsFromFirestore(tags -> {
+            if (!isAdded()) return;
+            if (tags.isEmpty()) {
+                Toast.makeText(requireContext(), "No tags yet", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            String[] choices = tags.toArray(new String[0]);
+            new AlertDialog.Builder(requireContext())
+                    .setTitle("Remove tag from " + selected.size() + " entries")
+                    .setItems(choices, (dialog, which) -> dataManager.removeTagFromEntries(
+                            idsOf(selected), choices[which], bulkProgress("Untagging", this::showCachedSummaries)))
+                    .show();
+        });
+    }
+
+    // The manager already applied the change to its summaries; no reload needed
+    private void showCachedSummaries() {
+        notesAdapter.setEntries(dataManager.getSummariesCached());
+    }
+
+    private static List<String> idsOf(List<JournalEntrySummary> entries) {
+        List<String> ids = new ArrayList<>();
+        for (JournalEntrySummary entry : entries) {
+            ids.add(entry.getId());
+        }
+        return ids;
+    }
+
+    // Shows batch progress in a Snackbar and leaves selection mode when the work is done
+    private JournalDataManager.BulkCallback bulkProgress(String verb, @Nullable Runnable onSuccess) {
+        if (selectionMode != null) selectionMode.finish();
+        Snackbar progress = Snackbar.make(notesRecyclerView, verb + "…", Snackbar.LENGTH_INDEFINITE);
+        progress.show();
+
+        return new JournalDataManager.BulkCallback() {
+            @Override
+            public void onProgress(int done, int total) {
+                progress.setText(verb + " " + done + " of " + total + "…");
+            }
+
+            @Override
+            public void onComplete(boolean success) {
+                progress.dismiss();
+                if (!isAdded()) return;
+                if (success) {
+                    if (onSuccess != null) onSuccess.run();
+                } else {
+                    Toast.makeText(requireContext(), verb + " stopped partway; showing what was saved",
+                            Toast.LENGTH_SHORT).show();
+                    viewModel.refreshSummaries();
+                }
+            }
+        };
+    }
+
+    private void updateEmptyState() {
+        boolean empty = notesAdapter.getItemCount() == 0;
+        emptyStateContainer.setVisibility(empty ? View.VISIBLE : View.GONE);
+        notesRecyclerView.setVisibility(empty ? View.GONE : View.VISIBLE);
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.mindnote;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.widget.ImageView;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.signature.ObjectKey;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageMetadata;
+import com.google.firebase.storage.StorageReference;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Profile pictures as small, medium and large square JPEG variants under
+ * profile_pictures/{uid}/{version}/. Their download URLs and the version are
+ * kept in the user document and mirrored to local preferences, and Glide
+ * keys its caches by version, so the header paints from disk without a
+ * round trip and a new upload replaces every cached copy.
+ */
+public final class ProfileAvatars {
+
+    private static final String TAG = "ProfileAvatars";
+    private static final String PROFILE_IMAGE_PATH = "profile_pictures";
+    private static final String PREFS = "profile_avatar";
+    private static final int JPEG_QUALITY = 85;
+
+    static final String SMALL = "small";
+    static final String MEDIUM = "medium";
+    static final String LARGE = "large";
+    private static final String[] NAMES = {SMALL, MEDIUM, LARGE};
+    private static final int[] SIZES = {128, 320, 1024};
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public static class Avatar {
+        final long version;
+        final Map<String, String> urls;
+
+        Avatar(long version, Map<String, String> urls) {
+            this.version = version;
+            this.urls = urls;
+        }
+
+        // The smallest variant at least as wide as the view, else the largest
+        String urlFor(int widthPx) {
+            for (int i = 0; i < NAMES.length; i++) {
+                if (SIZES[i] >= widthPx && urls.containsKey(NAMES[i])) return urls.get(NAMES[i]);
+            }
+            return urls.get(LARGE);
+        }
+    }
+
+    private ProfileAvatars() {}
+
+    // Last known avatar for the user, without touching the network
+    public static Avatar getCached(Context context, String uid) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        long version = prefs.getLong(uid + ":version", 0);
+        if (version == 0) return null;
+
+        Map<String, String> urls = new HashMap<>();
+        for (String name : NAMES) {
+            String url = prefs.getString(uid + ":" + name, null);
+            if (url != null) urls.put(name, url);
+        }
+        return urls.isEmpty() ? null : new Avatar(version, urls);
+    }
+
+    private static void saveCached(Context context, String uid, Avatar avatar) {
+        SharedPreferences.Editor editor = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE).edit()
+                .putLong(uid + ":version", avatar.version);
+        for (String name : NAMES) {
+            editor.putString(uid + ":" + name, avatar.urls.get(name));
+        }
+        editor.apply();
+    }
+
+    public static void load(ImageView view, String uid, Avatar avatar) {
+        int widthPx = view.getLayoutParams() != null && view.getLayoutParams().width > 0
+                ? view.getLayoutParams().width : view.getWidth();
+        view.setImageTintList(null);
+        Glide.with(view)
+                .load(avatar.urlFor(widthPx))
+                .signature(new ObjectKey("avatar:" + uid + ":" + avatar.version))
+                .circleCrop()
+                .into(view);
+    }
+
+    /**
+     * Reads the avatar fields of users/{uid} and passes the avatar when it is
+     * newer than the cached one, or null when nothing changed.
+     */
+    public static void refresh(Context context, String uid, Consumer<Avatar> onChanged) {
+        Context appContext = context.getApplicationContext();
+        FirebaseFirestore.getInstance().collection("users").document(uid).get()
+                .addOnSuccessListener(doc -> {
+                    Avatar avatar = fromSnapshot(doc);
+                    Avatar cached = getCached(appContext, uid);
+                    if (avatar == null || (cached != null && cached.version >= avatar.version)) {
+                        onChanged.accept(null);
+                        return;
+                    }
+                    saveCached(appContext, uid, avatar);
+                    onChanged.accept(avatar);
+                })
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Failed to read avatar", e);
+                    onChanged.accept(null);
+                });
+    }
+
+    private static Avatar fromSnapshot(DocumentSnapshot doc) {
+        Object field = doc.get("avatar");
+        if (!(field instanceof Map)) return null;
+
+        Map<?, ?> data = (Map<?, ?>) field;
+        Object version = data.get("version");
+        if (!(version instanceof Number)) return null;
+
+        Map<String, String> urls = new HashMap<>();
+        for (String name : NAMES) {
+            if (data.get(name) instanceof String) urls.put(name, (String) data.get(name));
+        }
+        return urls.isEmpty() ? null : new Avatar(((Number) version).longValue(), urls);
+    }
+
+    /**
+     * Builds and uploads every variant, then records them in the user
+     * document and the local mirror. Callbacks run on the main thread.
+     */
+    public static void upload(Context context, String uid, Uri source,
+                              Consumer<Avatar> onSuccess, Consumer<Exception> onFailure) {
+        Context appContext = context.getApplicationContext();
+        executor.execute(() -> {
+            try {
+                Avatar avatar = uploadVariants(appContext, uid, source);
+                saveCached(appContext, uid, avatar);
+                mainHandler.post(() -> onSuccess.accept(avatar));
+            } catch (IOException | ExecutionException | InterruptedException e) {
+                Log.e(TAG, "Avatar upload failed", e);
+                mainHandler.post(() -> onFailure.accept(e));
+            }
+        });
+    }
+
+    private static Avatar uploadVariants(Context context, String uid, Uri source)
+            throws IOException, ExecutionException, InterruptedException {
+        Bitmap original = decodeSquare(context, source, SIZES[SIZES.length - 1]);
+        long version = System.currentTimeMillis();
+        StorageReference folder = FirebaseStorage.getInstance().getReference()
+                .child(PROFILE_IMAGE_PATH + "/" + uid + "/" + version);
+        StorageMetadata metadata = new StorageMetadata.Builder()
+                .setContentType("image/jpeg")
+                // Paths are versioned, so any cache may keep a variant for good
+                .setCacheControl("public, max-age=31536000, immutable")
+                .build();
+
+        Map<String, Object> avatarData = new HashMap<>();
+        Map<String, String> urls = new HashMap<>();
+        for (int i = 0; i < NAMES.length; i++) {
+            int size = Math.min(SIZES[i], original.getWidth());
+            Bitmap scaled = Bitmap.createScaledBitmap(original, size, size, true);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            scaled.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+            if (scaled != original) scaled.recycle();
+
+            StorageReference ref = folder.child(NAMES[i] + ".jpg");
+            Tasks.await(ref.putBytes(out.toByteArray(), metadata));
+            String url = Tasks.await(ref.getDownloadUrl()).toString();
+            urls.put(NAMES[i], url);
+            avatarData.put(NAMES[i], url);
+        }
+        original.recycle();
+
+        avatarData.put("version", version);
+        Map<String, Object> userData = new HashMap<>();
+        userData.put("avatar", avatarData);
+        Tasks.await(FirebaseFirestore.getInstance().collection("users").document(uid)
+                .set(userData, SetOptions.merge()));
+
+        deleteOtherVersions(uid, version);
+        return new Avatar(version, urls);
+    }
+
+    // Center-cropped square no larger than maxSize, decoded at the nearest power-of-two sample
+    private static Bitmap decodeSquare(Context context, Uri source, int maxSize) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = context.getContentResolver().openInputStream(source)) {
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Cannot decode " + source);
+        }
+
+        int shortSide = Math.min(bounds.outWidth, bounds.outHeight);
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = 1;
+        while (shortSide / (options.inSampleSize * 2) >= maxSize) {
+            options.inSampleSize *= 2;
+        }
+
+        Bitmap decoded;
+        try (InputStream in = context.getContentResolver().openInputStream(source)) {
+            decoded = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (decoded == null) throw new IOException("Cannot decode " + source);
+
+        int side = Math.min(decoded.getWidth(), decoded.getHeight());
+        Bitmap square = Bitmap.createBitmap(decoded,
+                (decoded.getWidth() - side) / 2, (decoded.getHeight() - side) / 2, side, side);
+        if (square != decoded) decoded.recycle();
+
+        if (side <= maxSize) return square;
+        Bitmap scaled = Bitmap.createScaledBitmap(square, maxSize, maxSize, true);
+        if (scaled != square) square.recycle();
+        return scaled;
+    }
+
+    // Best effort; a leftover folder only costs storage
+    private static void deleteOtherVersions(String uid, long keep) {
+        StorageReference userFolder = FirebaseStorage.getInstance().getReference()
+                .child(PROFILE_IMAGE_PATH + "/" + uid);
+        userFolder.listAll().addOnSuccessListener(result -> {
+            for (StorageReference folder : result.getPrefixes()) {
+                if (folder.getName().equals(String.valueOf(keep))) continue;
+                folder.listAll().addOnSuccessListener(files -> {
+                    for (StorageReference file : files.getItems()) {
+                        file.delete();
+                    }
+                });
+            }
+        }).addOnFailureListener(e -> Log.w(TAG, "Failed to list old avatars", e));
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.mindnote;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.provider.MediaStore;
+import android.text.TextUtils;
+import android.view.View;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.ImageView;
+import android.widget.Switch;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.auth.UserProfileChangeRequest;
+import com.google.firebase.messaging.FirebaseMessaging;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+public class ProfileFragment extends Fragment {
+
+    private ImageView profileImageView;
+    private static final int TOP_WORDS = 5;
+
+    private TextView emailTextView, statsTextView, lastEntryTextView, writingTextView;
+    private EditText displayNameEditText;
+    private Button saveNameButton, logoutButton;
+    private Switch notificationSwitch;
+    private Uri imageUri;
+    private FirebaseUser user;
+    private JournalViewModel viewModel;
+
+    private final ActivityResultLauncher<Intent> photoPickerLauncher =
+            registerForActivityResult(new ActivityResultContracts.StartActivityForResult(), result -> {
+                if (result.getResultCode() == Activity.RESULT_OK && result.getData() != null) {
+                    imageUri = result.getData().getData();
+                    uploadProfileImage();
+                }
+            });
+
+    public ProfileFragment() {
+        super(R.layout.fragment_profile);
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        user = FirebaseAuth.getInstance().getCurrentUser();
+        viewModel = new ViewModelProvider(requireActivity()).get(JournalViewModel.class);
+
+        profileImageView = view.findViewById(R.id.profileImageView);
+        emailTextView = view.findViewById(R.id.emailTextView);
+        displayNameEditText = view.findViewById(R.id.displayNameEditText);
+        statsTextView = view.findViewById(R.id.statsTextView);
+        lastEntryTextView = view.findViewById(R.id.lastEntryTextView);
+        writingTextView = view.findViewById(R.id.writingTextView);
+        saveNameButton = view.findViewById(R.id.saveNameButton);
+        logoutButton = view.findViewById(R.id.logoutButton);
+        notificationSwitch = view.findViewById(R.id.notificationSwitch);
+
+        emailTextView.setText(user != null ? user.getEmail() : "Not signed in");
+        displayNameEditText.setText(user != null ? user.getDisplayName() : "");
+
+        viewModel.getStats().observe(getViewLifecycleOwner(), this::showStats);
+        showAvatar();
+
+        saveNameButton.setOnClickListener(v -> saveDisplayName());
+        logoutButton.setOnClickListener(v -> logout());
+        profileImageView.setOnClickListener(v -> pickImage());
+
+        FirebaseMessaging.getInstance().getToken().addOnSuccessListener(token -> {
+            if (notificationSwitch != null) notificationSwitch.setChecked(true);
+        });
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        if (!isHidden()) viewModel.refreshStats();
+    }
+
+    @Override
+    public void onHiddenChanged(boolean hidden) {
+        super.onHiddenChanged(hidden);
+        if (!hidden) viewModel.refreshStats();
+    }
+
+    private void showStats(JournalStats stats) {
+        int entryCount = stats.getEntryCount();
+        int streak = stats.getStreak();
+        Date lastEntry = stats.getLastEntryDate();
+
+        statsTextView.setText(entryCount + " entries | " + streak + " day streak");
+
+        if (lastEntry != null) {
+            SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+            lastEntryTextView.setText("Last entry: " + sdf.format(lastEntry));
+        } else {
+            lastEntryTextView.setText("Last entry: N/A");
+        }
+
+        // Stats only change after a write, which is also when the text analysis moves
+        viewModel.getDataManager().loadTextStats(new Date(), TOP_WORDS, this::showTextStats);
+    }
+
+    private void showTextStats(JournalTextStats textStats) {
+        if (!isAdded()) return;
+        if (textStats.getTopWords().isEmpty()) {
+            writingTextView.setVisibility(View.GONE);
+            return;
+        }
+
+        double sentiment = textStats.getSentiment();
+        String tone = sentiment > 0.2 ? "mostly positive" : sentiment < -0.2 ? "mostly heavy" : "mixed";
+        writingTextView.setText("This month you wrote about " + TextUtils.join(", ", textStats.getTopWords().keySet())
+                + " (" + tone + ")");
+        writingTextView.setVisibility(View.VISIBLE);
+    }
+
+    private void saveDisplayName() {
+        String name = displayNameEditText.getText().toString().trim();
+        if (name.isEmpty() || user == null) return;
+
+        UserProfileChangeRequest profileUpdates = new UserProfileChangeRequest.Builder()
+                .setDisplayName(name)
+                .build();
+
+        user.updateProfile(profileUpdates)
+                .addOnSuccessListener(unused -> Toast.makeText(requireContext(), "Name updated", Toast.LENGTH_SHORT).show())
+                .addOnFailureListener(e -> Toast.makeText(requireContext(), "Failed to update", Toast.LENGTH_SHORT).show());
+    }
+
+    private void logout() {
+        // Queued deletes must go out under this user; the sign-out drops whatever is left
+        JournalDataManager.getInstance(requireContext()).commitPendingDeletes();
+        FirebaseAuth.getInstance().signOut();
+        startActivity(new Intent(requireContext(), LoginActivity.class));
+        requireActivity().finish();
+    }
+
+    private void pickImage() {
+        Intent pickIntent = new Intent(Intent.ACTION_PICK, MediaStore.Images.Media.EXTERNAL_CONTENT_URI);
+        photoPickerLauncher.launch(pickIntent);
+    }
+
+    // Paints the locally known avatar straight away, then picks up one changed on another device
+    private void showAvatar() {
+        if (user == null) return;
+
+        String uid = user.getUid();
+        ProfileAvatars.Avatar cached = ProfileAvatars.getCached(requireContext(), uid);
+        if (cached != null) {
+            ProfileAvatars.load(profileImageView, uid, cached);
+        }
+        ProfileAvatars.refresh(requireContext(), uid, avatar -> {
+            if (avatar != null && isAdded()) ProfileAvatars.load(profileImageView, uid, avatar);
+        });
+    }
+
+    private void uploadProfileImage() {
+        if (imageUri == null || user == null) return;
+
+        String uid = user.getUid();
+        ProfileAvatars.upload(requireContext(), uid, imageUri, avatar -> {
+            if (!isAdded()) return;
+            ProfileAvatars.load(profileImageView, uid, avatar);
+            Toast.makeText(requireContext(), "Profile picture updated", Toast.LENGTH_SHORT).show();
+        }, e -> {
+            if (isAdded()) Toast.makeText(requireContext(), "Upload failed", Toast.LENGTH_SHORT).show();
+        });
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.mindnote;
+
+import android.content.Context;
+import android.content.Intent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.Glide;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RecentEntriesAdapter extends RecyclerView.Adapter<RecentEntriesAdapter.RecentViewHolder> {
+
+    private List<JournalEntrySummary> entries = new ArrayList<>();
+    private final Context context;
+
+    public RecentEntriesAdapter(Context context) {
+        this.context = context;
+    }
+
+    public void setEntries(List<JournalEntrySummary> entries) {
+        this.entries = entries;
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return R.layout.item_recent_entry;
+    }
+
+    @NonNull
+    @Override
+    public RecentViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        return new RecentViewHolder(FeedViews.inflate(parent, R.layout.item_recent_entry));
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecentViewHolder holder, int position) {
+        JournalEntrySummary entry = entries.get(position);
+
+        holder.dateText.setText(entry.getShortDate());
+        holder.noteText.setText(entry.getPreview());
+
+        if (entry.getThumbnail() != null && !JournalDataManager.isDemoImage(entry.getThumbnail())) {
+            JournalImages.loadThumbnail(holder.entryImage, entry.getId(), entry.getThumbnail(), entry.getImageVersion());
+            holder.entryImage.setVisibility(View.VISIBLE);
+        } else {
+            holder.entryImage.setVisibility(View.GONE);
+        }
+
+        holder.itemView.setOnClickListener(v -> {
+            Intent intent = new Intent(context, JournalActivity.class);
+            intent.putExtra("entryId", entry.getId());
+            context.startActivity(intent);
+        });
+    }
+
+    // Pooled holders outlive this screen; drop anything that references it
+    @Override
+    public void onViewRecycled(@NonNull RecentViewHolder holder) {
+        holder.itemView.setOnClickListener(null);
+        Glide.with(holder.entryImage).clear(holder.entryImage);
+    }
+
+    @Override
+    public int getItemCount() {
+        return entries != null ? entries.size() : 0;
+    }
+
+    static class RecentViewHolder extends RecyclerView.ViewHolder {
+        TextView dateText, noteText;
+        ImageView entryImage;
+
+        RecentViewHolder(View itemView) {
+            super(itemView);
+            dateText = itemView.findViewById(R.id.dateText);
+            noteText = itemView.findViewById(R.id.contentText);
+            entryImage = itemView.findViewById(R.id.entryImage);
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package com.example.mindnote;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Journal storage in a per-user SQLite database on the device. Queries run on
+ * one background thread and results are posted to the main thread, matching
+ * the Firestore backend. Stats and month indexes are derived with queries.
+ */
+public class SQLiteJournalRepository implements JournalRepository {
+
+    private static final int MOOD_COUNT = 3;
+    private static final int DB_VERSION = 1;
+    private static final String ENTRY_COLUMNS = "id, title, note, mood, tags, image_path, image_version, date";
+
+    private final Helper helper;
+    private final Executor io;
+    private final Executor main;
+
+    public SQLiteJournalRepository(Context context, String uid) {
+        this(context, uid, Executors.newSingleThreadExecutor(), new Handler(Looper.getMainLooper())::post);
+    }
+
+    // Tests pass direct executors, so every call answers before it returns
+    SQLiteJournalRepository(Context context, String uid, Executor io, Executor main) {
+        helper = new Helper(context.getApplicationContext(), "journal_" + (uid != null ? uid : "signed_out") + ".db");
+        this.io = io;
+        this.main = main;
+    }
+
+    private static class Helper extends SQLiteOpenHelper {
+        Helper(Context context, String name) {
+            super(context, name, null, DB_VERSION);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE entries (id TEXT PRIMARY KEY, title TEXT, note TEXT, mood INTEGER NOT NULL,"
+                    + " tags TEXT, image_path TEXT, image_version INTEGER NOT NULL DEFAULT 0, date INTEGER NOT NULL)");
+            db.execSQL("CREATE INDEX entries_date ON entries (date)");
+            db.execSQL("CREATE INDEX entries_mood_date ON entries (mood, date)");
+            db.execSQL("CREATE TABLE journal_tags (position INTEGER PRIMARY KEY, name TEXT NOT NULL)");
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        }
+    }
+
+    private <T> void run(Callable<T> work, Consumer<T> onSuccess, Consumer<Exception> onFailure) {
+        io.execute(() -> {
+            try {
+                T result = work.call();
+                main.execute(() -> onSuccess.accept(result));
+            } catch (Exception e) {
+                main.execute(() -> onFailure.accept(e));
+            }
+        });
+    }
+
+    private void run(Callable<?> work, Runnable onSuccess, Consumer<Exception> onFailure) {
+        run(work, result -> onSuccess.run(), onFailure);
+    }
+
+    @Override
+    public void loadEntries(Consumer<List<JournalEntry>> onSuccess, Consumer<Exception> onFailure) {
+        run(() -> queryEntries(null, null, -1), onSuccess, onFailure);
+    }
+
+    @Override
+    public void loadSummaries(Consumer<List<JournalEntrySummary>> onSuccess, Consumer<Exception> onFailure) {
+        run(() -> toSummaries(queryEntries(null, null, -1)), onSuccess, onFailure);
+    }
+
+    @Override
+    public void loadRecentSummaries(int limit, Consumer<List<JournalEntrySummary>> onSuccess,
+                                    Consumer<Exception> onFailure) {
+        run(() -> toSummaries(queryEntries(null, null, limit)), onSuccess, onFailure);
+    }
+
+    // Keyset paging on (date, id), so later pages cost the same as the first
+    @Override
+    public void queryEntries(JournalQuery query, JournalPage after,
+                             Consumer<JournalPage> onSuccess, Consumer<Exception> onFailure) {
+        List<String> clauses = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        if (query.getTag() != null) {
+            // Tags are stored newline-joined; wrap both sides so only whole tags match
+            clauses.add("instr('\n' || tags || '\n', ?) > 0");
+            args.add("\n" + query.getTag() + "\n");
+        }
+        if (query.getMood() != null) {
+            clauses.add("mood = ?");
+            args.add(String.valueOf(query.getMood()));
+        }
+        if (query.getFrom() != null) {
+            clauses.add("date >= ?");
+            args.add(String.valueOf(query.getFrom().getTime()));
+        }
+        if (query.getTo() != null) {
+            clauses.add("date < ?");
+            args.add(String.valueOf(query.getTo().getTime()));
+        }
+        if (after != null && after.getCursor() instanceof JournalEntrySummary) {
+            JournalEntrySummary last = (JournalEntrySummary) after.getCursor();
+            clauses.add("(date < ? OR (date = ? AND id < ?))");
+            args.add(String.valueOf(last.getDate().getTime()));
+            args.add(String.valueOf(last.getDate().getTime()));
+            args.add(last.getId());
+        }
+        String selection = clauses.isEmpty() ? null : TextUtils.join(" AND ", clauses);
+
+        run(() -> {
+            List<JournalEntrySummary> items = toSummaries(
+                    queryEntries(selection, args.toArray(new String[0]), query.getPageSize()));
+            JournalEntrySummary last = items.isEmpty() ? null : items.get(items.size() - 1);
+            return new JournalPage(items, last, items.size() == query.getPageSize(), false);
+        }, onSuccess, onFailure);
+    }
+
+    @Override
+    public void fetchEntry(String entryId, Consumer<JournalEntry> onSuccess, Consumer<Exception> onFailure) {
+        run(() -> {
+            List<JournalEntry> found = queryEntries("id = ?", new String[]{entryId}, 1);
+            return found.isEmpty() ? null : found.get(0);
+        }, onSuccess, onFailure);
+    }
+
+    @Override
+    public void loadNoteChunks(String entryId, int from, int count,
+                               Consumer<List<String>> onSuccess, Consumer<Exception> onFailure) {
+        main.execute(() -> onSuccess.accept(new ArrayList<>()));
+    }
+
+    @Override
+    public void addEntry(JournalEntry entry, Runnable onSuccess, Consumer<Exception> onFailure) {
+        if (entry.getDate() == null) entry.setDate(new Date());
+        entry.setId(UUID.randomUUID().toString());
+        entry.setImageVersion(entry.getImagePath() != null ? entry.getDate().getTime() : 0);
+        ContentValues values = toValues(entry);
+        run(() -> helper.getWritableDatabase().insertOrThrow("entries", null, values), onSuccess, onFailure);
+    }
+
+    @Override
+    public void updateEntry(JournalEntry original, JournalEntry updated, Runnable onSuccess,
+                            Consumer<Exception> onFailure) {
+        updated.setId(original.getId());
+        updated.setDate(original.getDate());
+        updated.setImageVersion(TextUtils.equals(original.getImagePath(), updated.getImagePath())
+                ? original.getImageVersion()
+                : (updated.getImagePath() != null ? System.currentTimeMillis() : 0));
+        ContentValues values = toValues(updated);
+        run(() -> helper.getWritableDatabase().update("entries", values, "id = ?", new String[]{original.getId()}),
+                onSuccess, onFailure);
+    }
+
+    @Override
+    public void deleteEntry(String entryId, JournalEntrySummary known, Runnable onSuccess,
+                            Consumer<Exception> onFailure) {
+        run(() -> helper.getWritableDatabase().delete("entries", "id = ?", new String[]{entryId}),
+                onSuccess, onFailure);
+    }
+
+    @Override
+    public void deleteEntries(List<JournalEntrySummary> entries, Consumer<List<String>> onChunkCommitted,
+                              Runnable onSuccess, Consumer<Exception> onFailure) {
+        List<String> ids = new ArrayList<>();
+        for (JournalEntrySummary entry : entries) {
+            ids.add(entry.getId());
+        }
+        run(() -> {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                for (String id : ids) {
+                    db.delete("entries", "id = ?", new String[]{id});
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            return ids;
+        }, committed -> {
+            onChunkCommitted.accept(committed);
+            onSuccess.run();
+        }, onFailure);
+    }
+
+    @Override
+    public void updateEntryTags(List<String> entryIds, String tag, boolean add,
+                                Consumer<List<String>> onChunkCommitted, Runnable onSuccess,
+                                Consumer<Exception> onFailure) {
+        List<String> ids = new ArrayList<>(entryIds);
+        run(() -> {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                for (String id : ids) {
+                    List<JournalEntry> found = queryEntries("id = ?", new String[]{id}, 1);
+                    if (found.isEmpty()) continue;
+                    JournalEntry entry = found.get(0);
+                    entry.getTags().remove(tag);
+                    if (add) entry.getTags().add(tag);
+                    ContentValues values = new ContentValues();
+                    values.put("tags", TextUtils.join("\n", entry.getTags()));
+                    db.update("entries", values, "id = ?", new String[]{id});
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            return ids;
+        }, committed -> {
+            onChunkCommitted.accept(committed);
+            onSuccess.run();
+        }, onFailure);
+    }
+
+    @Override
+    public void loadTags(Consumer<List<String>> onSuccess, Consumer<Exception> onFailure) {
+        run(() -> {
+            List<String> tags = new ArrayList<>();
+            try (Cursor c = helper.getReadableDatabase()
+                    .rawQuery("SELECT name FROM journal_tags ORDER BY position", null)) {
+                while (c.moveToNext()) {
+                    tags.add(c.getString(0));
+                }
+            }
+            return tags;
+        }, onSuccess, onFailure);
+    }
+
+    @Override
+    public void saveTags(List<String> tags, Runnable onSuccess, Consumer<Exception> onFailure) {
+        List<String> snapshot = new ArrayList<>(tags);
+        run(() -> {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                db.delete("journal_tags", null, null);
+                for (int i = 0; i < snapshot.size(); i++) {
+                    ContentValues values = new ContentValues();
+                    values.put("position", i);
+                    values.put("name", snapshot.get(i));
+                    db.insertOrThrow("journal_tags", null, values);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            return null;
+        }, onSuccess, onFailure);
+    }
+
+    @Override
+    public void removeTagFromEntries(String tag, Consumer<Integer> onSuccess, Consumer<Exception> onFailure) {
+        run(() -> {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            int removed = 0;
+            db.beginTransaction();
+            try {
+                // Coarse LIKE match first, exact check on the split list
+                List<JournalEntry> candidates = queryEntries("tags LIKE ?", new String[]{"%" + tag + "%"}, -1);
+                for (JournalEntry entry : candidates) {
+                    if (!entry.getTags().remove(tag)) continue;
+                    ContentValues values = new ContentValues();
+                    values.put("tags", TextUtils.join("\n", entry.getTags()));
+                    db.update("entries", values, "id = ?", new String[]{entry.getId()});
+                    removed++;
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            return removed;
+        }, onSuccess, onFailure);
+    }
+
+    @Override
+    public void loadStats(Consumer<JournalStats> onSuccess, Consumer<Exception> onFailure) {
+        run(() -> {
+            // Only date and mood are needed for the counters and the streak
+            List<JournalEntry> light = new ArrayList<>();
+            try (Cursor c = helper.getReadableDatabase()
+                    .rawQuery("SELECT date, mood FROM entries ORDER BY date DESC", null)) {
+                while (c.moveToNext()) {
+                    light.add(new JournalEntry(new Date(c.getLong(0)), null, c.getInt(1)));
+                }
+            }
+            return JournalStats.fromEntries(light, MOOD_COUNT);
+        }, onSuccess, onFailure);
+    }
+
+    @Override
+    public void saveStats(JournalStats stats, Runnable onSuccess, Consumer<Exception> onFailure) {
+        main.execute(onSuccess);
+    }
+
+    @Override
+    public void loadMonthIndex(String monthKey, Consumer<JournalMonthIndex> onSuccess, Consumer<Exception> onFailure) {
+        run(() -> {
+            String[] parts = monthKey.split("-");
+            Calendar cal = Calendar.getInstance();
+            cal.clear();
+            cal.set(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]) - 1, 1);
+            long start = cal.getTimeInMillis();
+            cal.add(Calendar.MONTH, 1);
+            long end = cal.getTimeInMillis();
+
+            JournalMonthIndex index = new JournalMonthIndex(monthKey);
+            try (Cursor c = helper.getReadableDatabase().rawQuery(
+                    "SELECT id, mood, date FROM entries WHERE date >= ? AND date < ?",
+                    new String[]{String.valueOf(start), String.valueOf(end)})) {
+                while (c.moveToNext()) {
+                    index.put(JournalMonthIndex.dayOfMonth(new Date(c.getLong(2))), c.getString(0), c.getInt(1));
+                }
+            }
+            return index;
+        }, onSuccess, onFailure);
+    }
+
+    @Override
+    public void saveMonthIndexes(Collection<JournalMonthIndex> indexes, Runnable onSuccess,
+                                 Consumer<Exception> onFailure) {
+        main.execute(onSuccess);
+    }
+
+    // Local reads cost nothing per row, so nothing is ever archived
+    @Override
+    public void loadArchiveIndex(Consumer<JournalArchiveIndex> onSuccess, Consumer<Exception> onFailure) {
+        main.execute(() -> onSuccess.accept(JournalArchiveIndex.empty()));
+    }
+
+    @Override
+    public void loadArchive(String monthKey, Consumer<List<JournalEntry>> onSuccess, Consumer<Exception> onFailure) {
+        main.execute(() -> onSuccess.accept(new ArrayList<>()));
+    }
+
+    @Override
+    public void restoreArchived(List<JournalEntrySummary> entries, Runnable onSuccess, Consumer<Exception> onFailure) {
+        main.execute(onSuccess);
+    }
+
+    private List<JournalEntry> queryEntries(String selection, String[] args, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT " + ENTRY_COLUMNS + " FROM entries");
+        if (selection != null) sql.append(" WHERE ").append(selection);
+        sql.append(" ORDER BY date DESC, id DESC");
+        if (limit > 0) sql.append(" LIMIT ").append(limit);
+
+        List<JournalEntry> result = new ArrayList<>();
+        try (Cursor c = helper.getReadableDatabase().rawQuery(sql.toString(), args)) {
+            while (c.moveToNext()) {
+                JournalEntry entry = new JournalEntry(new Date(c.getLong(7)), c.getString(2), c.getInt(3));
+                entry.setId(c.getString(0));
+                entry.setTitle(c.getString(1));
+                String tags = c.getString(4);
+                entry.setTags(TextUtils.isEmpty(tags) ? new ArrayList<>() : new ArrayList<>(Arrays.asList(tags.split("\n"))));
+                entry.setImagePath(c.getString(5));
+                entry.setImageVersion(c.getLong(6));
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    private static List<JournalEntrySummary> toSummaries(List<JournalEntry> entries) {
+        List<JournalEntrySummary> result = new ArrayList<>();
+        for (JournalEntry entry : entries) {
+            result.add(JournalEntrySummary.fromEntry(entry));
+        }
+        return result;
+    }
+
+    private static ContentValues toValues(JournalEntry entry) {
+        ContentValues values = new ContentValues();
+        values.put("id", entry.getId());
+        values.put("title", entry.getTitle());
+        values.put("note", entry.getNote());
+        values.put("mood", entry.getMood());
+        values.put("tags", entry.getTags() != null ? TextUtils.join("\n", entry.getTags()) : "");
+        values.put("image_path", entry.getImagePath());
+        values.put("image_version", entry.getImageVersion());
+        values.put("date", entry.getDate().getTime());
+        return values;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.mindnote;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class HybridLogicalClockTest {
+
+    private static final long T = 1_750_000_000_000L;
+    private static final long HOUR = 3_600_000L;
+
+    @Test
+    public void timestampsIncreaseWithinOneMillisecond() {
+        HybridLogicalClock clock = new HybridLogicalClock("0000000a", () -> T);
+        String previous = clock.now();
+        for (int i = 0; i < 1000; i++) {
+            String next = clock.now();
+            assertTrue(next + " after " + previous, HybridLogicalClock.isAfter(next, previous));
+            assertEquals(T, millisOf(next));
+            previous = next;
+        }
+    }
+
+    @Test
+    public void counterOverflowMovesToTheNextMillisecond() {
+        HybridLogicalClock clock = new HybridLogicalClock("0000000a", () -> T);
+        String last = null;
+        for (int i = 0; i <= 100_000; i++) {
+            last = clock.now();
+        }
+        assertEquals(T + 1, millisOf(last));
+        assertEquals(0, counterOf(last));
+    }
+
+    @Test
+    public void wallClockAdvanceResetsTheCounter() {
+        AtomicLong wall = new AtomicLong(T);
+        HybridLogicalClock clock = new HybridLogicalClock("0000000a", wall::get);
+        clock.now();
+        clock.now();
+        wall.addAndGet(5);
+        String next = clock.now();
+        assertEquals(T + 5, millisOf(next));
+        assertEquals(0, counterOf(next));
+    }
+
+    @Test
+    public void equalPhysicalTimeOnTwoNodesStillOrdersOneWay() {
+        HybridLogicalClock a = new HybridLogicalClock("0000000a", () -> T);
+        HybridLogicalClock b = new HybridLogicalClock("0000000b", () -> T);
+        String stampA = a.now();
+        String stampB = b.now();
+
+        assertNotEquals(stampA, stampB);
+        assertEquals(millisOf(stampA), millisOf(stampB));
+        assertEquals(counterOf(stampA), counterOf(stampB));
+        assertTrue(HybridLogicalClock.isAfter(stampA, stampB) != HybridLogicalClock.isAfter(stampB, stampA));
+    }
+
+    @Test
+    public void observingASkewedAheadClockOrdersTheNextEditAfterIt() {
+        HybridLogicalClock ahead = new HybridLogicalClock("0000000a", () -> T + HOUR);
+        HybridLogicalClock behind = new HybridLogicalClock("0000000b", () -> T);
+        String remote = ahead.now();
+
+        // Unobserved, the slow clock stamps its edit earlier than one it follows in real time
+        assertFalse(HybridLogicalClock.isAfter(behind.now(), remote));
+
+        behind.observe(remote);
+        String next = behind.now();
+        assertTrue(HybridLogicalClock.isAfter(next, remote));
+        assertEquals(T + HOUR, millisOf(next));
+    }
+
+    @Test
+    public void observingAnOlderTimestampNeverMovesTheClockBack() {
+        HybridLogicalClock old = new HybridLogicalClock("0000000a", () -> T - HOUR);
+        HybridLogicalClock clock = new HybridLogicalClock("0000000b", () -> T);
+        String latest = clock.now();
+
+        clock.observe(old.now());
+        assertTrue(HybridLogicalClock.isAfter(clock.now(), latest));
+    }
+
+    @Test
+    public void malformedTimestampsAreIgnored() {
+        HybridLogicalClock clock = new HybridLogicalClock("0000000a", () -> T);
+        clock.observe(null);
+        clock.observe("");
+        clock.observe("12345");
+        clock.observe("not-a-timestamp-at-all");
+
+        String next = clock.now();
+        assertEquals(T, millisOf(next));
+        assertEquals(0, counterOf(next));
+    }
+
+    @Test
+    public void missingTimestampsAreOlderThanAnyOther() {
+        String stamp = new HybridLogicalClock("0000000a", () -> T).now();
+        assertTrue(HybridLogicalClock.isAfter(stamp, null));
+        assertTrue(HybridLogicalClock.isAfter(stamp, ""));
+        assertFalse(HybridLogicalClock.isAfter(null, stamp));
+        assertFalse(HybridLogicalClock.isAfter(null, null));
+        assertFalse(HybridLogicalClock.isAfter(stamp, stamp));
+    }
+
+    private static long millisOf(String timestamp) {
+        return Long.parseLong(timestamp.substring(0, 13));
+    }
+
+    private static int counterOf(String timestamp) {
+        return Integer.parseInt(timestamp.substring(13, 18));
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.mindnote;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * The JournalDataManager contract, over InMemoryJournalRepository here and over
+ * SQLiteJournalRepository in SQLiteJournalDataManagerTest.
+ */
+public class JournalDataManagerTest {
+
+    private static final int HAPPY = 0;
+    private static final int NEUTRAL = 1;
+    private static final int SAD = 2;
+
+    private JournalRepository repository;
+    private JournalDataManager manager;
+
+    // A store that answers every call before returning
+    protected JournalRepository newRepository() {
+        return new InMemoryJournalRepository();
+    }
+
+    @Before
+    public void setUp() {
+        repository = newRepository();
+        manager = JournalDataManager.withRepository(repository, "test-user");
+    }
+
+    @Test
+    public void streakCountsConsecutiveDaysEndingAtTheNewestEntry() {
+        save(daysAgo(0), HAPPY);
+        save(daysAgo(1), SAD);
+        save(daysAgo(2), NEUTRAL);
+        save(daysAgo(5), HAPPY);
+
+        assertEquals(3, manager.calculateStreak());
+        assertEquals(daysAgo(0), manager.getLastEntryDate());
+
+        // A second entry on the same day does not extend it
+        save(daysAgo(1), HAPPY);
+        assertEquals(3, manager.calculateStreak());
+    }
+
+    @Test
+    public void streakIsRebuiltFromTheSummariesLoad() {
+        repository.addEntry(entry(daysAgo(3), HAPPY), () -> { }, e -> { });
+        repository.addEntry(entry(daysAgo(4), HAPPY), () -> { }, e -> { });
+        repository.addEntry(entry(daysAgo(7), HAPPY), () -> { }, e -> { });
+
+        manager.loadEntrySummaries(result -> { });
+        assertEquals(2, manager.calculateStreak());
+
+        List<JournalStats> loaded = new ArrayList<>();
+        manager.loadStats(loaded::add);
+        assertEquals(2, loaded.get(0).getStreak());
+        assertEquals(3, loaded.get(0).getEntryCount());
+    }
+
+    @Test
+    public void emptyJournalHasNoStreak() {
+        assertEquals(0, manager.calculateStreak());
+        assertNull(manager.getLastEntryDate());
+    }
+
+    @Test
+    public void moodFilterMatchesLabelsAndEmoji() {
+        save(daysAgo(0), HAPPY);
+        save(daysAgo(1), SAD);
+        save(daysAgo(2), HAPPY);
+
+        assertEquals(2, manager.getEntriesByMood("happy").size());
+        assertEquals(2, manager.getEntriesByMood(" Happy ").size());
+        assertEquals(1, manager.getEntriesByMood("😢").size());
+        assertEquals(0, manager.getEntriesByMood("neutral").size());
+        assertEquals(0, manager.getEntriesByMood("angry").size());
+        for (JournalEntry entry : manager.getEntriesByMood("happy")) {
+            assertEquals(HAPPY, entry.getMood());
+        }
+    }
+
+    @Test
+    public void moodFilterFollowsEdits() {
+        JournalEntry saved = save(daysAgo(0), HAPPY);
+        JournalEntry edited = entry(saved.getDate(), SAD);
+        edited.setId(saved.getId());
+
+        List<Boolean> results = new ArrayList<>();
+        manager.updateEntry(saved, edited, results::add);
+
+        assertEquals(Collections.singletonList(true), results);
+        assertEquals(0, manager.getEntriesByMood("happy").size());
+        assertEquals(1, manager.getEntriesByMood("sad").size());
+    }
+
+    @Test
+    public void savingTagsMergesWithTheStoredList() {
+        repository.saveTags(Arrays.asList("work", "family"), () -> { }, e -> { });
+
+        manager.saveTagsToFirestore(new HashSet<>(Arrays.asList("travel", "work")));
+
+        assertEquals(Arrays.asList("work", "family", "travel"), loadTags());
+    }
+
+    @Test
+    public void addingATagToEntriesTagsOnlyThoseAndRecordsIt() {
+        JournalEntry first = save(daysAgo(0), HAPPY);
+        JournalEntry second = save(daysAgo(1), HAPPY);
+        JournalEntry third = save(daysAgo(2), HAPPY);
+
+        RecordingCallback callback = new RecordingCallback();
+        manager.addTagToEntries(Arrays.asList(first.getId(), second.getId()), "travel", callback);
+
+        assertTrue(callback.success);
+        assertEquals(2, callback.done);
+        assertEquals(idsOf(Arrays.asList(first, second)), idsOf(manager.getEntriesByTag("travel")));
+        assertEquals(Collections.singletonList("travel"), loadTags());
+        assertEquals(Collections.singletonList("travel"), summaryTags(first.getId()));
+        assertEquals(Collections.emptyList(), summaryTags(third.getId()));
+    }
+
+    @Test
+    public void removingATagFromEntriesKeepsItElsewhere() {
+        JournalEntry first = save(daysAgo(0), HAPPY, "travel");
+        JournalEntry second = save(daysAgo(1), HAPPY, "travel", "work");
+
+        manager.removeTagFromEntries(Collections.singletonList(second.getId()), "travel", new RecordingCallback());
+
+        assertEquals(idsOf(Collections.singletonList(first)), idsOf(manager.getEntriesByTag("travel")));
+        assertEquals(idsOf(Collections.singletonList(second)), idsOf(manager.getEntriesByTag("work")));
+        assertEquals(Collections.singletonList("travel"), summaryTags(first.getId()));
+        assertEquals(Collections.singletonList("work"), summaryTags(second.getId()));
+    }
+
+    @Test
+    public void deletingATagRemovesItFromEveryEntry() {
+        save(daysAgo(0), HAPPY, "travel");
+        JournalEntry kept = save(daysAgo(1), HAPPY, "travel", "work");
+
+        manager.deleteTagFromAllEntries("travel");
+
+        assertEquals(0, manager.getEntriesByTag("travel").size());
+        assertEquals(idsOf(Collections.singletonList(kept)), idsOf(manager.getEntriesByTag("work")));
+        assertEquals(Collections.singletonList("work"), summaryTags(kept.getId()));
+
+        // The store agrees, so a fresh load does not bring the tag back
+        manager.clearCache();
+        manager.loadEntrySummaries(result -> { });
+        assertEquals(0, manager.getEntriesByTag("travel").size());
+        assertEquals(1, manager.getEntriesByTag("work").size());
+    }
+
+    private JournalEntry save(Date date, int mood, String... tags) {
+        JournalEntry entry = entry(date, mood, tags);
+        manager.saveEntry(entry);
+        return entry;
+    }
+
+    private static JournalEntry entry(Date date, int mood, String... tags) {
+        JournalEntry entry = new JournalEntry(date, "note", mood);
+        entry.setTags(new ArrayList<>(Arrays.asList(tags)));
+        return entry;
+    }
+
+    private List<String> loadTags() {
+        List<String> tags = new ArrayList<>();
+        manager.loadTagsFromFirestore(tags::addAll);
+        return tags;
+    }
+
+    private List<String> summaryTags(String entryId) {
+        for (JournalEntrySummary summary : manager.getSummariesCached()) {
+            if (entryId.equals(summary.getId())) return summary.getTags();
+        }
+        return null;
+    }
+
+    private static List<String> idsOf(List<JournalEntry> entries) {
+        List<String> ids = new ArrayList<>();
+        for (JournalEntry entry : entries) {
+            ids.add(entry.getId());
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    // Noon on days before a fixed mid-June date, so no DST change makes two days 23 hours apart
+    private static Date daysAgo(int days) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2026, Calendar.JUNE, 20, 12, 0);
+        calendar.add(Calendar.DAY_OF_MONTH, -days);
+        return calendar.getTime();
+    }
+
+    private static class RecordingCallback implements JournalDataManager.BulkCallback {
+        int done;
+        boolean success;
+
+        @Override
+        public void onProgress(int done, int total) {
+            this.done = done;
+        }
+
+        @Override
+        public void onComplete(boolean success) {
+            this.success = success;
+        }
+    }
+}
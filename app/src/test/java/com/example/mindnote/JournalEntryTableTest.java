@@ -0,0 +1,79 @@
+package com.example.mindnote;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+public class JournalEntryTableTest {
+
+    @Test
+    public void replacingPatchesOneRowAndKeepsTheOthersTags() {
+        JournalEntryTable table = JournalEntryTable.fromEntries(Arrays.asList(
+                entry("a", 3, "work"), entry("b", 2, "travel", "work"), entry("c", 1, "family")));
+
+        JournalEntryTable edited = table.replacing(1, entry("b", 2, "sport"));
+
+        assertEquals(Arrays.asList("a", "b", "c"), idsOf(edited.toEntries()));
+        assertEquals(Collections.singletonList("work"), edited.toEntry(0).getTags());
+        assertEquals(Collections.singletonList("sport"), edited.toEntry(1).getTags());
+        assertEquals(Collections.singletonList("family"), edited.toEntry(2).getTags());
+        assertEquals(Collections.singletonList("a"), idsOf(edited.entriesWithTag("work")));
+        assertEquals(1, edited.indexOf("b"));
+        // The original is untouched
+        assertEquals(Arrays.asList("travel", "work"), table.toEntry(1).getTags());
+    }
+
+    @Test
+    public void insertingKeepsNewestFirstAndReindexes() {
+        JournalEntryTable table = JournalEntryTable.fromEntries(Arrays.asList(entry("a", 1), entry("c", 5, "x")));
+
+        table = table.inserting(entry("b", 3, "y"));
+        table = table.inserting(entry("d", 9));
+        table = table.inserting(entry("e", 0));
+
+        assertEquals(Arrays.asList("e", "a", "b", "c", "d"), idsOf(table.toEntries()));
+        for (int row = 0; row < table.size(); row++) {
+            assertEquals(row, table.indexOf(table.id(row)));
+        }
+        assertEquals(Collections.singletonList("y"), table.toEntry(2).getTags());
+        assertEquals(Collections.singletonList("x"), table.toEntry(3).getTags());
+    }
+
+    @Test
+    public void withoutDropsTheRowAndItsTags() {
+        JournalEntryTable table = JournalEntryTable.fromEntries(Arrays.asList(
+                entry("a", 3, "work"), entry("b", 2, "travel"), entry("c", 1, "family", "work")));
+
+        JournalEntryTable first = table.without(0);
+        JournalEntryTable last = table.without(2);
+
+        assertEquals(Arrays.asList("b", "c"), idsOf(first.toEntries()));
+        assertEquals(Arrays.asList("family", "work"), first.toEntry(1).getTags());
+        assertEquals(-1, first.indexOf("a"));
+        assertEquals(1, first.indexOf("c"));
+        assertEquals(Arrays.asList("a", "b"), idsOf(last.toEntries()));
+        assertEquals(Collections.singletonList("a"), idsOf(last.entriesWithTag("work")));
+        assertEquals(0, JournalEntryTable.EMPTY.inserting(entry("a", 1)).without(0).size());
+    }
+
+    private static JournalEntry entry(String id, int daysAgo, String... tags) {
+        JournalEntry entry = new JournalEntry(new Date(1_750_000_000_000L - daysAgo * 86_400_000L), "note", 0);
+        entry.setId(id);
+        entry.setTags(new ArrayList<>(Arrays.asList(tags)));
+        return entry;
+    }
+
+    private static List<String> idsOf(List<JournalEntry> entries) {
+        List<String> ids = new ArrayList<>();
+        for (JournalEntry entry : entries) {
+            ids.add(entry.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.mindnote;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class JournalTagSetTest {
+
+    private static final long T = 1_750_000_000_000L;
+    private static final long HOUR = 3_600_000L;
+
+    private static final List<String> NONE = Collections.emptyList();
+    private static final List<String> X = Collections.singletonList("x");
+
+    @Test
+    public void concurrentAddAndRemoveConvergeOnTheLaterStamp() {
+        HybridLogicalClock a = new HybridLogicalClock("0000000a", () -> T);
+        HybridLogicalClock b = new HybridLogicalClock("0000000b", () -> T + 1);
+        String add = a.now();
+        String remove = b.now();
+
+        // Either replica may see the other's edit first
+        JournalTagSet addFirst = JournalTagSet.fromStored(X, null);
+        addFirst.apply(X, NONE, add);
+        addFirst = stored(addFirst);
+        addFirst.apply(NONE, X, remove);
+
+        JournalTagSet removeFirst = JournalTagSet.fromStored(X, null);
+        removeFirst.apply(NONE, X, remove);
+        removeFirst = stored(removeFirst);
+        removeFirst.apply(X, NONE, add);
+
+        assertFalse(addFirst.contains("x"));
+        assertFalse(removeFirst.contains("x"));
+        assertEquals(addFirst.toData(), removeFirst.toData());
+    }
+
+    @Test
+    public void laterAddWinsOverAnEarlierRemoveInEitherOrder() {
+        HybridLogicalClock clock = new HybridLogicalClock("0000000a", () -> T);
+        String remove = clock.now();
+        String add = clock.now();
+
+        JournalTagSet inOrder = JournalTagSet.fromStored(X, null);
+        inOrder.apply(NONE, X, remove);
+        inOrder.apply(X, NONE, add);
+
+        JournalTagSet reversed = JournalTagSet.fromStored(X, null);
+        reversed.apply(X, NONE, add);
+        reversed.apply(NONE, X, remove);
+
+        assertTrue(inOrder.contains("x"));
+        assertTrue(reversed.contains("x"));
+    }
+
+    @Test
+    public void addAndRemoveInOneEditKeepTheTag() {
+        String clock = new HybridLogicalClock("0000000a", () -> T).now();
+        JournalTagSet set = JournalTagSet.fromStored(NONE, null);
+        set.apply(X, X, clock);
+        assertTrue(set.contains("x"));
+    }
+
+    @Test
+    public void equalPhysicalTimeOnTwoDevicesResolvesTheSameEverywhere() {
+        String add = new HybridLogicalClock("0000000a", () -> T).now();
+        String remove = new HybridLogicalClock("0000000b", () -> T).now();
+
+        JournalTagSet one = JournalTagSet.fromStored(NONE, null);
+        one.apply(X, NONE, add);
+        one.apply(NONE, X, remove);
+        JournalTagSet other = JournalTagSet.fromStored(NONE, null);
+        other.apply(NONE, X, remove);
+        other.apply(X, NONE, add);
+
+        assertEquals(one.contains("x"), other.contains("x"));
+        // The node id breaks the tie: "0000000b" sorts after "0000000a"
+        assertFalse(one.contains("x"));
+    }
+
+    @Test
+    public void addAfterObservingASkewedRemoveWins() {
+        HybridLogicalClock ahead = new HybridLogicalClock("0000000a", () -> T + HOUR);
+        HybridLogicalClock behind = new HybridLogicalClock("0000000b", () -> T);
+
+        JournalTagSet set = JournalTagSet.fromStored(X, null);
+        set.apply(NONE, X, ahead.now());
+
+        // Unobserved, the slow device's re-add loses to the remove it followed
+        JournalTagSet unobserved = stored(set);
+        unobserved.apply(X, NONE, behind.now());
+        assertFalse(unobserved.contains("x"));
+
+        // Saves observe the stored clocks before stamping, as updateEntry does
+        for (String stamp : set.allClocks()) {
+            behind.observe(stamp);
+        }
+        set.apply(X, NONE, behind.now());
+        assertTrue(set.contains("x"));
+    }
+
+    @Test
+    public void olderStampsChangeNothing() {
+        HybridLogicalClock clock = new HybridLogicalClock("0000000a", () -> T);
+        String older = clock.now();
+        String newer = clock.now();
+
+        JournalTagSet set = JournalTagSet.fromStored(NONE, null);
+        set.apply(X, NONE, newer);
+        set.apply(X, X, older);
+        assertTrue(set.contains("x"));
+        assertEquals(newer, ((Map<?, ?>) set.toData().get("x")).get(JournalTagSet.ADDED));
+    }
+
+    @Test
+    public void tagsWithoutClocksCountAsAddedAtTheStartOfTime() {
+        JournalTagSet set = JournalTagSet.fromStored(Arrays.asList("old", "x"), null);
+        assertTrue(set.contains("old"));
+
+        set.apply(NONE, X, new HybridLogicalClock("0000000a", () -> T).now());
+        assertEquals(Collections.singletonList("old"), set.members(null));
+    }
+
+    @Test
+    public void membersFollowThePreferredOrderThenAlphabetical() {
+        String clock = new HybridLogicalClock("0000000a", () -> T).now();
+        JournalTagSet set = JournalTagSet.fromStored(NONE, null);
+        set.apply(Arrays.asList("c", "a", "d", "b"), NONE, clock);
+
+        assertEquals(Arrays.asList("d", "b", "a", "c"), set.members(Arrays.asList("d", "b", "gone")));
+    }
+
+    // What the next reader sees after the set is written back
+    private static JournalTagSet stored(JournalTagSet set) {
+        return JournalTagSet.fromStored(set.members(null), set.toData());
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.mindnote;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+// Runs the JournalDataManagerTest contract over a real SQLite database
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class SQLiteJournalDataManagerTest extends JournalDataManagerTest {
+
+    @Override
+    protected JournalRepository newRepository() {
+        return new SQLiteJournalRepository(ApplicationProvider.getApplicationContext(), "test-user",
+                Runnable::run, Runnable::run);
+    }
+}
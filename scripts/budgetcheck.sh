@@ -0,0 +1,28 @@
+#!/usr/bin/env bash
+# Runs JournalBudgetTest against the Firestore emulator on a connected
+# (headless) Android emulator. The test fails, and with it this script and
+# connectedCheck, when any scenario goes over its read, write, round-trip or
+# byte budget.
+#
+# CI setup, once per job:
+#   emulator -avd ci -no-window -no-audio -no-boot-anim &
+#   adb wait-for-device
+#
+# Usage: scripts/budgetcheck.sh [report.txt]
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+OUT=${1:-budget-report.txt}
+
+# 10.0.2.2 is the host loopback as seen from the Android emulator; the same property becomes
+# the test's firebaseEmulatorHost instrumentation argument
+status=0
+firebase emulators:exec --only firestore,auth --project demo-mindnote \
+    "./gradlew -q connectedDebugAndroidTest -PfirebaseEmulatorHost=10.0.2.2 -PrequireFirebaseEmulator \
+    -Pandroid.testInstrumentationRunnerArguments.class=com.example.mindnote.JournalBudgetTest" || status=$?
+
+# The per-scenario lines are logged by JournalBudgetCheck
+adb logcat -d -s JournalBudgetCheck:I > "$OUT" || true
+cat "$OUT"
+exit $status
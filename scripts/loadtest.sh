@@ -0,0 +1,44 @@
+#!/usr/bin/env bash
+# Seeds the Firestore emulator with synthetic heavy journals and runs the
+# JournalDataManager load test on a connected (headless) Android emulator.
+#
+# CI setup, once per job:
+#   emulator -avd ci -no-window -no-audio -no-boot-anim &
+#   adb wait-for-device
+#
+# Usage: USERS=10 YEARS=3 OPS=200 scripts/loadtest.sh [report.json]
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+USERS=${USERS:-5}
+YEARS=${YEARS:-2}
+TAGS=${TAGS:-200}
+OPS=${OPS:-100}
+IMAGE_PERCENT=${IMAGE_PERCENT:-30}
+SEED=${SEED:-42}
+TIMEOUT=${TIMEOUT:-1800}
+OUT=${1:-loadtest-report.json}
+PACKAGE=com.example.mindnote
+
+# 10.0.2.2 is the host loopback as seen from the Android emulator. LoadTestActivity is not
+# exported, so the test APK's LoadTestRun starts it from inside the app's process.
+./gradlew -q installDebug installDebugAndroidTest -PfirebaseEmulatorHost=10.0.2.2
+
+firebase emulators:exec --only firestore,auth --project demo-mindnote "$(cat <<CMD
+set -e
+adb shell am force-stop $PACKAGE
+adb shell am instrument -w -e class $PACKAGE.LoadTestRun -e mode loadtest \
+    -e users $USERS -e years $YEARS -e tags $TAGS -e ops $OPS \
+    -e imagePercent $IMAGE_PERCENT -e seed $SEED -e timeoutSeconds $TIMEOUT \
+    $PACKAGE.test/androidx.test.runner.AndroidJUnitRunner
+adb shell run-as $PACKAGE cat files/loadtest/report.json > "$OUT" 2>/dev/null || true
+cat "$OUT"
+if [ ! -s "$OUT" ]; then
+    echo "Load test did not finish within $TIMEOUT s" >&2
+    exit 1
+fi
+grep -q '"error"' "$OUT" && exit 1
+exit 0
+CMD
+)"